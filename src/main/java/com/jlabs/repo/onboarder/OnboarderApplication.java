@@ -1,6 +1,7 @@
 package com.jlabs.repo.onboarder;
 
 import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.config.FakeAiProperties;
 import com.jlabs.repo.onboarder.config.GitCoreProperties;
 
 import org.slf4j.Logger;
@@ -9,9 +10,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties({ GitCoreProperties.class, AiProperties.class })
+@EnableConfigurationProperties({ GitCoreProperties.class, AiProperties.class, FakeAiProperties.class })
+@EnableScheduling
 public class OnboarderApplication implements CommandLineRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(OnboarderApplication.class);
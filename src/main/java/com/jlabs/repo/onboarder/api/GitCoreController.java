@@ -1,18 +1,30 @@
 package com.jlabs.repo.onboarder.api;
 
+import com.jlabs.repo.onboarder.git.AnalysisScope;
+import com.jlabs.repo.onboarder.model.AnalysisJob;
 import com.jlabs.repo.onboarder.model.DocumentationResult;
+import com.jlabs.repo.onboarder.service.AnalysisJobService;
 import com.jlabs.repo.onboarder.service.GitCoreRunner;
+import com.jlabs.repo.onboarder.service.ProgressListener;
+import com.jlabs.repo.onboarder.service.ResponseCacheService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/git-core")
@@ -22,6 +34,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class GitCoreController {
 
         private final GitCoreRunner runner;
+        private final AnalysisJobService jobService;
 
         @Operation(summary = "Starts repository analysis", description = "Clones repository and generates documentation")
         @PostMapping("/run")
@@ -30,10 +43,23 @@ public class GitCoreController {
 
                         @Parameter(description = "Branch name") @RequestParam(required = true, defaultValue = "${git-core.branch}") String branch,
                         @Parameter(description = "Include tests") @RequestParam(required = true, defaultValue = "${git-core.withTest}") boolean withTest,
-                        @Parameter(description = "Target language") @RequestParam(required = false, defaultValue = "English") String targetLanguage) {
+                        @Parameter(description = "Target language") @RequestParam(required = false, defaultValue = "English") String targetLanguage,
+                        @Parameter(description = "Limit analysis to these paths (directories or files)") @RequestParam(required = false) List<String> paths,
+                        @Parameter(description = "Only commits on or after this day (yyyy-MM-dd, UTC)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+                        @Parameter(description = "Only commits on or before this day (yyyy-MM-dd, UTC)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate until,
+                        @Parameter(description = "Model response cache: USE serves cached responses, REFRESH regenerates and replaces them, BYPASS neither reads nor writes") @RequestParam(required = false, defaultValue = "USE") ResponseCacheService.Mode responseCache) {
                 log.info("REST: starting GitCore analysis");
+                AnalysisScope scope;
                 try {
-                        DocumentationResult result = runner.run(repoUrl, branch, withTest, targetLanguage);
+                        scope = validate(branch, paths, since, until);
+                } catch (IllegalArgumentException ex) {
+                        return ResponseEntity
+                                        .status(HttpStatus.BAD_REQUEST)
+                                        .body(ex.getMessage());
+                }
+                try {
+                        DocumentationResult result = runner.run(repoUrl, branch, withTest, targetLanguage, scope,
+                                        responseCache, ProgressListener.NONE);
                         return ResponseEntity.ok(result);
                 } catch (Exception ex) {
                         log.error("Error during GitCore analysis", ex);
@@ -44,4 +70,67 @@ public class GitCoreController {
                 }
 
         }
+
+        @Operation(summary = "Submits repository analysis as a background job", description = "Returns job id immediately; poll /jobs/{jobId} or subscribe to /jobs/{jobId}/events")
+        @PostMapping("/jobs")
+        public ResponseEntity<?> submitJob(
+                        @Parameter(description = "Repository URL") @RequestParam(required = true, defaultValue = "${git-core.repo-url}") String repoUrl,
+                        @Parameter(description = "Branch name") @RequestParam(required = true, defaultValue = "${git-core.branch}") String branch,
+                        @Parameter(description = "Include tests") @RequestParam(required = true, defaultValue = "${git-core.withTest}") boolean withTest,
+                        @Parameter(description = "Target language") @RequestParam(required = false, defaultValue = "English") String targetLanguage,
+                        @Parameter(description = "Limit analysis to these paths (directories or files)") @RequestParam(required = false) List<String> paths,
+                        @Parameter(description = "Only commits on or after this day (yyyy-MM-dd, UTC)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+                        @Parameter(description = "Only commits on or before this day (yyyy-MM-dd, UTC)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate until,
+                        @Parameter(description = "Model response cache: USE serves cached responses, REFRESH regenerates and replaces them, BYPASS neither reads nor writes") @RequestParam(required = false, defaultValue = "USE") ResponseCacheService.Mode responseCache) {
+                log.info("REST: submitting GitCore analysis job");
+                try {
+                        validate(branch, paths, since, until);
+                } catch (IllegalArgumentException ex) {
+                        return ResponseEntity
+                                        .status(HttpStatus.BAD_REQUEST)
+                                        .body(ex.getMessage());
+                }
+                try {
+                        AnalysisJob job = jobService.submit(repoUrl, branch, withTest, targetLanguage, paths, since,
+                                        until, responseCache);
+                        return ResponseEntity
+                                        .status(HttpStatus.ACCEPTED)
+                                        .body(Map.of(
+                                                        "jobId", job.getId(),
+                                                        "status", job.getStatus().name(),
+                                                        "statusUrl", "/api/git-core/jobs/" + job.getId(),
+                                                        "eventsUrl", "/api/git-core/jobs/" + job.getId() + "/events"));
+                } catch (RejectedExecutionException ex) {
+                        return ResponseEntity
+                                        .status(HttpStatus.SERVICE_UNAVAILABLE)
+                                        .body("Analysis queue is full, try again later");
+                }
+        }
+
+        @Operation(summary = "Returns job status, progress events and result")
+        @GetMapping("/jobs/{jobId}")
+        public ResponseEntity<AnalysisJob> getJob(@PathVariable String jobId) {
+                return ResponseEntity.of(jobService.find(jobId));
+        }
+
+        @Operation(summary = "Streams job stage transitions as server-sent events", description = "\"chunk\" events stream the documents while they are generated: {document, offset, text}, cut the document at offset and append text")
+        @GetMapping(path = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable String jobId) {
+                return ResponseEntity.of(jobService.subscribe(jobId));
+        }
+
+        /**
+         * Checks the request parameters before any work starts. Only this
+         * failure is answered with 400; exceptions thrown later in the pipeline
+         * are internal errors.
+         *
+         * @throws IllegalArgumentException when the branch is not a valid branch
+         *                                  name or since is after until
+         */
+        private static AnalysisScope validate(String branch, List<String> paths, LocalDate since, LocalDate until) {
+                if (branch == null || !Repository.isValidRefName(Constants.R_HEADS + branch)) {
+                        throw new IllegalArgumentException("Invalid branch name: " + branch);
+                }
+                return AnalysisScope.of(paths, since, until);
+        }
 }
@@ -30,6 +30,21 @@ public class AiProperties {
      */
     private Retry retry = new Retry();
 
+    /**
+     * Document generation configuration.
+     */
+    private Generation generation = new Generation();
+
+    /**
+     * Client-side rate limiting of API calls.
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * Local cache of model responses.
+     */
+    private ResponseCache responseCache = new ResponseCache();
+
     /**
      * Gemini chat model option configuration.
      */
@@ -98,4 +113,93 @@ public class AiProperties {
          */
         private long maxDelayMs = 30000;
     }
+
+    /**
+     * Execution of the document generators of a run.
+     */
+    @Data
+    public static class Generation {
+        /**
+         * Generators running at once, shared by all runs. Generators without
+         * dependencies between them run in parallel.
+         * Default: 6
+         */
+        private int maxConcurrent = 6;
+    }
+
+    /**
+     * Client-side limits shared by all API calls of the node: request and
+     * token budgets per minute (token buckets) and an adaptive concurrency
+     * limit that is halved on every 429 and grows back by one call per
+     * window of successful calls. Callers wait in FIFO order instead of
+     * failing.
+     */
+    @Data
+    public static class RateLimit {
+        /**
+         * Requests per minute, 0 = unlimited.
+         * Default: 60
+         */
+        private int requestsPerMinute = 60;
+
+        /**
+         * Tokens per minute, 0 = unlimited. Calls are admitted on the prompt
+         * size estimate and charged the actual usage afterwards.
+         * Default: 1000000
+         */
+        private long tokensPerMinute = 1_000_000;
+
+        /**
+         * Upper bound of the adaptive concurrency limit, also its start value.
+         * Default: 8
+         */
+        private int maxConcurrent = 8;
+
+        /**
+         * Pause of all calls after a 429, doubled while 429s keep coming.
+         * Default: 10s
+         */
+        private Duration cooldown = Duration.ofSeconds(10);
+
+        /**
+         * How many times a call rejected with 429 is queued again before
+         * failing.
+         * Default: 5
+         */
+        private int maxRateLimitRetries = 5;
+
+        /**
+         * Longest wait for a slot before a call fails.
+         * Default: 10 minutes
+         */
+        private Duration queueTimeout = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Persistent cache of model responses, keyed by a content hash of the
+     * repository context, the prompt, the target language and the model
+     * options. Entries unused for max-idle are evicted, then the least
+     * recently used ones above the size cap.
+     */
+    @Data
+    public static class ResponseCache {
+        private boolean enabled = true;
+
+        /**
+         * Directory relative to git-core.workdir.
+         */
+        private String dir = "response-cache";
+
+        /**
+         * Size cap of the cache, 0 = no limit.
+         * Default: 256
+         */
+        private long maxSizeMb = 256;
+
+        /**
+         * Entries not used for this long are evicted.
+         * Default: 30 days
+         */
+        private Duration maxIdle = Duration.ofDays(30);
+    }
 }
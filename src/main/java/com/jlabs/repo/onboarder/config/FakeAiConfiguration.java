@@ -0,0 +1,34 @@
+package com.jlabs.repo.onboarder.config;
+
+import com.jlabs.repo.onboarder.infrastructure.fake.FakeCachedContentClient;
+import com.jlabs.repo.onboarder.infrastructure.fake.FakeChatModel;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Local stand-ins for the Gemini chat model and Cached Content API, active
+ * with the "fake-ai" profile: the whole pipeline runs offline, without an
+ * API key and without spending tokens, with configurable latency, response
+ * sizes and injected errors (fake-ai.* in application-fake-ai.yml).
+ */
+@Configuration
+@Profile(FakeAiConfiguration.PROFILE)
+public class FakeAiConfiguration {
+
+    public static final String PROFILE = "fake-ai";
+
+    @Bean
+    public FakeCachedContentClient cachedContentClient(FakeAiProperties fakeAiProperties) {
+        return new FakeCachedContentClient(fakeAiProperties);
+    }
+
+    @Bean
+    @Primary
+    public FakeChatModel fakeChatModel(FakeAiProperties fakeAiProperties, AiProperties aiProperties,
+            FakeCachedContentClient cachedContentClient) {
+        return new FakeChatModel(fakeAiProperties, aiProperties.getChat().getOptions().getModel(),
+                cachedContentClient);
+    }
+}
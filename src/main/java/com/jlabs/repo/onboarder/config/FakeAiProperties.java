@@ -0,0 +1,102 @@
+package com.jlabs.repo.onboarder.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Behaviour of the local model stand-in (profile "fake-ai"), see
+ * {@link FakeAiConfiguration}. Properties are loaded from
+ * application-fake-ai.yml with prefix "fake-ai".
+ */
+@ConfigurationProperties(prefix = "fake-ai")
+@Data
+public class FakeAiProperties {
+
+    /**
+     * Seed of latencies and injected errors. Response texts depend only on
+     * the prompt.
+     */
+    private long seed = 42;
+
+    /**
+     * Time to the first token of a response.
+     */
+    private Latency latency = new Latency();
+
+    /**
+     * Output speed once the first token arrived, 0 = the whole response at
+     * once.
+     * Default: 200
+     */
+    private int tokensPerSecond = 200;
+
+    /**
+     * Length range of the generated documents, picked per prompt.
+     */
+    private int minResponseChars = 2_000;
+    private int maxResponseChars = 8_000;
+
+    /**
+     * Characters per streamed chunk.
+     * Default: 200
+     */
+    private int streamChunkChars = 200;
+
+    /**
+     * Share of calls failing with 429 RESOURCE_EXHAUSTED, 0.0-1.0.
+     */
+    private double rateLimitProbability = 0.0;
+
+    /**
+     * Share of calls failing with 503 UNAVAILABLE, 0.0-1.0.
+     */
+    private double serverErrorProbability = 0.0;
+
+    /**
+     * Time to create a cached content.
+     * Default: 200ms
+     */
+    private Duration cacheCreateLatency = Duration.ofMillis(200);
+
+    /**
+     * Smallest cached content accepted (the Gemini API requires 32768), 0 =
+     * any size.
+     * Default: 0
+     */
+    private int minCacheTokens = 0;
+
+    /**
+     * Latency distribution.
+     */
+    @Data
+    public static class Latency {
+        private Distribution distribution = Distribution.LOG_NORMAL;
+
+        /**
+         * FIXED: the latency; UNIFORM: centre of the range; LOG_NORMAL:
+         * median.
+         * Default: 800ms
+         */
+        private Duration median = Duration.ofMillis(800);
+
+        /**
+         * UNIFORM: half-width of the range relative to the median (0.5 =
+         * median +/- 50%); LOG_NORMAL: sigma of the underlying normal
+         * distribution.
+         * Default: 0.5
+         */
+        private double spread = 0.5;
+
+        /**
+         * Upper bound of every latency.
+         * Default: 30s
+         */
+        private Duration max = Duration.ofSeconds(30);
+    }
+
+    public enum Distribution {
+        FIXED, UNIFORM, LOG_NORMAL
+    }
+}
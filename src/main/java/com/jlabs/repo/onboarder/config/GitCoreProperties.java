@@ -3,15 +3,34 @@ package com.jlabs.repo.onboarder.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import lombok.Data;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @ConfigurationProperties(prefix = "git-core")
 @Data
 public class GitCoreProperties {
 
     private String workdir = "repo-work";
 
+    /**
+     * true - materialize a working tree and read sources from disk,
+     * false - read the analysed tree straight from the object database
+     * (no checkout, no deletes; with the mirror enabled through a bare
+     * repository borrowing the mirror's objects).
+     */
+    private boolean checkout = false;
+
     private Output output = new Output();
     private Limits limits = new Limits();
     private Auth auth = new Auth();
+    private Mirror mirror = new Mirror();
+    private Clone clone = new Clone();
+    private Jobs jobs = new Jobs();
+    private Diff diff = new Diff();
+    private CommitStore commitStore = new CommitStore();
+    private Hotspots hotspots = new Hotspots();
+    private Selection selection = new Selection();
 
     @Data
     public static class Output {
@@ -24,6 +43,148 @@ public class GitCoreProperties {
         private int maxChangedFiles = 200; // 0 = no limit
         private boolean includePatch = false;
         private int maxPatchChars = 4000;
+        private int maxHistoryCommits = 1000; // commits rendered into the commit history payload, 0 = no limit
+        private boolean retainCommits = false; // keep every commit in GitReport.commitTable (CommitTable), e.g. for MarkdownReportWriter
+    }
+
+    @Data
+    public static class Mirror {
+        private boolean enabled = true;
+        private String dir = "mirrors"; // relative to workdir
+        private long maxSizeMb = 4096; // 0 = no limit
+    }
+
+    @Data
+    public static class Clone {
+        /**
+         * FULL - all branches, tags and full history.
+         * SHALLOW - only the requested branch, depth derived from limits.maxCommits
+         * (maxCommits + 1, so the oldest reported commit can still be diffed
+         * against its parent). Falls back to full history when maxCommits = 0
+         * and for runs scoped by paths or dates.
+         */
+        private Strategy strategy = Strategy.SHALLOW;
+
+        public enum Strategy {
+            FULL, SHALLOW
+        }
+    }
+
+    @Data
+    public static class Jobs {
+        private int maxConcurrent = 4; // analyses running at the same time
+        private int queueCapacity = 20; // jobs waiting for a free worker
+        private Duration retention = Duration.ofHours(1); // how long finished jobs are kept
+        private Duration purgeInterval = Duration.ofMinutes(1); // how often expired jobs are removed
+        private Duration sseTimeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Diff {
+        private int threads = 0; // per-commit diff workers, 0 = number of CPUs
+        private int batchSize = 256; // commits walked and diffed before being passed on, bounds memory
+        private int renameLimit = 0; // max files for rename detection, 0 = repository default (diff.renameLimit)
+
+        /**
+         * Per-path diff tier. Paths matching treeOnly are reported without line
+         * counts, paths matching sizeOnly (or larger than maxFullDiffBytes) get
+         * line counts estimated from blob sizes, everything else is line-diffed.
+         * Same syntax as the selection rules: patterns without '/' match the
+         * file name at any depth, others the whole repository-relative path.
+         */
+        private List<String> treeOnly = new ArrayList<>(List.of(
+                "*.png", "*.jpg", "*.jpeg", "*.gif", "*.ico", "*.webp", "*.pdf",
+                "*.zip", "*.gz", "*.tgz", "*.jar", "*.war", "*.class",
+                "*.woff", "*.woff2", "*.ttf", "*.eot", "*.exe", "*.dll", "*.so", "*.dylib"));
+        private List<String> sizeOnly = new ArrayList<>(List.of(
+                "package-lock.json", "yarn.lock", "pnpm-lock.yaml", "*.lock", "*.lockfile", "go.sum",
+                "*.min.js", "*.min.css", "*.map", "*.svg"));
+        private long maxFullDiffBytes = 1024 * 1024; // larger blobs get SIZE tier, 0 = no limit
+        private int bytesPerLine = 40; // used to estimate line counts in SIZE tier
+    }
+
+    /**
+     * Per-commit diff results persisted between runs, keyed by commit id, so a
+     * re-analysis only diffs commits it has not seen yet. Only diffs are
+     * stored, hotspots are recomputed from them on every run.
+     */
+    @Data
+    public static class CommitStore {
+        private boolean enabled = true;
+        private String dir = "commit-store"; // relative to workdir
+        private long maxSizeMb = 1024; // least recently used entries are evicted above the cap, 0 = no limit
+        private Duration maxIdle = Duration.ofDays(30); // entries unused for longer are evicted, 0 = never
+        private Duration evictionInterval = Duration.ofMinutes(10); // least time between eviction walks, unless above the cap
+    }
+
+    /**
+     * Hotspot ranking, scored while commits stream.
+     */
+    @Data
+    public static class Hotspots {
+        /**
+         * CHURN - lines added + deleted.
+         * DECAYED_CHURN - churn weighted by 0.5^(age / halfLife), age relative
+         * to the newest analysed commit.
+         * FREQUENCY - number of commits touching the file.
+         */
+        private Scoring scoring = Scoring.DECAYED_CHURN;
+        private Duration halfLife = Duration.ofDays(90);
+        private int topFiles = 100; // 0 = no limit
+        private int topDirectories = 20; // 0 = no roll-up
+        private int topModules = 10; // 0 = no roll-up
+        private int moduleDepth = 1; // path components making a module, 1 = top-level directory
+
+        public enum Scoring {
+            CHURN, DECAYED_CHURN, FREQUENCY
+        }
+    }
+
+    /**
+     * Which files of the analysed revision are listed (directory tree, file
+     * list, hotspots) and which are read into the source code corpus.
+     * <p>
+     * Rules use .gitignore syntax: globs with '*', '**' and '?', a trailing
+     * '/' matches directories only, a pattern containing '/' is anchored at
+     * the repository root, otherwise it matches at any depth; '!' re-includes
+     * what an earlier rule excluded (the last matching rule wins). Built-in
+     * rules of the selected languages come first, so the lists below can
+     * override them.
+     */
+    @Data
+    public static class Selection {
+        /**
+         * Left out of the run entirely, excluded directories are not walked.
+         */
+        private List<String> exclude = new ArrayList<>(List.of(
+                ".git/", ".idea/", "node_modules/", "bower_components/", "/vendor/", "third_party/"));
+        /**
+         * Listed, but their content never goes to the corpus.
+         */
+        private List<String> corpusExclude = new ArrayList<>(List.of(
+                "package-lock.json", "yarn.lock", "pnpm-lock.yaml", "*.lock", "*.lockfile",
+                "*.min.js", "*.min.css", "*.map", "*.svg",
+                "*.png", "*.jpg", "*.jpeg", "*.gif", "*.ico", "*.webp", "*.bmp", "*.pdf",
+                "*.zip", "*.gz", "*.tgz", "*.jar", "*.war", "*.class",
+                "*.woff", "*.woff2", "*.ttf", "*.eot", "*.exe", "*.dll", "*.so", "*.dylib",
+                "generated/", "*.generated.*"));
+        /**
+         * Left out of the run when tests are not requested (withTest = false).
+         * Anchored, so a package named "test" under src/main stays in.
+         */
+        private List<String> testExclude = new ArrayList<>(List.of(
+                "/test/", "/tests/", "**/src/test/", "__tests__/"));
+        private long maxFileBytes = 1024 * 1024; // larger files stay out of the corpus, 0 = no limit
+        private int probeBytes = 8 * 1024; // read first to classify a file: binary, charset, minified, generated
+        private long sampleAboveBytes = 64 * 1024; // larger text files go to the corpus as head + tail, 0 = never
+        private int sampleHeadBytes = 24 * 1024;
+        private int sampleTailBytes = 8 * 1024;
+        private int readConcurrency = 16; // corpus files read at once (virtual threads), 1 = sequential
+        private List<Language> languages = new ArrayList<>(List.of(Language.values())); // built-in rule sets
+
+        public enum Language {
+            JAVA, JAVASCRIPT, PYTHON, GO, DOTNET, RUST
+        }
     }
 
     @Data
@@ -1,11 +1,19 @@
 package com.jlabs.repo.onboarder.config;
 
 import com.google.genai.Client;
+import com.jlabs.repo.onboarder.infrastructure.springai.CachedContentClient;
+import com.jlabs.repo.onboarder.infrastructure.springai.GoogleGenAiCachedContentClient;
 import org.springframework.ai.google.genai.cache.GoogleGenAiCachedContentService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
+/**
+ * Gemini beans; replaced by {@link FakeAiConfiguration} in the "fake-ai"
+ * profile.
+ */
 @Configuration
+@Profile("!" + FakeAiConfiguration.PROFILE)
 public class SpringAiConfiguration {
 
     /**
@@ -19,4 +27,9 @@ public class SpringAiConfiguration {
     public GoogleGenAiCachedContentService googleGenAiCachedContentService(Client genAiClient) {
         return new GoogleGenAiCachedContentService(genAiClient);
     }
+
+    @Bean
+    public CachedContentClient cachedContentClient(GoogleGenAiCachedContentService cachedContentService) {
+        return new GoogleGenAiCachedContentClient(cachedContentService);
+    }
 }
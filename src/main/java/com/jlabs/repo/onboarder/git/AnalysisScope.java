@@ -0,0 +1,88 @@
+package com.jlabs.repo.onboarder.git;
+
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Part of the repository an analysis looks at: a set of path prefixes
+ * (directories or files) and a commit time window. Applied as JGit filters
+ * while walking, so everything outside the scope is never read.
+ *
+ * @param paths repository-relative prefixes, empty = whole repository
+ * @param since oldest commit time included, null = no lower bound
+ * @param until newest commit time included, null = no upper bound
+ */
+public record AnalysisScope(List<String> paths, Instant since, Instant until) {
+
+    public static final AnalysisScope ALL = new AnalysisScope(List.of(), null, null);
+
+    public AnalysisScope {
+        paths = paths == null ? List.of()
+                : paths.stream()
+                        .filter(p -> p != null && !p.isBlank())
+                        .map(AnalysisScope::normalize)
+                        .filter(p -> !p.isEmpty())
+                        .distinct()
+                        .sorted()
+                        .toList();
+        if (since != null && until != null && since.isAfter(until)) {
+            throw new IllegalArgumentException("since must not be after until");
+        }
+    }
+
+    /**
+     * Scope from request parameters; both dates are inclusive (UTC days).
+     */
+    public static AnalysisScope of(List<String> paths, LocalDate since, LocalDate until) {
+        return new AnalysisScope(paths,
+                since != null ? since.atStartOfDay(ZoneOffset.UTC).toInstant() : null,
+                until != null ? until.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().minusSeconds(1) : null);
+    }
+
+    public boolean hasPaths() {
+        return !paths.isEmpty();
+    }
+
+    public boolean hasTimeWindow() {
+        return since != null || until != null;
+    }
+
+    /**
+     * @return filter limiting tree walks and diffs to {@link #paths}
+     */
+    public TreeFilter treeFilter() {
+        return paths.isEmpty() ? TreeFilter.ALL : PathFilterGroup.createFromStrings(paths);
+    }
+
+    /**
+     * @return commit time filter; the walk stops at the first commit older than
+     *         {@link #since}
+     */
+    public RevFilter revFilter() {
+        if (since != null && until != null) {
+            return CommitTimeRevFilter.between(since.toEpochMilli(), until.toEpochMilli());
+        }
+        if (since != null) {
+            return CommitTimeRevFilter.after(since.toEpochMilli());
+        }
+        if (until != null) {
+            return CommitTimeRevFilter.before(until.toEpochMilli());
+        }
+        return RevFilter.ALL;
+    }
+
+    private static String normalize(String path) {
+        String p = path.trim().replace('\\', '/');
+        while (p.startsWith("./")) {
+            p = p.substring(2);
+        }
+        return p.replaceAll("^/+|/+$", "");
+    }
+}
@@ -0,0 +1,44 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.model.GitReport;
+
+import java.util.List;
+
+/**
+ * Receives the commits streamed by {@link GitCommitCollector}, newest first,
+ * with diff stats filled in. The collector drops a commit once every consumer
+ * has seen it, so a consumer keeps only the state it needs (an aggregate, a
+ * capped rendering) and memory does not grow with the history length.
+ * <p>
+ * Called on the collecting thread, one commit at a time.
+ */
+@FunctionalInterface
+public interface CommitConsumer {
+
+    void accept(GitReport.CommitInfo commit);
+
+    /**
+     * Called once after the last commit.
+     */
+    default void complete() {
+    }
+
+    static CommitConsumer of(CommitConsumer... consumers) {
+        List<CommitConsumer> all = List.of(consumers);
+        return new CommitConsumer() {
+            @Override
+            public void accept(GitReport.CommitInfo commit) {
+                for (CommitConsumer consumer : all) {
+                    consumer.accept(commit);
+                }
+            }
+
+            @Override
+            public void complete() {
+                for (CommitConsumer consumer : all) {
+                    consumer.complete();
+                }
+            }
+        };
+    }
+}
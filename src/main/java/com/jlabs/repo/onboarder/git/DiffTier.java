@@ -0,0 +1,22 @@
+package com.jlabs.repo.onboarder.git;
+
+/**
+ * How the line counts of a changed file are obtained, cheapest first.
+ */
+public enum DiffTier {
+
+    /**
+     * Change detected from the trees only, no line counts.
+     */
+    TREE,
+
+    /**
+     * Line counts estimated from blob sizes, no content is read.
+     */
+    SIZE,
+
+    /**
+     * Line counts from a full line diff.
+     */
+    FULL
+}
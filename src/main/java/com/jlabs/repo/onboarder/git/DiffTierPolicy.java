@@ -0,0 +1,87 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import java.io.IOException;
+
+/**
+ * Picks the {@link DiffTier} of a changed file from git-core.diff: glob rules
+ * first, then the blob size threshold. The rules use the {@link FileRules}
+ * syntax: patterns without '/' match the file name at any depth, patterns
+ * with '/' the whole repository-relative path.
+ * <p>
+ * Immutable, shared by all diff workers of a run.
+ */
+class DiffTierPolicy {
+
+    private final FileRules.RuleSet treeOnly;
+    private final FileRules.RuleSet sizeOnly;
+    private final long maxFullDiffBytes;
+    private final int bytesPerLine;
+
+    DiffTierPolicy(GitCoreProperties.Diff cfg) {
+        this.treeOnly = new FileRules.RuleSet(cfg.getTreeOnly());
+        this.sizeOnly = new FileRules.RuleSet(cfg.getSizeOnly());
+        this.maxFullDiffBytes = cfg.getMaxFullDiffBytes();
+        this.bytesPerLine = Math.max(1, cfg.getBytesPerLine());
+    }
+
+    DiffTier tierFor(DiffEntry entry, ObjectReader reader) throws IOException {
+        String path = entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+
+        if (treeOnly.matches(path, false)) {
+            return DiffTier.TREE;
+        }
+        if (sizeOnly.matches(path, false)) {
+            return DiffTier.SIZE;
+        }
+        if (maxFullDiffBytes > 0 && isBlob(entry)
+                && Math.max(size(reader, entry, DiffEntry.Side.OLD),
+                        size(reader, entry, DiffEntry.Side.NEW)) > maxFullDiffBytes) {
+            return DiffTier.SIZE;
+        }
+        return DiffTier.FULL;
+    }
+
+    /**
+     * Estimates {added, deleted} lines from the size difference of the two
+     * blobs. A rewrite of the same size counts as one changed line.
+     */
+    int[] estimate(DiffEntry entry, ObjectReader reader) throws IOException {
+        if (!isBlob(entry)) {
+            return new int[] { 0, 0 };
+        }
+        long oldSize = size(reader, entry, DiffEntry.Side.OLD);
+        long newSize = size(reader, entry, DiffEntry.Side.NEW);
+
+        int added = lines(Math.max(0, newSize - oldSize));
+        int deleted = lines(Math.max(0, oldSize - newSize));
+        if (added == 0 && deleted == 0 && entry.getChangeType() == DiffEntry.ChangeType.MODIFY) {
+            added = 1;
+            deleted = 1;
+        }
+        return new int[] { added, deleted };
+    }
+
+    private int lines(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, (bytes + bytesPerLine - 1) / bytesPerLine);
+    }
+
+    private static boolean isBlob(DiffEntry entry) {
+        return entry.getOldMode().getObjectType() != Constants.OBJ_COMMIT
+                && entry.getNewMode().getObjectType() != Constants.OBJ_COMMIT;
+    }
+
+    private static long size(ObjectReader reader, DiffEntry entry, DiffEntry.Side side) throws IOException {
+        AbbreviatedObjectId id = entry.getId(side);
+        if (id == null || !id.isComplete() || id.toObjectId().equals(ObjectId.zeroId())) {
+            return 0;
+        }
+        return reader.getObjectSize(id.toObjectId(), Constants.OBJ_BLOB);
+    }
+}
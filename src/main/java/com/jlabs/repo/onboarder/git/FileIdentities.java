@@ -0,0 +1,86 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.PathIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the paths of a newest-first commit stream to the file the path is at
+ * HEAD, following renames.
+ * <p>
+ * Built incrementally: after a commit renames A to B, older changes to A
+ * belong to B (or to whatever B was renamed to later). After a commit adds
+ * or copies P, older changes to P belong to a different file that no longer
+ * exists under that name, so they resolve to {@link #DEAD}. Resolved
+ * identities are final, lookups never follow chains.
+ * <p>
+ * Historical paths are kept as strings in a map of this run only; the
+ * {@link PathIndex} is only looked up, so it holds the HEAD files however
+ * long the history is. Used on the collecting thread only.
+ */
+class FileIdentities {
+
+    static final int DEAD = -1;
+
+    private static final String ADD = "ADD";
+    private static final String COPY = "COPY";
+    private static final String DELETE = "DELETE";
+    private static final String RENAME = "RENAME";
+
+    private final PathIndex paths;
+    // path in older commits -> path at HEAD, null when the file is gone
+    private final Map<String, String> identities = new HashMap<>();
+
+    FileIdentities(PathIndex paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * @return id of the changed file at HEAD, {@link #DEAD} when the file
+     *         does not survive to HEAD under any name (or is not listed)
+     */
+    int resolve(GitReport.CommitInfo.FileChange change) {
+        String current = current(change);
+        int id = current == null ? -1 : paths.find(current);
+        return paths.isHeadFile(id) ? id : DEAD;
+    }
+
+    /**
+     * Records the renames and creations of a commit; call after its changes
+     * have been resolved.
+     */
+    void advance(List<GitReport.CommitInfo.FileChange> changes) {
+        // targets first: a commit may rename A->B and B->C at the same time
+        List<String[]> renames = new ArrayList<>();
+        for (GitReport.CommitInfo.FileChange change : changes) {
+            if (RENAME.equals(change.getType())) {
+                renames.add(new String[] { change.getOldPath(), current(change) });
+            }
+        }
+        for (GitReport.CommitInfo.FileChange change : changes) {
+            String type = change.getType();
+            if (ADD.equals(type) || COPY.equals(type) || RENAME.equals(type)) {
+                identities.put(change.getNewPath(), null);
+            }
+        }
+        // after the creations, so "rename A->B, add a new A" keeps A's history on B
+        for (String[] rename : renames) {
+            identities.put(rename[0], rename[1]);
+        }
+    }
+
+    /**
+     * @return path of the changed file at HEAD, null when it is gone
+     */
+    private String current(GitReport.CommitInfo.FileChange change) {
+        String path = DELETE.equals(change.getType()) ? change.getOldPath() : change.getNewPath();
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        return identities.containsKey(path) ? identities.get(path) : path;
+    }
+}
@@ -0,0 +1,220 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.config.GitCoreProperties.Selection.Language;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled git-core.selection rules (.gitignore syntax, last matching rule
+ * wins). Built-in rules of the selected languages come before the configured
+ * lists, so a configured '!pattern' can re-include a file a language default
+ * leaves out.
+ * <p>
+ * Every pattern is compiled once into a regular expression guarded by its
+ * literal suffix, so most paths are rejected by an {@code endsWith} check.
+ * Immutable, shared by all runs.
+ */
+class FileRules {
+
+    private static final Map<Language, LanguageDefaults> LANGUAGES = Map.of(
+            Language.JAVA, new LanguageDefaults(
+                    List.of("/target/", "/build/", "/.gradle/", "/out/"),
+                    List.of("gradlew", "gradlew.bat", "mvnw", "mvnw.cmd", "gradle-wrapper.jar"),
+                    List.of("*Test.java", "*Tests.java", "*IT.java")),
+            Language.JAVASCRIPT, new LanguageDefaults(
+                    List.of("/dist/", "/coverage/", ".next/", ".nuxt/"),
+                    List.of("*.bundle.js", "*.chunk.js"),
+                    List.of("*.test.js", "*.test.jsx", "*.test.ts", "*.test.tsx",
+                            "*.spec.js", "*.spec.jsx", "*.spec.ts", "*.spec.tsx")),
+            Language.PYTHON, new LanguageDefaults(
+                    List.of("__pycache__/", ".venv/", "venv/", ".tox/", "*.egg-info/", ".mypy_cache/"),
+                    List.of("*.pyc", "*_pb2.py", "*_pb2_grpc.py"),
+                    List.of("test_*.py", "*_test.py", "conftest.py")),
+            Language.GO, new LanguageDefaults(
+                    List.of(),
+                    List.of("go.sum", "*.pb.go", "*_gen.go"),
+                    List.of("*_test.go", "testdata/")),
+            Language.DOTNET, new LanguageDefaults(
+                    List.of("**/bin/Debug/", "**/bin/Release/", "obj/", "/packages/"),
+                    List.of("*.Designer.cs", "*.g.cs"),
+                    List.of("*Tests.cs", "*Test.cs", "*.Tests/")),
+            Language.RUST, new LanguageDefaults(
+                    List.of("/target/"),
+                    List.of("Cargo.lock"),
+                    List.of()));
+
+    private final RuleSet exclude;
+    private final RuleSet corpusExclude;
+    private final long maxFileBytes;
+
+    FileRules(GitCoreProperties.Selection cfg, boolean withTest) {
+        List<String> exclude = new ArrayList<>();
+        List<String> corpusExclude = new ArrayList<>();
+        for (Language language : cfg.getLanguages()) {
+            LanguageDefaults defaults = LANGUAGES.get(language);
+            exclude.addAll(defaults.exclude());
+            corpusExclude.addAll(defaults.corpusExclude());
+            if (!withTest) {
+                exclude.addAll(defaults.tests());
+            }
+        }
+        exclude.addAll(cfg.getExclude());
+        if (!withTest) {
+            exclude.addAll(cfg.getTestExclude());
+        }
+        corpusExclude.addAll(cfg.getCorpusExclude());
+
+        this.exclude = new RuleSet(exclude);
+        this.corpusExclude = new RuleSet(corpusExclude);
+        this.maxFileBytes = cfg.getMaxFileBytes();
+    }
+
+    /**
+     * @return true when the path is left out of the run (a directory is then
+     *         not walked at all)
+     */
+    boolean excludes(String path, boolean directory) {
+        return exclude.matches(path, directory);
+    }
+
+    /**
+     * @return true when the content of a listed path must not be read
+     */
+    boolean excludesFromCorpus(String path, boolean directory) {
+        return corpusExclude.matches(path, directory);
+    }
+
+    /**
+     * @return true when a listed file of this size must not be read
+     */
+    boolean tooLarge(long size) {
+        return maxFileBytes > 0 && size > maxFileBytes;
+    }
+
+    private record LanguageDefaults(List<String> exclude, List<String> corpusExclude, List<String> tests) {
+    }
+
+    /**
+     * Ordered list of patterns, also used for the git-core.diff tier rules.
+     */
+    static final class RuleSet {
+
+        private final Rule[] rules;
+
+        RuleSet(List<String> patterns) {
+            List<Rule> compiled = new ArrayList<>();
+            for (String pattern : patterns) {
+                Rule rule = Rule.compile(pattern);
+                if (rule != null) {
+                    compiled.add(rule);
+                }
+            }
+            this.rules = compiled.toArray(Rule[]::new);
+        }
+
+        boolean matches(String path, boolean directory) {
+            for (int i = rules.length - 1; i >= 0; i--) {
+                if (rules[i].matches(path, directory)) {
+                    return !rules[i].negated;
+                }
+            }
+            return false;
+        }
+    }
+
+    private record Rule(Pattern regex, String literalSuffix, boolean negated, boolean directoryOnly) {
+
+        /**
+         * @return null for blank lines and comments
+         */
+        static Rule compile(String line) {
+            if (line == null) {
+                return null;
+            }
+            String pattern = line.strip();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                return null;
+            }
+            boolean negated = pattern.startsWith("!");
+            if (negated || pattern.startsWith("\\!") || pattern.startsWith("\\#")) {
+                pattern = pattern.substring(1);
+            }
+            boolean directoryOnly = pattern.endsWith("/");
+            if (directoryOnly) {
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            boolean anchored = pattern.contains("/");
+            if (pattern.startsWith("/")) {
+                pattern = pattern.substring(1);
+            }
+
+            String regex = (anchored ? "" : "(?:.*/)?") + toRegex(pattern);
+            return new Rule(Pattern.compile(regex), literalSuffix(pattern), negated, directoryOnly);
+        }
+
+        boolean matches(String path, boolean directory) {
+            if (directoryOnly && !directory) {
+                return false;
+            }
+            return path.endsWith(literalSuffix) && regex.matcher(path).matches();
+        }
+
+        private static String toRegex(String glob) {
+            StringBuilder sb = new StringBuilder();
+            int i = 0;
+            while (i < glob.length()) {
+                char c = glob.charAt(i);
+                if (c == '*' && glob.startsWith("**/", i)) {
+                    sb.append("(?:.*/)?");
+                    i += 3;
+                } else if (c == '*' && glob.startsWith("**", i)) {
+                    sb.append(".*");
+                    i += 2;
+                } else if (c == '*') {
+                    sb.append("[^/]*");
+                    i++;
+                } else if (c == '?') {
+                    sb.append("[^/]");
+                    i++;
+                } else if (c == '[' && glob.indexOf(']', i + 1) > i + 1) {
+                    int end = glob.indexOf(']', i + 1);
+                    String set = glob.substring(i + 1, end);
+                    sb.append('[')
+                            .append(set.startsWith("!") ? "^" + set.substring(1) : set)
+                            .append(']');
+                    i = end + 1;
+                } else if (c == '\\' && i + 1 < glob.length()) {
+                    sb.append(Pattern.quote(String.valueOf(glob.charAt(i + 1))));
+                    i += 2;
+                } else {
+                    sb.append(Pattern.quote(String.valueOf(c)));
+                    i++;
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * @return the part after the last wildcard, every matching path ends
+         *         with it (a leading-directories wildcard may match nothing,
+         *         so the '/' after it is not part of the suffix)
+         */
+        private static String literalSuffix(String glob) {
+            int start = 0;
+            for (int i = 0; i < glob.length(); i++) {
+                char c = glob.charAt(i);
+                if (glob.startsWith("**/", i)) {
+                    start = i + 3;
+                    i += 2;
+                } else if (c == '*' || c == '?' || c == ']' || c == '\\') {
+                    start = i + 1;
+                }
+            }
+            return glob.substring(start);
+        }
+    }
+}
@@ -5,12 +5,16 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Repository;
-import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.nio.file.Path;
 
-@Service
+/**
+ * Repository opened for a single analysis run.
+ * <p>
+ * Not a Spring bean: every run creates its own context and closes it when the
+ * run ends, so concurrent runs never share (or close) each other's repository.
+ */
 @Slf4j
 @RequiredArgsConstructor
 public class GitAnalysisContext implements AutoCloseable {
@@ -18,9 +22,10 @@ public class GitAnalysisContext implements AutoCloseable {
     private final GitRepositoryManager repositoryManager;
     private Git git;
 
-    public Git open(GitCoreProperties props, String workDir, String repoUrl) throws Exception {
+    public Git open(GitCoreProperties props, String workDir, String repoUrl, String branch, AnalysisScope scope)
+            throws Exception {
 
-        this.git = repositoryManager.openOrClone(props, workDir, repoUrl);
+        this.git = repositoryManager.openOrClone(props, workDir, repoUrl, branch, scope);
 
         Repository repository = git.getRepository();
         File workTree = repository.getWorkTree();
@@ -31,6 +36,16 @@ public class GitAnalysisContext implements AutoCloseable {
         return this.git;
     }
 
+    public Git openFromMirror(GitMirrorStore.Lease mirror, String workDir, String repoUrl, boolean bare)
+            throws Exception {
+
+        this.git = repositoryManager.openFromMirror(mirror, workDir, repoUrl, bare);
+
+        log.info(git.getRepository().getDirectory().getAbsolutePath());
+
+        return this.git;
+    }
+
     public Git git() {
         if (git == null) {
             throw new IllegalStateException("GitAnalysisContext not initialized. Call open() first.");
@@ -33,7 +33,24 @@ public class GitCheckoutService {
         fetchCommand.call();
 
         // --- CHECKOUT
+        checkout(git, branch);
 
+        // --- PULL (equivalent to: git pull --rebase)
+        PullCommand pullCommand = git.pull()
+                .setRebase(true);
+
+        if (credentialsProvider != null) {
+            pullCommand.setCredentialsProvider(credentialsProvider);
+        }
+
+        pullCommand.call();
+    }
+
+    /**
+     * Checks out the branch from already fetched remote tracking refs
+     * (creates it if missing). No network access.
+     */
+    public void checkout(Git git, String branch) throws Exception {
         try {
             // Try to checkout existing local branch
             git.checkout()
@@ -49,15 +66,5 @@ public class GitCheckoutService {
                     .setStartPoint("origin/" + branch)
                     .call();
         }
-
-        // --- PULL (equivalent to: git pull --rebase)
-        PullCommand pullCommand = git.pull()
-                .setRebase(true);
-
-        if (credentialsProvider != null) {
-            pullCommand.setCredentialsProvider(credentialsProvider);
-        }
-
-        pullCommand.call();
     }
 }
\ No newline at end of file
@@ -2,39 +2,87 @@ package com.jlabs.repo.onboarder.git;
 
 import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import com.jlabs.repo.onboarder.model.GitReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.patch.HunkHeader;
 import org.springframework.stereotype.Service;
 
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.diff.*;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.*;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
 
-import java.io.ByteArrayOutputStream;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects commit metadata and per-commit diff statistics.
+ * <p>
+ * Commits are streamed to a {@link CommitConsumer} in log order, in batches
+ * of git-core.diff.batchSize: the walk fills a batch on the calling thread,
+ * git-core.diff.threads workers diff it, each with its own ObjectReader and
+ * DiffFormatter (neither is thread-safe), then the batch is handed to the
+ * consumer and dropped. Memory is bounded by the batch, not by the history.
+ * Patch snippets are built from the same scan (see {@link PatchSnippetBuilder}).
+ * Files are line-diffed only when their {@link DiffTier} is FULL, see
+ * {@link DiffTierPolicy}.
+ * <p>
+ * Diffs of commits analysed by an earlier run are loaded from the
+ * {@link GitCommitStore}; only new commits are diffed (and then stored).
+ */
 @Service
+@Slf4j
+@RequiredArgsConstructor
 public class GitCommitCollector {
 
-    public void collect(Git git, Repository repo, GitCoreProperties props, GitReport report) throws Exception {
+    private final GitCommitStore commitStore;
+
+    /**
+     * Same as {@link #collect(Repository, ObjectId, AnalysisScope, GitCoreProperties, CommitConsumer)},
+     * keeping every commit in report.commitTable.
+     */
+    public void collect(Repository repo, ObjectId head, AnalysisScope scope, GitCoreProperties props,
+            GitReport report) throws Exception {
+        collect(repo, head, scope, props, report.getCommitTable()::add);
+        report.getCommitTable().trimToSize();
+    }
+
+    /**
+     * Streams the latest limits.maxCommits commits reachable from head that
+     * fall into the scope: the commit time window is applied as a RevFilter
+     * (the walk stops at the first commit older than "since"), the path
+     * prefixes as a TreeFilter, so only commits touching the scope are
+     * visited and their diffs only cover the scope.
+     */
+    public void collect(Repository repo, ObjectId head, AnalysisScope scope, GitCoreProperties props,
+            CommitConsumer consumer) throws Exception {
 
         int maxCommits = props.getLimits().getMaxCommits();
-        int maxChangedFiles = props.getLimits().getMaxChangedFiles();
+        int batchSize = Math.max(1, props.getDiff().getBatchSize());
 
-        try (RevWalk walk = new RevWalk(repo);
-                DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+        Batch batch = new Batch(repo, scope, props, consumer);
+        try (RevWalk walk = new RevWalk(repo)) {
 
-            diffFormatter.setRepository(repo);
-            diffFormatter.setDetectRenames(true);
-            diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+            walk.markStart(walk.parseCommit(head));
+            walk.setRevFilter(scope.revFilter());
+            if (scope.hasPaths()) {
+                walk.setTreeFilter(AndTreeFilter.create(scope.treeFilter(), TreeFilter.ANY_DIFF));
+                // diff against the real first parent, not the previous commit touching the scope
+                walk.setRewriteParents(false);
+            }
 
             int counter = 0;
 
-            for (RevCommit commit : git.log().call()) {
+            for (RevCommit commit : walk) {
                 counter++;
                 if (maxCommits > 0 && counter > maxCommits)
                     break;
@@ -60,84 +108,246 @@ public class GitCommitCollector {
                     ci.getParents().add(p.getName());
                 }
 
+                ObjectId parentTree = null;
                 if (commit.getParentCount() > 0) {
-                    RevCommit parent = walk.parseCommit(commit.getParent(0).getId());
-                    RevCommit current = walk.parseCommit(commit.getId());
-
-                    List<DiffEntry> diffs = diffFormatter.scan(parent.getTree(), current.getTree());
-
-                    int totalAdded = 0;
-                    int totalDeleted = 0;
-
-                    int take = (maxChangedFiles > 0)
-                            ? Math.min(maxChangedFiles, diffs.size())
-                            : diffs.size();
-
-                    for (int i = 0; i < diffs.size(); i++) {
-                        DiffEntry de = diffs.get(i);
-
-                        int added = 0;
-                        int deleted = 0;
-
-                        FileHeader fh = diffFormatter.toFileHeader(de);
-                        for (HunkHeader hh : fh.getHunks()) {
-                            EditList edits = hh.toEditList();
-                            for (Edit e : edits) {
-                                added += e.getEndB() - e.getBeginB();
-                                deleted += e.getEndA() - e.getBeginA();
-                            }
-                        }
-
-                        totalAdded += added;
-                        totalDeleted += deleted;
-
-                        if (i < take) {
-                            GitReport.CommitInfo.FileChange fc = new GitReport.CommitInfo.FileChange();
-                            fc.setType(de.getChangeType().name());
-                            fc.setOldPath(de.getOldPath());
-                            fc.setNewPath(de.getNewPath());
-                            fc.setLinesAdded(added);
-                            fc.setLinesDeleted(deleted);
-
-                            ci.getChanges().add(fc);
-                        }
-                    }
+                    RevCommit parent = commit.getParent(0);
+                    walk.parseHeaders(parent);
+                    parentTree = parent.getTree().toObjectId();
+                }
+                batch.add(ci, parentTree, commit.getTree().toObjectId());
+
+                // the walk keeps every RevCommit, but not its message
+                commit.disposeBody();
+
+                if (batch.size() >= batchSize) {
+                    batch.flush();
+                }
+            }
+            batch.flush();
+        } finally {
+            batch.close();
+        }
+
+        log.info("Commit diffs: {} loaded from store, {} computed", batch.reused, batch.computed);
+        if (batch.computed > 0) {
+            commitStore.evictIfNeeded();
+        }
+        consumer.complete();
+    }
 
-                    ci.getDiffStats().setFilesChanged(diffs.size());
-                    ci.getDiffStats().setLinesAdded(totalAdded);
-                    ci.getDiffStats().setLinesDeleted(totalDeleted);
-                    ci.getDiffStats().setLinesTotal(totalAdded + totalDeleted);
+    /**
+     * Commits walked but not yet passed to the consumer. The diff executor
+     * lives as long as the batch, so threads are not recreated per flush.
+     */
+    private final class Batch implements AutoCloseable {
+
+        private final Repository repo;
+        private final AnalysisScope scope;
+        private final GitCoreProperties props;
+        private final CommitConsumer consumer;
+        private final DiffTierPolicy tiers;
+        private final int threads;
+
+        private final List<GitReport.CommitInfo> commits = new ArrayList<>();
+        private final List<DiffTask> tasks = new ArrayList<>();
+        private ExecutorService executor;
+
+        private int reused;
+        private int computed;
+
+        Batch(Repository repo, AnalysisScope scope, GitCoreProperties props, CommitConsumer consumer) {
+            this.repo = repo;
+            this.scope = scope;
+            this.props = props;
+            this.consumer = consumer;
+            this.tiers = new DiffTierPolicy(props.getDiff());
+            int configured = props.getDiff().getThreads();
+            this.threads = configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+        }
 
-                    if (props.getLimits().isIncludePatch()) {
-                        ci.setPatchSnippet(
-                                patchSnippet(repo, parent, current, props.getLimits().getMaxPatchChars()));
+        int size() {
+            return commits.size();
+        }
+
+        void add(GitReport.CommitInfo ci, ObjectId parentTree, ObjectId tree) {
+            commits.add(ci);
+            if (parentTree == null) {
+                return;
+            }
+            Optional<GitCommitStore.CommitDiff> stored = commitStore.load(ci.getCommitId(), scope);
+            if (stored.isPresent()) {
+                stored.get().applyTo(ci);
+                reused++;
+            } else {
+                tasks.add(new DiffTask(ci, parentTree, tree));
+            }
+        }
+
+        void flush() throws Exception {
+            computeDiffs();
+            computed += tasks.size();
+            for (GitReport.CommitInfo ci : commits) {
+                consumer.accept(ci);
+            }
+            commits.clear();
+            tasks.clear();
+        }
+
+        private void computeDiffs() throws Exception {
+            AtomicInteger next = new AtomicInteger();
+            int workers = Math.min(threads, tasks.size());
+
+            if (workers <= 1) {
+                diffWorker(repo, tasks, next, tiers, scope, props);
+                return;
+            }
+
+            if (executor == null) {
+                AtomicInteger threadCounter = new AtomicInteger();
+                executor = Executors.newFixedThreadPool(threads, r -> {
+                    Thread t = new Thread(r, "commit-diff-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    diffWorker(repo, tasks, next, tiers, scope, props);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
                     }
+                    throw e;
                 }
+            }
+        }
 
-                report.getCommits().add(ci);
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.shutdownNow();
             }
         }
     }
 
-    private String patchSnippet(
-            Repository repo,
-            RevCommit parent,
-            RevCommit current,
-            int maxChars) throws Exception {
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (DiffFormatter fmt = new DiffFormatter(baos)) {
-            fmt.setRepository(repo);
-            fmt.setDetectRenames(true);
-            fmt.format(parent.getTree(), current.getTree());
+    /**
+     * Takes tasks from the shared queue index until none are left, so large
+     * commits do not leave other workers idle.
+     */
+    private void diffWorker(Repository repo, List<DiffTask> tasks, AtomicInteger next, DiffTierPolicy tiers,
+            AnalysisScope scope, GitCoreProperties props) throws Exception {
+
+        try (ObjectReader reader = repo.newObjectReader();
+                DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+                PatchSnippetBuilder patchBuilder = new PatchSnippetBuilder(reader,
+                        props.getDiff().getMaxFullDiffBytes())) {
+
+            diffFormatter.setReader(reader, repo.getConfig());
+            diffFormatter.setDetectRenames(true);
+            diffFormatter.setDiffComparator(RawTextComparator.DEFAULT);
+            diffFormatter.setPathFilter(scope.treeFilter());
+            if (props.getDiff().getRenameLimit() > 0) {
+                diffFormatter.getRenameDetector().setRenameLimit(props.getDiff().getRenameLimit());
+            }
+
+            int index;
+            while ((index = next.getAndIncrement()) < tasks.size()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Diff computation interrupted");
+                }
+                DiffTask task = tasks.get(index);
+                diff(reader, diffFormatter, patchBuilder, tiers, task, props);
+                commitStore.save(task.commit().getCommitId(), scope, GitCommitStore.CommitDiff.of(task.commit()));
+            }
+        }
+    }
+
+    private void diff(ObjectReader reader, DiffFormatter diffFormatter, PatchSnippetBuilder patchBuilder,
+            DiffTierPolicy tiers, DiffTask task, GitCoreProperties props) throws Exception {
+
+        int maxChangedFiles = props.getLimits().getMaxChangedFiles();
+        boolean includePatch = props.getLimits().isIncludePatch();
+        GitReport.CommitInfo ci = task.commit();
+
+        List<DiffEntry> diffs = diffFormatter.scan(task.parentTree(), task.tree());
+        List<FileHeader> fileHeaders = includePatch ? new ArrayList<>(diffs.size()) : null;
+
+        int totalAdded = 0;
+        int totalDeleted = 0;
+
+        int take = (maxChangedFiles > 0)
+                ? Math.min(maxChangedFiles, diffs.size())
+                : diffs.size();
+
+        for (int i = 0; i < diffs.size(); i++) {
+            DiffEntry de = diffs.get(i);
+
+            int added = 0;
+            int deleted = 0;
+
+            DiffTier tier = tiers.tierFor(de, reader);
+            if (tier == DiffTier.FULL) {
+                FileHeader fh = diffFormatter.toFileHeader(de);
+                if (includePatch) {
+                    fileHeaders.add(fh);
+                }
+                for (HunkHeader hh : fh.getHunks()) {
+                    EditList edits = hh.toEditList();
+                    for (Edit e : edits) {
+                        added += e.getEndB() - e.getBeginB();
+                        deleted += e.getEndA() - e.getBeginA();
+                    }
+                }
+            } else {
+                if (includePatch) {
+                    // not line-diffed, left out of the patch
+                    fileHeaders.add(null);
+                }
+                if (tier == DiffTier.SIZE) {
+                    int[] estimate = tiers.estimate(de, reader);
+                    added = estimate[0];
+                    deleted = estimate[1];
+                }
+            }
+
+            totalAdded += added;
+            totalDeleted += deleted;
+
+            if (i < take) {
+                GitReport.CommitInfo.FileChange fc = new GitReport.CommitInfo.FileChange();
+                fc.setType(de.getChangeType().name());
+                fc.setOldPath(de.getOldPath());
+                fc.setNewPath(de.getNewPath());
+                fc.setLinesAdded(added);
+                fc.setLinesDeleted(deleted);
+                fc.setTier(tier.name());
+
+                ci.getChanges().add(fc);
+            }
         }
 
-        String patch = baos.toString(StandardCharsets.UTF_8);
-        if (maxChars <= 0)
-            return patch;
+        ci.getDiffStats().setFilesChanged(diffs.size());
+        ci.getDiffStats().setLinesAdded(totalAdded);
+        ci.getDiffStats().setLinesDeleted(totalDeleted);
+        ci.getDiffStats().setLinesTotal(totalAdded + totalDeleted);
+
+        if (includePatch) {
+            // reuses the hunks computed above, no second diff of the commit
+            ci.setPatchSnippet(patchBuilder.build(diffs, fileHeaders, props.getLimits().getMaxPatchChars()));
+        }
+    }
 
-        return patch.length() <= maxChars
-                ? patch
-                : patch.substring(0, maxChars) + "\n...[truncated]...\n";
+    /**
+     * Diff of a commit against its first parent, filled in by a diff worker.
+     */
+    private record DiffTask(GitReport.CommitInfo commit, ObjectId parentTree, ObjectId tree) {
     }
 }
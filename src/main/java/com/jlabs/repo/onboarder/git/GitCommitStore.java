@@ -0,0 +1,218 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.GitReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persistent store of per-commit diff results, keyed by commit id.
+ * <p>
+ * Commits are immutable, so once a commit has been diffed its result can be
+ * reused by every later run (and by every repository containing the commit).
+ * Results depend on the diff settings, so each combination of settings gets
+ * its own namespace directory; changing a limit never serves stale results.
+ * <p>
+ * Entries are written to a temporary file and moved into place, so concurrent
+ * runs never read a partially written entry. Read or write errors only cost a
+ * recomputation. A hit refreshes the entry's modification time, which drives
+ * eviction (see {@link #evictIfNeeded()}). Eviction walks the whole store,
+ * so it runs at most once per evictionInterval, unless the size written since
+ * the last walk pushes the store over its cap.
+ * <p>
+ * Only per-commit diffs are stored; hotspot aggregates are rebuilt from the
+ * streamed commits on every run.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GitCommitStore {
+
+    private static final String FORMAT_VERSION = "3";
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final GitCoreProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private final ReentrantLock eviction = new ReentrantLock();
+    // exact after each eviction walk, grown by every write since
+    private final AtomicLong approximateBytes = new AtomicLong();
+    private volatile long nextEviction;
+
+    public boolean isEnabled() {
+        return properties.getCommitStore().isEnabled();
+    }
+
+    public Optional<CommitDiff> load(String commitId, AnalysisScope scope) {
+        Path file = commitPath(commitId, scope);
+        Optional<CommitDiff> diff = read(file, CommitDiff.class);
+        if (diff.isPresent()) {
+            try {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                log.debug("Cannot touch commit store entry {}: {}", file, e.getMessage());
+            }
+        }
+        return diff;
+    }
+
+    public void save(String commitId, AnalysisScope scope, CommitDiff diff) {
+        write(commitPath(commitId, scope), diff);
+    }
+
+    /**
+     * Removes entries unused for maxIdle, then least recently used entries
+     * until the store fits the size cap. Called after runs that computed
+     * diffs; it does nothing until evictionInterval has passed since the last
+     * walk, or the store has grown past its cap. Concurrent runs skip it while
+     * one is running.
+     */
+    public void evictIfNeeded() {
+        GitCoreProperties.CommitStore settings = properties.getCommitStore();
+        long maxBytes = settings.getMaxSizeMb() * 1024L * 1024L;
+        boolean due = System.currentTimeMillis() >= nextEviction
+                || (maxBytes > 0 && approximateBytes.get() > maxBytes);
+        Path root = storeRoot();
+        if (!isEnabled() || !due || !Files.isDirectory(root) || !eviction.tryLock()) {
+            return;
+        }
+        try {
+            List<StoredFile> entries = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                        entries.add(new StoredFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            long idleBefore = settings.getMaxIdle() != null && !settings.getMaxIdle().isZero()
+                    ? System.currentTimeMillis() - settings.getMaxIdle().toMillis()
+                    : Long.MIN_VALUE;
+            long total = entries.stream().mapToLong(StoredFile::size).sum();
+
+            entries.sort(Comparator.comparingLong(StoredFile::lastUsed));
+            int evicted = 0;
+            for (StoredFile entry : entries) {
+                boolean idle = entry.lastUsed() < idleBefore;
+                if (!idle && (maxBytes <= 0 || total <= maxBytes)) {
+                    break;
+                }
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+                evicted++;
+            }
+            if (evicted > 0) {
+                log.info("Commit store: evicted {} entries, {} bytes left", evicted, total);
+            }
+            approximateBytes.set(total);
+            nextEviction = System.currentTimeMillis() + settings.getEvictionInterval().toMillis();
+        } catch (IOException e) {
+            log.warn("Commit store eviction failed: {}", e.getMessage());
+        } finally {
+            eviction.unlock();
+        }
+    }
+
+    private <T> Optional<T> read(Path file, Class<T> type) {
+        if (!isEnabled() || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), type));
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable commit store entry {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void write(Path file, Object value) {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(tmp.toFile(), value);
+                approximateBytes.addAndGet(Files.size(tmp));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write commit store entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path commitPath(String commitId, AnalysisScope scope) {
+        // fan out like git's loose objects, keeps directories small
+        return namespace(scope).resolve("commits").resolve(commitId.substring(0, 2))
+                .resolve(commitId.substring(2) + ENTRY_SUFFIX);
+    }
+
+    private Path storeRoot() {
+        return Path.of(properties.getWorkdir()).resolve(properties.getCommitStore().getDir());
+    }
+
+    /**
+     * Directory for the current diff settings and path scope (diffs only
+     * cover the scope). The time window needs no namespace: it only decides
+     * which commits are analysed.
+     */
+    private Path namespace(AnalysisScope scope) {
+        GitCoreProperties.Limits limits = properties.getLimits();
+        GitCoreProperties.Diff diff = properties.getDiff();
+        String settings = String.join("|",
+                FORMAT_VERSION,
+                String.valueOf(limits.getMaxChangedFiles()),
+                String.valueOf(limits.isIncludePatch()),
+                String.valueOf(limits.isIncludePatch() ? limits.getMaxPatchChars() : 0),
+                String.valueOf(diff.getRenameLimit()),
+                String.join(",", diff.getTreeOnly()),
+                String.join(",", diff.getSizeOnly()),
+                String.valueOf(diff.getMaxFullDiffBytes()),
+                String.valueOf(diff.getBytesPerLine()),
+                String.join(",", scope.paths()));
+
+        return storeRoot().resolve(GitMirrorStore.sha1(settings).substring(0, 12));
+    }
+
+    private record StoredFile(Path path, long size, long lastUsed) {
+    }
+
+    /**
+     * Diff of a commit against its first parent, as reported in
+     * {@link GitReport.CommitInfo}.
+     */
+    public record CommitDiff(
+            GitReport.CommitInfo.DiffStats diffStats,
+            List<GitReport.CommitInfo.FileChange> changes,
+            String patchSnippet) {
+
+        public static CommitDiff of(GitReport.CommitInfo commit) {
+            return new CommitDiff(commit.getDiffStats(), commit.getChanges(), commit.getPatchSnippet());
+        }
+
+        public void applyTo(GitReport.CommitInfo commit) {
+            commit.setDiffStats(diffStats);
+            commit.setChanges(changes);
+            commit.setPatchSnippet(patchSnippet);
+        }
+    }
+}
@@ -1,38 +1,104 @@
 package com.jlabs.repo.onboarder.git;
 
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.PathIndex;
 import org.springframework.stereotype.Service;
 
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
+/**
+ * Lists the files at HEAD and picks the ones whose content goes to the corpus,
+ * applying git-core.selection while walking the tree: excluded directories
+ * are never entered and file contents are never read (sizes come from the
+ * object headers). The same walk yields the blob index of an
+ * {@link ObjectDatabaseSourceTree}, so the tree is walked only once.
+ */
 @Service
 public class GitFileCollector {
 
-    public void collect(Repository repo, GitReport report, boolean withTest) throws Exception {
-        List<String> files = new ArrayList<>();
+    private final FileRules rules;
+    private final FileRules rulesWithTests;
 
-        try (TreeWalk treeWalk = new TreeWalk(repo)) {
-            treeWalk.addTree(repo.resolve("HEAD^{tree}"));
-            treeWalk.setRecursive(true);
+    public GitFileCollector(GitCoreProperties properties) {
+        this.rules = new FileRules(properties.getSelection(), false);
+        this.rulesWithTests = new FileRules(properties.getSelection(), true);
+    }
+
+    /**
+     * @return blob ids of the listed regular files indexed by path id (null
+     *         for other paths), for {@link ObjectDatabaseSourceTree}
+     */
+    public ObjectId[] collect(Repository repo, ObjectId head, AnalysisScope scope, GitReport report,
+            boolean withTest) throws Exception {
+        FileRules rules = withTest ? rulesWithTests : this.rules;
+        PathIndex paths = report.getPaths();
+        List<String> files = new ArrayList<>(); // only until the index is sorted
+        BitSet corpus = new BitSet();
+        ObjectId[] blobs = new ObjectId[64];
+
+        try (RevWalk walk = new RevWalk(repo);
+                TreeWalk treeWalk = new TreeWalk(repo);
+                ObjectReader reader = repo.newObjectReader()) {
+            treeWalk.addTree(walk.parseCommit(head).getTree());
+            treeWalk.setRecursive(false);
+            treeWalk.setFilter(scope.treeFilter());
+
+            // per depth: directory excluded from the corpus (inherited by everything below it)
+            boolean[] outOfCorpus = new boolean[8];
 
             while (treeWalk.next()) {
                 String path = treeWalk.getPathString();
-                if (!withTest) {
-                    if (!path.endsWith("Test.java")) {
-                        files.add(path);
+                int depth = treeWalk.getDepth();
+                boolean inherited = depth > 0 && outOfCorpus[depth - 1];
+
+                if (treeWalk.isSubtree()) {
+                    if (rules.excludes(path, true)) {
+                        continue;
+                    }
+                    if (depth == outOfCorpus.length) {
+                        outOfCorpus = Arrays.copyOf(outOfCorpus, depth * 2);
                     }
-                } else {
-                    files.add(path);
+                    outOfCorpus[depth] = inherited || rules.excludesFromCorpus(path, true);
+                    treeWalk.enterSubtree();
+                    continue;
+                }
+                if (rules.excludes(path, false)) {
+                    continue;
+                }
+
+                files.add(path);
+                if ((treeWalk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue; // symlinks and submodules have no readable content
+                }
+                int id = paths.id(path);
+                if (id >= blobs.length) {
+                    blobs = Arrays.copyOf(blobs, Math.max(id + 1, blobs.length * 2));
+                }
+                ObjectId blob = treeWalk.getObjectId(0);
+                blobs[id] = blob;
+                if (!inherited
+                        && !rules.excludesFromCorpus(path, false)
+                        && !rules.tooLarge(reader.getObjectSize(blob, Constants.OBJ_BLOB))) {
+                    corpus.set(id);
                 }
             }
         }
 
-        Collections.sort(files);
-        report.setAllFilesAtHead(files);
+        // the walk yields git's tree order ("a.b" before "a/"), lists are kept in String order
+        paths.setHeadFiles(files);
+        report.setCorpusFiles(paths.headFilesIn(corpus));
+        return Arrays.copyOf(blobs, paths.size());
     }
 }
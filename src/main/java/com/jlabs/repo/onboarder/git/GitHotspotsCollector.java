@@ -1,31 +1,105 @@
 package com.jlabs.repo.onboarder.git;
 
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import com.jlabs.repo.onboarder.model.GitReport;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregates per-file churn and hotspot score over the reported commits.
+ * <p>
+ * The aggregate is built while commits stream out of
+ * {@link GitCommitCollector}; only the per-file totals are kept, never the
+ * commits themselves. Churn is attributed to the file's path at the newest
+ * commit, following renames ({@link FileIdentities}); changes to files that
+ * do not exist at HEAD are skipped. Ranking is left to
+ * {@link com.jlabs.repo.onboarder.markdown.HotspotsPayloadWriter}.
+ */
 @Service
+@RequiredArgsConstructor
 public class GitHotspotsCollector {
 
+    private final GitCoreProperties properties;
+
+    /**
+     * Recomputes report.fileStats from report.commits.
+     */
     public void collect(GitReport report) {
-        report.getFileStats().clear();
+        CommitConsumer aggregator = aggregator(report);
+        report.getCommits().forEach(aggregator::accept);
+        aggregator.complete();
+    }
+
+    /**
+     * @return consumer adding every streamed commit to report.fileStats
+     */
+    public CommitConsumer aggregator(GitReport report) {
+        Map<Integer, GitReport.FileStats> stats = report.getFileStats();
+        stats.clear();
+        FileIdentities identities = new FileIdentities(report.getPaths());
+        Scorer scorer = new Scorer(properties.getHotspots());
+        return commit -> {
+            add(identities, stats, commit.getChanges(), scorer.weight(commit.getCommitterTime()));
+            identities.advance(commit.getChanges());
+        };
+    }
+
+    private void add(FileIdentities identities, Map<Integer, GitReport.FileStats> stats,
+            List<GitReport.CommitInfo.FileChange> changes, double weight) {
+        GitCoreProperties.Hotspots.Scoring scoring = properties.getHotspots().getScoring();
+        for (GitReport.CommitInfo.FileChange change : changes) {
+
+            int file = identities.resolve(change);
+            if (file == FileIdentities.DEAD) {
+                continue;
+            }
 
-        for (GitReport.CommitInfo commit : report.getCommits()) {
-            for (GitReport.CommitInfo.FileChange change : commit.getChanges()) {
+            GitReport.FileStats fileStats = stats.computeIfAbsent(file, p -> new GitReport.FileStats());
 
-                String path = change.getNewPath() != null
-                        ? change.getNewPath()
-                        : change.getOldPath();
+            int churn = change.getLinesAdded() + change.getLinesDeleted();
+            fileStats.setCommits(fileStats.getCommits() + 1);
+            fileStats.setLinesAdded(fileStats.getLinesAdded() + change.getLinesAdded());
+            fileStats.setLinesDeleted(fileStats.getLinesDeleted() + change.getLinesDeleted());
+            fileStats.setScore(fileStats.getScore()
+                    + (scoring == GitCoreProperties.Hotspots.Scoring.FREQUENCY ? weight : churn * weight));
+            if (change.getTier() != null && !DiffTier.FULL.name().equals(change.getTier())) {
+                fileStats.setEstimatedCommits(fileStats.getEstimatedCommits() + 1);
+            }
+        }
+    }
 
-                if (path == null || path.isBlank()) {
-                    continue;
-                }
+    /**
+     * Per-commit weight. Commits stream newest first, so the first commit
+     * time seen is the reference for the decay and every score is final as
+     * soon as it is added.
+     */
+    private static final class Scorer {
 
-                GitReport.FileStats stats = report.getFileStats().computeIfAbsent(path, p -> new GitReport.FileStats());
+        private final boolean decayed;
+        private final double halfLifeSeconds;
+        private long reference = Long.MIN_VALUE;
 
-                stats.setCommits(stats.getCommits() + 1);
-                stats.setLinesAdded(stats.getLinesAdded() + change.getLinesAdded());
-                stats.setLinesDeleted(stats.getLinesDeleted() + change.getLinesDeleted());
+        Scorer(GitCoreProperties.Hotspots hotspots) {
+            this.decayed = hotspots.getScoring() == GitCoreProperties.Hotspots.Scoring.DECAYED_CHURN
+                    && hotspots.getHalfLife() != null && !hotspots.getHalfLife().isZero();
+            this.halfLifeSeconds = decayed ? hotspots.getHalfLife().getSeconds() : 0;
+        }
+
+        double weight(Instant commitTime) {
+            if (!decayed || commitTime == null) {
+                return 1;
+            }
+            long time = commitTime.getEpochSecond();
+            if (reference == Long.MIN_VALUE) {
+                reference = time;
             }
+            // clock skew can put a parent after its child, never weigh above 1
+            long age = Math.max(0, reference - time);
+            return Math.pow(0.5, age / halfLifeSeconds);
         }
     }
 }
@@ -22,6 +22,7 @@ public class GitMetaCollector {
             String repoUrl,
             String branch,
             String workDir,
+            ObjectId head,
             GitReport report) throws Exception {
 
         // ===== BASIC REPO INFO =====
@@ -31,7 +32,6 @@ public class GitMetaCollector {
         report.getRepo().setWorkdir(workDir);
 
         // ===== HEAD INFO =====
-        ObjectId head = repo.resolve(Constants.HEAD);
         if (head != null) {
             if (head != null) {
                 report.getRepo().setHeadCommit(head.getName());
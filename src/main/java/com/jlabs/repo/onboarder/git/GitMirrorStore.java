@@ -0,0 +1,411 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Persistent store of bare mirrors, one per normalized repository URL.
+ * <p>
+ * The first request for a URL clones the mirror once, later requests only run
+ * an incremental fetch. Runs either read the bare mirror directly or derive a
+ * working view from it (see {@link GitRepositoryManager#openFromMirror}), so
+ * the network is touched only here.
+ * <p>
+ * Concurrency: fetches into one mirror are serialized by a per-mirror mutex.
+ * Fetch adds objects, but it also moves refs and rewrites the shallow
+ * boundary, so runs never read the live mirror: the lease carries the refs
+ * and shallow commits as they were right after this run's fetch, and the run
+ * reads through a repository derived from that snapshot. Every run holds the
+ * read side of a read/write lock (via {@link Lease}) until it is done;
+ * eviction needs the write side, so it never removes a mirror that is in use.
+ * <p>
+ * The size of every mirror is kept in memory and measured again only after
+ * its own fetch, so eviction does not walk the whole store on every run.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class GitMirrorStore {
+
+    static final RefSpec HEADS = new RefSpec("+refs/heads/*:refs/heads/*");
+    static final RefSpec TAGS = new RefSpec("+refs/tags/*:refs/tags/*");
+
+    private final GitCoreProperties properties;
+
+    // entries live as long as their mirror, eviction removes them
+    final Map<String, MirrorLocks> locks = new ConcurrentHashMap<>();
+
+    // bytes on disk per mirror key, measured after each fetch; mirrors left
+    // by an earlier process are measured once, by the first eviction
+    final Map<String, Long> sizes = new ConcurrentHashMap<>();
+
+    /**
+     * Clones or incrementally fetches the mirror for the given URL and returns a
+     * lease that keeps it from being evicted until closed.
+     * <p>
+     * With the SHALLOW clone strategy only the requested branch is fetched, to
+     * the depth given by {@link GitRepositoryManager#shallowDepth} for the
+     * run's scope.
+     */
+    public Lease acquire(String repoUrl, String branch, AnalysisScope scope, CredentialsProvider credentials)
+            throws Exception {
+        String key = keyFor(repoUrl);
+        Path mirrorDir = mirrorsRoot().resolve(key + ".git");
+        MirrorLocks mirrorLocks = pin(key);
+        ReentrantReadWriteLock usage = mirrorLocks.usage();
+
+        Snapshot snapshot;
+        mirrorLocks.fetch().lock();
+        try {
+            sync(mirrorDir, repoUrl, branch, scope, credentials);
+            snapshot = snapshot(mirrorDir);
+            sizes.put(key, sizeOf(mirrorDir));
+            Files.setLastModifiedTime(mirrorDir, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (Exception e) {
+            usage.readLock().unlock();
+            throw e;
+        } finally {
+            mirrorLocks.fetch().unlock();
+        }
+
+        try {
+            evictIfNeeded(key);
+        } catch (Exception e) {
+            log.warn("Mirror eviction failed: {}", e.getMessage());
+        }
+
+        return new Lease(mirrorDir, snapshot, usage);
+    }
+
+    /**
+     * Takes the read side of the mirror's usage lock, so it cannot be evicted
+     * between fetch and use. Retries when eviction dropped the locks this
+     * thread was waiting on.
+     */
+    private MirrorLocks pin(String key) {
+        while (true) {
+            MirrorLocks mirrorLocks = locks.computeIfAbsent(key, k -> new MirrorLocks());
+            mirrorLocks.usage().readLock().lock();
+            if (locks.get(key) == mirrorLocks) {
+                return mirrorLocks;
+            }
+            mirrorLocks.usage().readLock().unlock();
+        }
+    }
+
+    private void sync(Path mirrorDir, String repoUrl, String branch, AnalysisScope scope,
+            CredentialsProvider credentials) throws Exception {
+        int depth = GitRepositoryManager.shallowDepth(properties, scope);
+
+        if (Files.exists(mirrorDir.resolve("HEAD"))) {
+            log.info("Fetching into existing mirror {}", mirrorDir);
+            try (Git mirror = Git.open(mirrorDir.toFile())) {
+                FetchCommand fetch = mirror.fetch().setRemoveDeletedRefs(true);
+                if (depth > 0) {
+                    String ref = Constants.R_HEADS + branch;
+                    fetch.setRefSpecs(new RefSpec("+" + ref + ":" + ref))
+                            .setDepth(depth)
+                            .setTagOpt(TagOpt.NO_TAGS);
+                } else {
+                    fetch.setRefSpecs(HEADS, TAGS);
+                    if (Files.exists(mirrorDir.resolve("shallow"))) {
+                        // mirror was created shallow, full history requested now
+                        fetch.setUnshallow(true);
+                    }
+                }
+                if (credentials != null) fetch.setCredentialsProvider(credentials);
+                fetch.call();
+            }
+            return;
+        }
+
+        log.info("Creating mirror {} for {}", mirrorDir, repoUrl);
+        Files.createDirectories(mirrorDir.getParent());
+        var cmd = Git.cloneRepository()
+                .setURI(repoUrl)
+                .setDirectory(mirrorDir.toFile())
+                .setBare(true);
+        if (depth > 0) {
+            cmd.setBranchesToClone(List.of(Constants.R_HEADS + branch))
+                    .setBranch(branch)
+                    .setDepth(depth)
+                    .setNoTags();
+        } else {
+            cmd.setCloneAllBranches(true);
+        }
+        if (credentials != null) cmd.setCredentialsProvider(credentials);
+
+        try (Git ignored = cmd.call()) {
+            // clone only
+        } catch (Exception e) {
+            deleteRecursively(mirrorDir);
+            throw e;
+        }
+    }
+
+    /**
+     * Branches, tags and shallow commits of the mirror; taken under the fetch
+     * mutex, so it is consistent with a single fetch.
+     */
+    private static Snapshot snapshot(Path mirrorDir) throws IOException {
+        Map<String, ObjectId> refs = new LinkedHashMap<>();
+        try (Repository mirror = new FileRepositoryBuilder().setGitDir(mirrorDir.toFile()).build()) {
+            for (Ref ref : mirror.getRefDatabase().getRefsByPrefix(Constants.R_HEADS, Constants.R_TAGS)) {
+                if (ref.getObjectId() != null) {
+                    refs.put(ref.getName(), ref.getObjectId());
+                }
+            }
+        }
+        Path shallow = mirrorDir.resolve("shallow");
+        return new Snapshot(refs, Files.exists(shallow) ? Files.readAllBytes(shallow) : null);
+    }
+
+    /**
+     * Removes least recently used mirrors until the store fits the configured
+     * size cap. Mirrors currently leased (or being fetched) are skipped. Sizes
+     * come from {@link #sizes}, so only the mirror directories are listed.
+     */
+    void evictIfNeeded(String currentKey) throws IOException {
+        long maxBytes = properties.getMirror().getMaxSizeMb() * 1024L * 1024L;
+        Path root = mirrorsRoot();
+        if (maxBytes <= 0 || !Files.isDirectory(root)) {
+            return;
+        }
+
+        List<Path> mirrors;
+        try (Stream<Path> s = Files.list(root)) {
+            mirrors = new ArrayList<>(s.filter(Files::isDirectory).toList());
+        }
+
+        long total = 0;
+        for (Path m : mirrors) {
+            total += size(keyOf(m), m);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        mirrors.sort(Comparator.comparing(GitMirrorStore::lastUsed));
+
+        for (Path m : mirrors) {
+            if (total <= maxBytes) {
+                break;
+            }
+            String key = keyOf(m);
+            if (key.equals(currentKey)) {
+                continue;
+            }
+
+            MirrorLocks mirrorLocks = locks.computeIfAbsent(key, k -> new MirrorLocks());
+            ReentrantReadWriteLock lock = mirrorLocks.usage();
+            if (!lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                long size = size(key, m);
+                log.info("Evicting mirror {} ({} bytes)", m, size);
+                deleteRecursively(m);
+                total -= size;
+                sizes.remove(key);
+                // still under the write lock: runs waiting on these locks retry in pin()
+                locks.remove(key, mirrorLocks);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    Path mirrorsRoot() {
+        return Path.of(properties.getWorkdir()).resolve(properties.getMirror().getDir());
+    }
+
+    /**
+     * Normalizes a repository URL (scheme/host case, credentials, trailing
+     * slash and ".git") into a filesystem-safe key. A short hash of the
+     * normalized URL keeps distinct URLs from colliding after sanitization.
+     */
+    static String keyFor(String repoUrl) {
+        String normalized = normalizeUrl(repoUrl);
+        String readable = normalized
+                .replaceAll("^[a-z]+://", "")
+                .replaceAll("[^a-zA-Z0-9]+", "-")
+                .replaceAll("^-+|-+$", "")
+                .toLowerCase();
+        if (readable.length() > 80) {
+            readable = readable.substring(readable.length() - 80);
+        }
+        return readable + "-" + sha1(normalized).substring(0, 10);
+    }
+
+    static String normalizeUrl(String repoUrl) {
+        String url = repoUrl.trim();
+        try {
+            URI uri = URI.create(url);
+            if (uri.getScheme() != null && uri.getHost() != null) {
+                url = uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase()
+                        + (uri.getPort() > 0 ? ":" + uri.getPort() : "")
+                        + (uri.getRawPath() != null ? uri.getRawPath() : "");
+            }
+        } catch (IllegalArgumentException e) {
+            // scp-like syntax (git@host:owner/repo) - keep as is
+        }
+        url = url.replaceAll("/+$", "");
+        url = url.replaceAll("\\.git$", "");
+        return url;
+    }
+
+    static String sha1(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long size(String key, Path mirrorDir) throws IOException {
+        Long size = sizes.get(key);
+        if (size == null) {
+            size = sizeOf(mirrorDir);
+            sizes.putIfAbsent(key, size);
+        }
+        return size;
+    }
+
+    private static String keyOf(Path mirrorDir) {
+        return mirrorDir.getFileName().toString().replaceAll("\\.git$", "");
+    }
+
+    private static FileTime lastUsed(Path p) {
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Bytes of the regular files below dir. Files that vanish during the walk
+     * (lock and temporary files of a concurrent fetch or gc) count as 0.
+     */
+    private static long sizeOf(Path dir) throws IOException {
+        long[] total = { 0 };
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    total[0] += attrs.size();
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return total[0];
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path d, IOException exc) throws IOException {
+                Files.delete(d);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    record MirrorLocks(ReentrantLock fetch, ReentrantReadWriteLock usage) {
+        MirrorLocks() {
+            this(new ReentrantLock(), new ReentrantReadWriteLock());
+        }
+    }
+
+    private record Snapshot(Map<String, ObjectId> refs, byte[] shallow) {
+    }
+
+    /**
+     * Read lease on a mirror, with its refs and shallow commits as of this
+     * run's fetch. Must be closed on the thread that acquired it.
+     */
+    public static final class Lease implements AutoCloseable {
+
+        private final Path gitDir;
+        private final Snapshot snapshot;
+        private final ReentrantReadWriteLock lock;
+        private boolean closed;
+
+        Lease(Path gitDir, Snapshot snapshot, ReentrantReadWriteLock lock) {
+            this.gitDir = gitDir;
+            this.snapshot = snapshot;
+            this.lock = lock;
+        }
+
+        public Path gitDir() {
+            return gitDir;
+        }
+
+        /**
+         * @return branch (refs/heads/*) and tag refs of the mirror
+         */
+        public Map<String, ObjectId> refs() {
+            return snapshot.refs();
+        }
+
+        /**
+         * @return content of the mirror's shallow file, null for full history
+         */
+        public byte[] shallow() {
+            return snapshot.shallow();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
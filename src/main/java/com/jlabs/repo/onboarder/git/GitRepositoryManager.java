@@ -2,17 +2,27 @@ package com.jlabs.repo.onboarder.git;
 
 import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.*;
+import java.util.List;
 
 @Service
 public class GitRepositoryManager {
 
-    public Git openOrClone(GitCoreProperties props, String workDirPath, String repoUrl) throws Exception {
+    public Git openOrClone(GitCoreProperties props, String workDirPath, String repoUrl, String branch,
+            AnalysisScope scope) throws Exception {
         Path workDir = Path.of(workDirPath);
         Files.createDirectories(workDir);
 
@@ -27,8 +37,18 @@ public class GitRepositoryManager {
 
         var cmd = Git.cloneRepository()
                 .setURI(repoUrl)
-                .setDirectory(workDir.toFile())
-                .setCloneAllBranches(true);
+                .setDirectory(workDir.toFile());
+
+        int depth = shallowDepth(props, scope);
+        if (depth > 0) {
+            cmd.setBranchesToClone(List.of(Constants.R_HEADS + branch))
+                    .setBranch(branch)
+                    .setDepth(depth)
+                    .setNoTags();
+        } else {
+            cmd.setCloneAllBranches(true);
+        }
+        cmd.setNoCheckout(!props.isCheckout());
 
         CredentialsProvider cp = credentials(props);
         if (cp != null) cmd.setCredentialsProvider(cp);
@@ -36,6 +56,92 @@ public class GitRepositoryManager {
         return cmd.call();
     }
 
+    /**
+     * Creates a repository that borrows all objects from a local mirror
+     * through {@code objects/info/alternates}, so no objects are copied.
+     * Branches (as remote tracking refs), tags and the shallow boundary come
+     * from the lease's snapshot, not from the live mirror, so a fetch by a
+     * concurrent run cannot change what this run sees. The "origin" remote
+     * keeps pointing at the real URL so metadata reported from this
+     * repository stays unchanged.
+     *
+     * @param bare true - no working tree, the tree is read from the object
+     *             database; false - ready for checkout
+     */
+    public Git openFromMirror(GitMirrorStore.Lease mirror, String workDirPath, String repoUrl, boolean bare)
+            throws Exception {
+        Path workDir = Path.of(workDirPath);
+        Files.createDirectories(workDir);
+
+        try (Git init = Git.init().setDirectory(workDir.toFile()).setBare(bare).call()) {
+            Repository repository = init.getRepository();
+            Path alternates = repository.getDirectory().toPath().resolve("objects/info/alternates");
+            Files.createDirectories(alternates.getParent());
+            Files.writeString(alternates, mirror.gitDir().resolve("objects").toAbsolutePath() + "\n");
+
+            StoredConfig config = repository.getConfig();
+            config.setString("remote", "origin", "url", repoUrl);
+            config.setString("remote", "origin", "fetch", "+refs/heads/*:refs/remotes/origin/*");
+            config.save();
+
+            // the alternate object store does not carry the shallow boundary,
+            // without it history walks would run into missing parents
+            if (mirror.shallow() != null) {
+                Files.write(repository.getDirectory().toPath().resolve("shallow"), mirror.shallow());
+            }
+
+            BatchRefUpdate refs = repository.getRefDatabase().newBatchUpdate().setAllowNonFastForwards(true);
+            mirror.refs().forEach((name, id) -> refs.addCommand(new ReceiveCommand(ObjectId.zeroId(), id,
+                    name.startsWith(Constants.R_HEADS)
+                            ? Constants.R_REMOTES + "origin/" + name.substring(Constants.R_HEADS.length())
+                            : name)));
+            try (RevWalk walk = new RevWalk(repository)) {
+                refs.execute(walk, NullProgressMonitor.INSTANCE);
+            }
+            for (ReceiveCommand command : refs.getCommands()) {
+                if (command.getResult() != ReceiveCommand.Result.OK) {
+                    throw new IllegalStateException("Cannot create " + command.getRefName() + ": "
+                            + command.getResult());
+                }
+            }
+        }
+
+        return bare ? new Git(new FileRepositoryBuilder().setGitDir(workDir.toFile()).build())
+                : Git.open(workDir.toFile());
+    }
+
+    /**
+     * Resolves the commit to analyse: the local branch if present, otherwise
+     * its remote tracking ref (a clone without checkout has no local branch).
+     */
+    public ObjectId resolveBranch(Repository repo, String branch) throws Exception {
+        for (String ref : List.of(Constants.R_HEADS + branch, Constants.R_REMOTES + "origin/" + branch)) {
+            ObjectId id = repo.resolve(ref + "^{commit}");
+            if (id != null) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("Branch not found: " + branch);
+    }
+
+    /**
+     * Clone depth for the SHALLOW strategy: the commit collector reports at most
+     * maxCommits commits and diffs each against its first parent, so
+     * maxCommits + 1 generations are enough. Returns 0 (full history) for the
+     * FULL strategy, when commits are not limited, or when the scope has paths
+     * or a time window: the maxCommits commits in scope can then be anywhere
+     * in the history, and a commit at a shallow boundary would be diffed as if
+     * it had no parent.
+     */
+    public static int shallowDepth(GitCoreProperties props, AnalysisScope scope) {
+        int maxCommits = props.getLimits().getMaxCommits();
+        if (props.getClone().getStrategy() != GitCoreProperties.Clone.Strategy.SHALLOW || maxCommits <= 0
+                || scope.hasPaths() || scope.hasTimeWindow()) {
+            return 0;
+        }
+        return maxCommits + 1;
+    }
+
     public CredentialsProvider credentials(GitCoreProperties props) {
         String token = props.getAuth().getToken();
         if (token != null && !token.isBlank()) {
@@ -0,0 +1,66 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.model.PathIndex;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link SourceTree} that reads blobs of a single tree straight from the object
+ * database, without a checkout. Works on bare repositories, so several
+ * analyses can share one mirror.
+ * <p>
+ * The blob index (blob ids by {@link PathIndex} id) comes from
+ * {@link GitFileCollector}'s walk, so only files selected by
+ * git-core.selection are readable; paths are looked up in the index without
+ * interning them. Contents
+ * are loaded on demand. Every call opens its own {@link ObjectReader}, so
+ * instances are safe to use from several threads.
+ */
+public class ObjectDatabaseSourceTree implements SourceTree {
+
+    private final Repository repository;
+    private final PathIndex paths;
+    private final ObjectId[] blobs;
+
+    public ObjectDatabaseSourceTree(Repository repository, PathIndex paths, ObjectId[] blobs) {
+        this.repository = repository;
+        this.paths = paths;
+        this.blobs = blobs;
+    }
+
+    @Override
+    public boolean isFile(String path) {
+        return blob(path) != null;
+    }
+
+    @Override
+    public long size(String path) throws IOException {
+        ObjectId id = blob(path);
+        if (id == null) {
+            return -1;
+        }
+        try (ObjectReader reader = repository.newObjectReader()) {
+            return reader.getObjectSize(id, Constants.OBJ_BLOB);
+        }
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        ObjectId id = blob(path);
+        if (id == null) {
+            throw new FileNotFoundException(path);
+        }
+        return repository.open(id, Constants.OBJ_BLOB).openStream();
+    }
+
+    private ObjectId blob(String path) {
+        int id = paths.find(path);
+        return id >= 0 && id < blobs.length ? blobs[id] : null;
+    }
+}
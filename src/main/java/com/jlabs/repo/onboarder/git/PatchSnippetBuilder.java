@@ -0,0 +1,288 @@
+package com.jlabs.repo.onboarder.git;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.patch.FileHeader;
+import org.eclipse.jgit.patch.HunkHeader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Builds a commit's patch snippet from the file headers and hunks already
+ * computed for the diff stats, within a character budget.
+ * <p>
+ * Hunks are picked by how informative they are: first the largest hunk of
+ * every file (so the snippet covers as many files as possible), then the
+ * remaining hunks, largest first. Each hunk is formatted into a bounded
+ * buffer that aborts formatting as soon as the remaining budget is exceeded,
+ * so a huge hunk never gets rendered in full. Selected hunks are written in
+ * their original file and line order.
+ * <p>
+ * Blobs are loaded again for the hunks that get rendered, at most up to the
+ * FULL diff tier size limit; a file with a larger side is left out.
+ * <p>
+ * Not thread-safe; each diff worker uses its own instance and closes it.
+ */
+class PatchSnippetBuilder implements AutoCloseable {
+
+    static final String TRUNCATED = "\n...[truncated]...\n";
+
+    private static final RawText[] TOO_LARGE = new RawText[0];
+
+    private final ObjectReader reader;
+    private final int maxBlobBytes;
+    private final BoundedBuffer buffer = new BoundedBuffer();
+    private final DiffFormatter hunkFormatter = new DiffFormatter(buffer);
+
+    /**
+     * @param maxBlobBytes largest blob loaded for a hunk (the FULL diff tier
+     *                     limit), 0 or less = no limit
+     */
+    PatchSnippetBuilder(ObjectReader reader, long maxBlobBytes) {
+        this.reader = reader;
+        this.maxBlobBytes = maxBlobBytes > 0 && maxBlobBytes < Integer.MAX_VALUE
+                ? (int) maxBlobBytes
+                : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param diffs    diff entries of the commit
+     * @param headers  file headers of the entries, same order; null for
+     *                 entries that were not line-diffed (left out)
+     * @param maxChars budget, 0 or less = no limit
+     */
+    String build(List<DiffEntry> diffs, List<FileHeader> headers, int maxChars) throws IOException {
+        long budget = maxChars > 0 ? maxChars : Long.MAX_VALUE;
+
+        List<Candidate> firstRound = new ArrayList<>();
+        List<Candidate> secondRound = new ArrayList<>();
+
+        for (int file = 0; file < headers.size(); file++) {
+            FileHeader fh = headers.get(file);
+            if (fh == null) {
+                continue;
+            }
+            List<? extends HunkHeader> hunks = fh.getPatchType() == FileHeader.PatchType.UNIFIED
+                    ? fh.getHunks()
+                    : List.of();
+
+            if (hunks.isEmpty()) {
+                // binary, pure rename or mode change - the header alone says it all
+                firstRound.add(new Candidate(file, -1, null, 0));
+                continue;
+            }
+
+            List<Candidate> fileCandidates = new ArrayList<>();
+            for (int h = 0; h < hunks.size(); h++) {
+                EditList edits = hunks.get(h).toEditList();
+                fileCandidates.add(new Candidate(file, h, edits, changedLines(edits)));
+            }
+            fileCandidates.sort(Candidate.MOST_INFORMATIVE);
+            firstRound.add(fileCandidates.get(0));
+            secondRound.addAll(fileCandidates.subList(1, fileCandidates.size()));
+        }
+
+        firstRound.sort(Candidate.MOST_INFORMATIVE);
+        secondRound.sort(Candidate.MOST_INFORMATIVE);
+
+        String[] fileHeaders = new String[headers.size()];
+        Map<Integer, TreeMap<Integer, String>> selected = new HashMap<>();
+        Map<Integer, RawText[]> texts = new HashMap<>();
+        long used = 0;
+        boolean omitted = false;
+
+        for (List<Candidate> round : List.of(firstRound, secondRound)) {
+            for (Candidate c : round) {
+                long remaining = budget - used;
+
+                String header = null;
+                if (fileHeaders[c.file()] == null) {
+                    header = header(headers.get(c.file()));
+                    if (header.length() > remaining) {
+                        omitted = true;
+                        continue;
+                    }
+                    remaining -= header.length();
+                }
+
+                String hunk = "";
+                if (c.edits() != null) {
+                    RawText[] ab = texts.get(c.file());
+                    if (ab == null) {
+                        ab = texts(diffs.get(c.file()));
+                        texts.put(c.file(), ab);
+                    }
+                    if (ab == TOO_LARGE) {
+                        omitted = true;
+                        continue;
+                    }
+                    hunk = format(c.edits(), ab[0], ab[1], remaining);
+                    if (hunk == null) {
+                        omitted = true;
+                        continue;
+                    }
+                }
+
+                if (header != null) {
+                    fileHeaders[c.file()] = header;
+                    used += header.length();
+                }
+                selected.computeIfAbsent(c.file(), f -> new TreeMap<>()).put(c.hunk(), hunk);
+                used += hunk.length();
+            }
+        }
+
+        StringBuilder patch = new StringBuilder();
+        for (int file = 0; file < headers.size(); file++) {
+            if (fileHeaders[file] == null) {
+                continue;
+            }
+            patch.append(fileHeaders[file]);
+            selected.get(file).values().forEach(patch::append);
+        }
+        if (omitted) {
+            patch.append(TRUNCATED);
+        }
+        return patch.toString();
+    }
+
+    /**
+     * Formats one hunk, or returns null when it does not fit the budget.
+     */
+    private String format(EditList edits, RawText a, RawText b, long maxChars) throws IOException {
+        // a UTF-8 char takes at most 4 bytes, the exact check is done on the decoded text
+        buffer.reset(maxChars > Integer.MAX_VALUE / 4 ? Integer.MAX_VALUE : (int) maxChars * 4);
+        try {
+            hunkFormatter.format(edits, a, b);
+            hunkFormatter.flush();
+        } catch (BudgetExceededException e) {
+            return null;
+        }
+        String hunk = buffer.decode();
+        return hunk.length() <= maxChars ? hunk : null;
+    }
+
+    @Override
+    public void close() {
+        hunkFormatter.close();
+    }
+
+    private static String header(FileHeader fh) {
+        return new String(fh.getBuffer(), fh.getStartOffset(), fh.getEndOffset() - fh.getStartOffset(),
+                StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return both sides of the entry, or {@link #TOO_LARGE} when a side is
+     *         larger than {@link #maxBlobBytes}
+     */
+    private RawText[] texts(DiffEntry entry) throws IOException {
+        RawText a = text(entry, DiffEntry.Side.OLD);
+        RawText b = a != null ? text(entry, DiffEntry.Side.NEW) : null;
+        return a != null && b != null ? new RawText[] { a, b } : TOO_LARGE;
+    }
+
+    /**
+     * Loads one side of the entry the way DiffFormatter does: missing sides
+     * are empty and submodules are shown as their commit id.
+     *
+     * @return the text, or null when the blob is larger than
+     *         {@link #maxBlobBytes}
+     */
+    private RawText text(DiffEntry entry, DiffEntry.Side side) throws IOException {
+        FileMode mode = entry.getMode(side);
+        AbbreviatedObjectId id = entry.getId(side);
+
+        if (mode == FileMode.MISSING || id == null || !id.isComplete()) {
+            return RawText.EMPTY_TEXT;
+        }
+        if (mode.getObjectType() != Constants.OBJ_BLOB) {
+            return new RawText(("Subproject commit " + id.name() + "\n").getBytes(StandardCharsets.US_ASCII));
+        }
+        ObjectLoader loader = reader.open(id.toObjectId(), Constants.OBJ_BLOB);
+        if (loader.getSize() > maxBlobBytes) {
+            return null;
+        }
+        return new RawText(loader.getCachedBytes(maxBlobBytes));
+    }
+
+    private static int changedLines(EditList edits) {
+        int changed = 0;
+        for (Edit e : edits) {
+            changed += e.getLengthA() + e.getLengthB();
+        }
+        return changed;
+    }
+
+    private record Candidate(int file, int hunk, EditList edits, int score) {
+
+        static final Comparator<Candidate> MOST_INFORMATIVE = Comparator
+                .comparingInt(Candidate::score).reversed()
+                .thenComparingInt(Candidate::file)
+                .thenComparingInt(Candidate::hunk);
+    }
+
+    private static final class BudgetExceededException extends IOException {
+        BudgetExceededException() {
+            super("patch budget exceeded");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            // control flow only
+            return this;
+        }
+    }
+
+    /**
+     * Output sink that refuses to grow past its limit.
+     */
+    private static final class BoundedBuffer extends OutputStream {
+
+        private byte[] bytes = new byte[256];
+        private int count;
+        private int limit;
+
+        void reset(int limit) {
+            this.limit = limit;
+            this.count = 0;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            bytes[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensure(len);
+            System.arraycopy(b, off, bytes, count, len);
+            count += len;
+        }
+
+        private void ensure(int len) throws IOException {
+            if (len > limit - count) {
+                throw new BudgetExceededException();
+            }
+            if (count + len > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(count + len, Math.min(limit, bytes.length * 2)));
+            }
+        }
+
+        String decode() {
+            return new String(bytes, 0, count, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.jlabs.repo.onboarder.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Read access to the file contents of the analysed revision.
+ * <p>
+ * Paths are repository-relative and use '/' as separator, the same form as
+ * {@code GitReport.allFilesAtHead}.
+ */
+public interface SourceTree {
+
+    /**
+     * @return true when the path is a regular file of the analysed revision
+     */
+    boolean isFile(String path);
+
+    /**
+     * @return size of the file in bytes, or -1 when it is not a regular file
+     */
+    long size(String path) throws IOException;
+
+    InputStream open(String path) throws IOException;
+}
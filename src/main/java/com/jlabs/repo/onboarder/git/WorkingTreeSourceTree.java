@@ -0,0 +1,34 @@
+package com.jlabs.repo.onboarder.git;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * {@link SourceTree} backed by a checked out working tree.
+ */
+public class WorkingTreeSourceTree implements SourceTree {
+
+    private final Path root;
+
+    public WorkingTreeSourceTree(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public boolean isFile(String path) {
+        return Files.isRegularFile(root.resolve(path));
+    }
+
+    @Override
+    public long size(String path) throws IOException {
+        Path file = root.resolve(path);
+        return Files.isRegularFile(file) ? Files.size(file) : -1;
+    }
+
+    @Override
+    public InputStream open(String path) throws IOException {
+        return Files.newInputStream(root.resolve(path));
+    }
+}
@@ -0,0 +1,78 @@
+package com.jlabs.repo.onboarder.infrastructure.fake;
+
+import com.jlabs.repo.onboarder.config.FakeAiProperties;
+import com.jlabs.repo.onboarder.infrastructure.springai.CachedContentClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory {@link CachedContentClient}: keeps the token count of every
+ * cached content until its TTL runs out, so {@link FakeChatModel} can report
+ * cached tokens for prompts that use it.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class FakeCachedContentClient implements CachedContentClient {
+
+    private final FakeAiProperties properties;
+
+    private final Map<String, Entry> caches = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Override
+    public List<CachedContent> listAll() {
+        return caches.values().stream().map(Entry::toCachedContent).toList();
+    }
+
+    @Override
+    public void delete(String name) {
+        caches.remove(name);
+    }
+
+    @Override
+    public CachedContent create(String model, String displayName, CharSequence contents, Duration ttl) {
+        FakeChatModel.sleep(properties.getCacheCreateLatency());
+        int tokens = FakeChatModel.estimateTokens(contents.length());
+        if (tokens < properties.getMinCacheTokens()) {
+            throw new IllegalArgumentException("400 INVALID_ARGUMENT: cached content is too small, "
+                    + tokens + " tokens, minimum " + properties.getMinCacheTokens());
+        }
+
+        String name = "cachedContents/fake-" + created.incrementAndGet();
+        Entry entry = new Entry(name, displayName, model, Instant.now().plus(ttl), tokens);
+        caches.put(name, entry);
+        log.debug("Created fake cached content {} ({} tokens)", name, tokens);
+        return entry.toCachedContent();
+    }
+
+    /**
+     * @return tokens of a live cached content, 0 when unknown or expired
+     */
+    public int tokens(String name) {
+        Entry entry = name != null ? caches.get(name) : null;
+        return entry != null && entry.expiresAt().isAfter(Instant.now()) ? entry.tokens() : 0;
+    }
+
+    /**
+     * @return cached contents created so far
+     */
+    public int getCreated() {
+        return created.get();
+    }
+
+    private record Entry(String name, String displayName, String model, Instant expiresAt, int tokens) {
+
+        CachedContent toCachedContent() {
+            Duration remaining = Duration.between(Instant.now(), expiresAt);
+            boolean expired = remaining.isNegative() || remaining.isZero();
+            return new CachedContent(name, displayName, model, expired, expired ? Duration.ZERO : remaining, tokens);
+        }
+    }
+}
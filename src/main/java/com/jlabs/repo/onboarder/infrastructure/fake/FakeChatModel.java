@@ -0,0 +1,259 @@
+package com.jlabs.repo.onboarder.infrastructure.fake;
+
+import com.jlabs.repo.onboarder.config.FakeAiProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic {@link ChatModel} stand-in (profile "fake-ai").
+ * <p>
+ * The response is a Markdown document in a code fence, generated from a hash
+ * of the prompt: the same prompt always gets the same document, with a
+ * length between fake-ai.min-response-chars and max-response-chars. Each call
+ * waits for a sampled time-to-first-token and then for the output at
+ * fake-ai.tokens-per-second; streamed responses arrive in chunks at that
+ * pace. Latencies and injected 429/503 errors come from a generator seeded
+ * with fake-ai.seed.
+ * <p>
+ * Usage metadata is synthetic, with the same estimate as the client (1 token
+ * per 3.5 characters); prompts using a cached content are charged its
+ * tokens too. Totals are kept for load-test reports.
+ */
+@Slf4j
+public class FakeChatModel implements ChatModel {
+
+    private static final String[] WORDS = {
+            "repository", "module", "service", "controller", "commit", "hotspot", "refactoring", "domain",
+            "aggregate", "boundary", "dependency", "configuration", "test", "interface", "event", "cache",
+            "request", "response", "layer", "package", "entity", "value", "context", "pipeline" };
+
+    private final FakeAiProperties properties;
+    private final String model;
+    private final FakeCachedContentClient cachedContentClient;
+
+    // guarded by itself
+    private final Random random;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+
+    public FakeChatModel(FakeAiProperties properties, String model, FakeCachedContentClient cachedContentClient) {
+        this.properties = properties;
+        this.model = model;
+        this.cachedContentClient = cachedContentClient;
+        this.random = new Random(properties.getSeed());
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        Outcome outcome = begin();
+        sleep(outcome.latency());
+        if (outcome.error() != null) {
+            throw outcome.error();
+        }
+
+        String text = respond(prompt);
+        sleep(outputTime(text.length()));
+        return response(text, usage(prompt, text));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Outcome outcome = begin();
+            sleep(outcome.latency());
+            if (outcome.error() != null) {
+                return Flux.error(outcome.error());
+            }
+
+            String text = respond(prompt);
+            Usage usage = usage(prompt, text);
+            List<String> chunks = chunks(text, Math.max(1, properties.getStreamChunkChars()));
+            // usage comes with the last chunk, as with Gemini
+            return Flux.fromIterable(IntStream.range(0, chunks.size()).boxed().toList())
+                    .map(i -> {
+                        String chunk = chunks.get(i);
+                        sleep(outputTime(chunk.length()));
+                        return response(chunk, i == chunks.size() - 1 ? usage : null);
+                    });
+        });
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return calls that failed with an injected error
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    public long getPromptTokens() {
+        return promptTokens.get();
+    }
+
+    public long getCompletionTokens() {
+        return completionTokens.get();
+    }
+
+    private Outcome begin() {
+        calls.incrementAndGet();
+        double roll;
+        Duration latency;
+        synchronized (random) {
+            roll = random.nextDouble();
+            latency = sampleLatency();
+        }
+
+        RuntimeException error = null;
+        if (roll < properties.getRateLimitProbability()) {
+            error = new FakeApiException(429, "RESOURCE_EXHAUSTED: fake quota exceeded, rate limit reached");
+        } else if (roll < properties.getRateLimitProbability() + properties.getServerErrorProbability()) {
+            error = new FakeApiException(503, "UNAVAILABLE: fake server overloaded");
+        }
+        if (error != null) {
+            failures.incrementAndGet();
+            log.debug("Injecting error: {}", error.getMessage());
+        }
+        return new Outcome(latency, error);
+    }
+
+    private Duration sampleLatency() {
+        FakeAiProperties.Latency latency = properties.getLatency();
+        double median = latency.getMedian().toNanos();
+        double nanos = switch (latency.getDistribution()) {
+            case FIXED -> median;
+            case UNIFORM -> median * (1 + latency.getSpread() * (2 * random.nextDouble() - 1));
+            case LOG_NORMAL -> median * Math.exp(latency.getSpread() * random.nextGaussian());
+        };
+        return Duration.ofNanos((long) Math.max(0, Math.min(nanos, latency.getMax().toNanos())));
+    }
+
+    private Duration outputTime(int chars) {
+        int tokensPerSecond = properties.getTokensPerSecond();
+        if (tokensPerSecond <= 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(estimateTokens(chars) * 1_000_000_000L / tokensPerSecond);
+    }
+
+    /**
+     * @return the document for the prompt, always the same for the same
+     *         prompt
+     */
+    private String respond(Prompt prompt) {
+        String contents = prompt.getContents();
+        Random words = new Random(contents.hashCode() * 31L + contents.length());
+
+        int min = Math.max(0, properties.getMinResponseChars());
+        int length = min + words.nextInt(Math.max(1, properties.getMaxResponseChars() - min + 1));
+
+        StringBuilder document = new StringBuilder(length + 64)
+                .append("```markdown\n# Document ")
+                .append(Integer.toHexString(contents.hashCode()))
+                .append('\n');
+        int section = 0;
+        while (document.length() < length) {
+            document.append("\n## Section ").append(++section).append("\n\n");
+            int sentences = 3 + words.nextInt(5);
+            for (int s = 0; s < sentences && document.length() < length; s++) {
+                int count = 6 + words.nextInt(10);
+                for (int w = 0; w < count; w++) {
+                    String word = WORDS[words.nextInt(WORDS.length)];
+                    document.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word)
+                            .append(w == count - 1 ? ". " : " ");
+                }
+            }
+            document.append('\n');
+        }
+        return document.append("```").toString();
+    }
+
+    private Usage usage(Prompt prompt, String text) {
+        int cached = prompt.getOptions() instanceof GoogleGenAiChatOptions options
+                && options.getCachedContentName() != null
+                        ? cachedContentClient.tokens(options.getCachedContentName())
+                        : 0;
+        int input = estimateTokens(prompt.getContents().length()) + cached;
+        int output = estimateTokens(text.length());
+        promptTokens.addAndGet(input);
+        completionTokens.addAndGet(output);
+        return new DefaultUsage(input, output);
+    }
+
+    private ChatResponse response(String text, Usage usage) {
+        List<Generation> generations = List.of(new Generation(new AssistantMessage(text)));
+        if (usage == null) {
+            return new ChatResponse(generations);
+        }
+        return new ChatResponse(generations, ChatResponseMetadata.builder()
+                .model(model)
+                .usage(usage)
+                .build());
+    }
+
+    private static List<String> chunks(String text, int size) {
+        List<String> chunks = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) {
+            chunks.add(text.substring(i, Math.min(text.length(), i + size)));
+        }
+        return chunks;
+    }
+
+    static int estimateTokens(int chars) {
+        return (int) Math.round(chars / 3.5);
+    }
+
+    static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating model latency", e);
+        }
+    }
+
+    private record Outcome(Duration latency, RuntimeException error) {
+    }
+
+    /**
+     * Error injected in place of an API error; the message starts with the
+     * HTTP status, like the errors of the Gemini SDK.
+     */
+    public static class FakeApiException extends RuntimeException {
+
+        private final int code;
+
+        public FakeApiException(int code, String message) {
+            super(code + " " + message);
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.jlabs.repo.onboarder.infrastructure.springai;
+
+import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.service.exceptions.AiRateLimitException;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Admission control for API calls, shared by all analyses of the node
+ * (spring.ai.google.genai.rate-limit).
+ * <p>
+ * A call starts when a concurrency slot is free and the request and token
+ * buckets can pay for it; the token bucket is charged the prompt size
+ * estimate up front and corrected with the actual usage afterwards, so
+ * underestimates are paid back by later calls. Callers are served in
+ * arrival order.
+ * <p>
+ * The concurrency limit adapts AIMD-style: it is halved on every 429 (and
+ * all calls pause for the cooldown) and grows by one call once a whole
+ * limit's worth of calls succeeded. A call rejected with 429 is queued
+ * again instead of failing.
+ */
+@Component
+@Slf4j
+public class AiRateLimiter {
+
+    static final String CONCURRENCY_METRIC = "onboarder.ai.limiter.concurrency";
+    static final String WAITING_METRIC = "onboarder.ai.limiter.waiting";
+
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final AiProperties.RateLimit cfg;
+    private final Ticker ticker;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // guarded by lock
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private double limit;
+    private int inFlight;
+    private long nextTicket;
+    private long serving;
+    private long pausedUntil;
+    private long cooldownNanos;
+    // tickets done waiting (admitted or given up) the queue has not reached yet
+    private final Set<Long> abandoned = new HashSet<>();
+
+    @Autowired
+    public AiRateLimiter(AiProperties aiProperties, MeterRegistry meterRegistry) {
+        this(aiProperties, meterRegistry, Ticker.SYSTEM);
+    }
+
+    AiRateLimiter(AiProperties aiProperties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.cfg = aiProperties.getRateLimit();
+        this.ticker = ticker;
+        this.requests = new TokenBucket(cfg.getRequestsPerMinute(), ticker.nanoTime());
+        this.tokens = new TokenBucket(cfg.getTokensPerMinute(), ticker.nanoTime());
+        this.limit = Math.max(1, cfg.getMaxConcurrent());
+        this.cooldownNanos = cfg.getCooldown().toNanos();
+
+        meterRegistry.gauge(CONCURRENCY_METRIC, this, AiRateLimiter::concurrencyLimit);
+        meterRegistry.gauge(WAITING_METRIC, this, AiRateLimiter::waiting);
+    }
+
+    /**
+     * Runs the call once admitted, queueing it again when it is rejected
+     * with 429.
+     *
+     * @param estimatedTokens tokens charged up front
+     * @param usedTokens      actual usage of a completed call, 0 when unknown
+     * @param rateLimited     recognises a 429 from the call
+     * @throws AiRateLimitException when no slot frees up within the queue
+     *                              timeout
+     */
+    public <T> T execute(long estimatedTokens, Callable<T> call, ToLongFunction<T> usedTokens,
+            Predicate<Exception> rateLimited) throws Exception {
+        long charged = Math.min(Math.max(1, estimatedTokens), Math.max(1, cfg.getTokensPerMinute()));
+        for (int attempt = 1;; attempt++) {
+            acquire(charged);
+            T result;
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                boolean limited = rateLimited.test(e);
+                release(charged, charged, limited);
+                if (!limited || attempt > cfg.getMaxRateLimitRetries()) {
+                    throw e;
+                }
+                log.warn("Rate limited by the API (attempt {}), call queued again, concurrency limit now {}",
+                        attempt, concurrencyLimit());
+                continue;
+            }
+            long used = usedTokens.applyAsLong(result);
+            release(charged, used > 0 ? used : charged, false);
+            return result;
+        }
+    }
+
+    private void acquire(long charged) throws InterruptedException {
+        long deadline = ticker.nanoTime() + cfg.getQueueTimeout().toNanos();
+        lock.lock();
+        try {
+            long ticket = nextTicket++;
+            try {
+                while (true) {
+                    long now = ticker.nanoTime();
+                    long wait = ticket == serving ? admissionDelay(now, charged) : Long.MAX_VALUE;
+                    if (wait == 0) {
+                        requests.take(now, 1);
+                        tokens.take(now, charged);
+                        inFlight++;
+                        return;
+                    }
+                    long left = deadline - now;
+                    if (left <= 0) {
+                        throw new AiRateLimitException("Timed out after " + cfg.getQueueTimeout()
+                                + " waiting for the client rate limit");
+                    }
+                    ticker.awaitNanos(changed, Math.min(wait, left));
+                }
+            } finally {
+                // admitted or gave up: tickets given up before their turn are skipped
+                abandoned.add(ticket);
+                while (abandoned.remove(serving)) {
+                    serving++;
+                }
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return nanos until the head of the queue can start, 0 when it can now,
+     *         {@link Long#MAX_VALUE} when it waits for a call to finish
+     */
+    private long admissionDelay(long now, long charged) {
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+        if (inFlight >= (int) limit) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(requests.nanosUntil(now, 1), tokens.nanosUntil(now, charged));
+    }
+
+    private void release(long charged, long used, boolean limited) {
+        lock.lock();
+        try {
+            long now = ticker.nanoTime();
+            inFlight--;
+            tokens.take(now, used - charged);
+            if (limited) {
+                limit = Math.max(1, limit / 2);
+                pausedUntil = now + cooldownNanos;
+                cooldownNanos = Math.min(cooldownNanos * 2, MINUTE_NANOS);
+            } else {
+                limit = Math.min(Math.max(1, cfg.getMaxConcurrent()), limit + 1 / limit);
+                cooldownNanos = cfg.getCooldown().toNanos();
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double concurrencyLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double waiting() {
+        lock.lock();
+        try {
+            return nextTicket - serving - abandoned.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Time source of the limiter, replaced in tests.
+     */
+    interface Ticker {
+
+        Ticker SYSTEM = new Ticker() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void awaitNanos(Condition condition, long nanos) throws InterruptedException {
+                condition.awaitNanos(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        /**
+         * Waits on the condition (its lock held) for at most nanos of this
+         * ticker's time.
+         */
+        void awaitNanos(Condition condition, long nanos) throws InterruptedException;
+    }
+
+    /**
+     * Budget refilled continuously at perMinute per minute, holding at most
+     * one minute's worth. May go negative when actual usage exceeds what was
+     * charged. A perMinute of 0 or less means unlimited.
+     */
+    private static final class TokenBucket {
+
+        private final long perMinute;
+        private double available;
+        private long refilledAt;
+
+        TokenBucket(long perMinute, long now) {
+            this.perMinute = perMinute;
+            this.available = perMinute;
+            this.refilledAt = now;
+        }
+
+        long nanosUntil(long now, long amount) {
+            if (perMinute <= 0) {
+                return 0;
+            }
+            refill(now);
+            double missing = amount - available;
+            return missing <= 0 ? 0 : Math.max(1, (long) Math.ceil(missing * MINUTE_NANOS / perMinute));
+        }
+
+        void take(long now, long amount) {
+            if (perMinute > 0) {
+                refill(now);
+                available -= amount;
+            }
+        }
+
+        private void refill(long now) {
+            available = Math.min(perMinute, available + (double) (now - refilledAt) * perMinute / MINUTE_NANOS);
+            refilledAt = now;
+        }
+    }
+}
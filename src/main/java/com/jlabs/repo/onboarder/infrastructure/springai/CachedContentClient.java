@@ -0,0 +1,31 @@
+package com.jlabs.repo.onboarder.infrastructure.springai;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cached content operations used by the repository cache: the Gemini
+ * Cached Content API ({@link GoogleGenAiCachedContentClient}) or a local
+ * stand-in (profile "fake-ai").
+ */
+public interface CachedContentClient {
+
+    List<CachedContent> listAll();
+
+    void delete(String name);
+
+    /**
+     * @param contents text stored as the cached user content
+     * @throws RuntimeException when the content cannot be cached
+     */
+    CachedContent create(String model, String displayName, CharSequence contents, Duration ttl);
+
+    /**
+     * @param name            full name (cachedContents/xxx), passed to the model
+     *                        options
+     * @param totalTokenCount tokens in the cache, null when unknown
+     */
+    record CachedContent(String name, String displayName, String model, boolean expired, Duration remainingTtl,
+            Integer totalTokenCount) {
+    }
+}
@@ -25,6 +25,7 @@ public class ChatModelClient {
 
     private final ChatModel chatModel;
     private final AiProperties aiProperties;
+    private final AiRateLimiter rateLimiter;
 
     @Retryable(maxAttemptsExpression = "#{@aiProperties.retry.maxAttempts}", noRetryFor = { AiRateLimitException.class,
             AiApiKeyException.class }, backoff = @Backoff(delayExpression = "#{@aiProperties.retry.initialDelayMs}", multiplierExpression = "#{@aiProperties.retry.multiplier}", maxDelayExpression = "#{@aiProperties.retry.maxDelayMs}"))
@@ -37,31 +38,106 @@ public class ChatModelClient {
 
             Prompt prompt = new Prompt(promptText, options);
 
-            ChatResponse response = chatModel.call(prompt);
+            // 429s are queued again by the limiter
+            ChatResponse response = rateLimiter.execute(estimatedTokens, () -> chatModel.call(prompt),
+                    ChatModelClient::totalTokens, this::isRateLimitError);
 
             logActualTokenUsage(response);
 
             return response.getResult().getOutput().getText();
 
         } catch (Exception e) {
-            log.warn("Error during API call: {}", e.getMessage());
+            throw translate(e);
+        }
+    }
 
-            // Check if it is rate limit error (429) or authentication error (401)
-            // These errors should not be retried - throwing appropriate exceptions
-            if (isRateLimitError(e)) {
-                throw new AiRateLimitException(
-                        "Rate limiting occurred from Google Gemini API: " + e.getMessage(), e);
-            }
-            if (isAuthenticationError(e)) {
-                throw new AiApiKeyException(
-                        "Authentication error from Google Gemini API. Check API key correctness: " + e.getMessage(), e);
+    /**
+     * Receives a streamed response.
+     */
+    public interface StreamListener {
+
+        /**
+         * An attempt starts; text received so far belonged to a failed attempt
+         * and is superseded.
+         */
+        void onAttempt();
+
+        void onText(String text);
+    }
+
+    /**
+     * Streaming variant of {@link #call}: the response text is passed to the
+     * listener as the model generates it. Retried like {@link #call}, a retry
+     * streams the response again from its start.
+     *
+     * @return the whole response text
+     */
+    @Retryable(recover = "recoverStream", maxAttemptsExpression = "#{@aiProperties.retry.maxAttempts}", noRetryFor = { AiRateLimitException.class,
+            AiApiKeyException.class }, backoff = @Backoff(delayExpression = "#{@aiProperties.retry.initialDelayMs}", multiplierExpression = "#{@aiProperties.retry.multiplier}", maxDelayExpression = "#{@aiProperties.retry.maxDelayMs}"))
+    public String stream(String promptText, GoogleGenAiChatOptions options, StreamListener listener) {
+        log.debug("Streaming from Gemini API" + (options != null ? " with options" : ""));
+
+        try {
+
+            long estimatedTokens = logPromptTokenEstimation(promptText);
+
+            Prompt prompt = new Prompt(promptText, options);
+
+            StreamedResponse streamed = rateLimiter.execute(estimatedTokens, () -> {
+                listener.onAttempt();
+                StringBuilder text = new StringBuilder();
+                ChatResponse last = null;
+                for (ChatResponse response : chatModel.stream(prompt).toIterable()) {
+                    String chunk = response.getResult() != null && response.getResult().getOutput() != null
+                            ? response.getResult().getOutput().getText()
+                            : null;
+                    if (chunk != null && !chunk.isEmpty()) {
+                        text.append(chunk);
+                        listener.onText(chunk);
+                    }
+                    last = response;
+                }
+                return new StreamedResponse(text.toString(), last);
+            }, r -> totalTokens(r.last()), this::isRateLimitError);
+
+            // usage comes with the last chunk
+            if (streamed.last() != null) {
+                logActualTokenUsage(streamed.last());
             }
 
-            // Other errors will be retried by Spring Retry
-            throw new AiException("Error during API call: " + e.getMessage(), e);
+            return streamed.text();
+
+        } catch (Exception e) {
+            throw translate(e);
         }
     }
 
+    private record StreamedResponse(String text, ChatResponse last) {
+    }
+
+    private AiException translate(Exception e) {
+        if (e instanceof AiException aiException) {
+            // e.g. the rate limiter giving up
+            return aiException;
+        }
+        log.warn("Error during API call: {}", e.getMessage());
+
+        // Check if it is rate limit error (429) or authentication error (401)
+        // These errors should not be retried - throwing appropriate exceptions
+        // (429s reach this point only when the rate limiter gave up requeueing)
+        if (isRateLimitError(e)) {
+            return new AiRateLimitException(
+                    "Rate limiting occurred from Google Gemini API: " + e.getMessage(), e);
+        }
+        if (isAuthenticationError(e)) {
+            return new AiApiKeyException(
+                    "Authentication error from Google Gemini API. Check API key correctness: " + e.getMessage(), e);
+        }
+
+        // Other errors will be retried by Spring Retry
+        return new AiException("Error during API call: " + e.getMessage(), e);
+    }
+
     /**
      * Recover method called after exhausting all retry attempts.
      * 
@@ -81,6 +157,12 @@ public class ChatModelClient {
                 e);
     }
 
+    @Recover
+    public String recoverStream(AiException e, String promptText, GoogleGenAiChatOptions options,
+            StreamListener listener) {
+        return recover(e, promptText, options);
+    }
+
     private long logPromptTokenEstimation(String promptText) {
         long estimatedTokens = estimateTokenCount(promptText);
         int promptLength = promptText.length();
@@ -115,6 +197,18 @@ public class ChatModelClient {
         return Math.round(text.length() / 3.5);
     }
 
+    /**
+     * @return total tokens reported in the response metadata, 0 when unknown
+     */
+    private static long totalTokens(ChatResponse response) {
+        try {
+            Usage usage = response.getMetadata().getUsage();
+            return usage != null && usage.getTotalTokens() != null ? usage.getTotalTokens() : 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
     private void logActualTokenUsage(ChatResponse response) {
         try {
             Usage usage = response.getMetadata().getUsage();
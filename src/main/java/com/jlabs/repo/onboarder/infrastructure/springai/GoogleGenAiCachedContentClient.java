@@ -0,0 +1,57 @@
+package com.jlabs.repo.onboarder.infrastructure.springai;
+
+import com.google.genai.types.Content;
+import com.google.genai.types.Part;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.google.genai.cache.CachedContentRequest;
+import org.springframework.ai.google.genai.cache.GoogleGenAiCachedContent;
+import org.springframework.ai.google.genai.cache.GoogleGenAiCachedContentService;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@link CachedContentClient} backed by the Google GenAI Cached Content API.
+ */
+@RequiredArgsConstructor
+public class GoogleGenAiCachedContentClient implements CachedContentClient {
+
+    private final GoogleGenAiCachedContentService cachedContentService;
+
+    @Override
+    public List<CachedContent> listAll() {
+        return cachedContentService.listAll().stream()
+                .map(GoogleGenAiCachedContentClient::toCachedContent)
+                .toList();
+    }
+
+    @Override
+    public void delete(String name) {
+        cachedContentService.delete(name);
+    }
+
+    @Override
+    public CachedContent create(String model, String displayName, CharSequence contents, Duration ttl) {
+        // the SDK takes text parts as String
+        CachedContentRequest request = CachedContentRequest.builder()
+                .model(model)
+                .contents(List.of(
+                        Content.builder()
+                                .role("user")
+                                .parts(List.of(Part.fromText(contents.toString())))
+                                .build()))
+                .displayName(displayName)
+                .ttl(ttl)
+                .build();
+
+        return toCachedContent(cachedContentService.create(request));
+    }
+
+    private static CachedContent toCachedContent(GoogleGenAiCachedContent cache) {
+        Integer totalTokens = cache.getUsageMetadata() != null
+                ? cache.getUsageMetadata().totalTokenCount().orElse(null)
+                : null;
+        return new CachedContent(cache.getName(), cache.getDisplayName(), cache.getModel(), cache.isExpired(),
+                cache.getRemainingTtl(), totalTokens);
+    }
+}
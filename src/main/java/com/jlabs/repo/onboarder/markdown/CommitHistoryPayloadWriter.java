@@ -1,6 +1,9 @@
 package com.jlabs.repo.onboarder.markdown;
 
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.CommitConsumer;
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.SegmentedText;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -8,9 +11,22 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+/**
+ * Renders the commit history payload, one line per commit, newest first.
+ * <p>
+ * The rendered history is kept in memory until the context is built, so it
+ * is capped at git-core.limits.maxHistoryCommits lines; older commits are
+ * only counted. Without the cap (0) it grows with the history walked.
+ */
 @Service
 public class CommitHistoryPayloadWriter {
 
+    private final int maxCommits;
+
+    public CommitHistoryPayloadWriter(GitCoreProperties properties) {
+        this.maxCommits = properties.getLimits().getMaxHistoryCommits();
+    }
+
     public void write(GitReport report, Path outputFile) {
         String content = generate(report);
 
@@ -23,20 +39,81 @@ public class CommitHistoryPayloadWriter {
     }
 
     public String generate(GitReport report) {
+        if (report.getCommitHistory() != null) {
+            return report.getCommitHistory();
+        }
         StringBuilder sb = new StringBuilder();
+        CommitConsumer history = history(sb);
+        report.getCommits().forEach(history::accept);
+        history.complete();
+        return sb.toString();
+    }
 
-        report.getCommits().forEach(c -> {
-            sb.append("<commit date='")
-                    .append(c.getCommitterTime())
-                    .append("' committer='")
-                    .append(escape(c.getCommitterName()))
-                    .append("'>")
-                    .append(escape(c.getMessageShort()))
-                    .append("</commit>")
-                    .append(System.lineSeparator());
-        });
+    public SegmentedText appendTo(GitReport report, SegmentedText out) {
+        return out.append(generate(report));
+    }
 
-        return sb.toString();
+    /**
+     * @return consumer rendering streamed commits into report.commitHistory,
+     *         so the payload does not need report.commits
+     */
+    public CommitConsumer collector(GitReport report) {
+        StringBuilder sb = new StringBuilder();
+        CommitConsumer history = history(sb);
+        return new CommitConsumer() {
+            @Override
+            public void accept(GitReport.CommitInfo commit) {
+                history.accept(commit);
+            }
+
+            @Override
+            public void complete() {
+                history.complete();
+                report.setCommitHistory(sb.toString());
+            }
+        };
+    }
+
+    /**
+     * @return consumer rendering up to maxCommits commits into sb and counting
+     *         the rest
+     */
+    private CommitConsumer history(StringBuilder sb) {
+        return new CommitConsumer() {
+            private int rendered;
+            private int omitted;
+
+            @Override
+            public void accept(GitReport.CommitInfo commit) {
+                if (maxCommits > 0 && rendered >= maxCommits) {
+                    omitted++;
+                    return;
+                }
+                rendered++;
+                append(sb, commit);
+            }
+
+            @Override
+            public void complete() {
+                if (omitted > 0) {
+                    sb.append("<omitted_commits count='")
+                            .append(omitted)
+                            .append("' />")
+                            .append(System.lineSeparator());
+                }
+            }
+        };
+    }
+
+    private void append(StringBuilder sb, GitReport.CommitInfo c) {
+        sb.append("<commit date='")
+                .append(c.getCommitterTime())
+                .append("' committer='")
+                .append(escape(c.getCommitterName()))
+                .append("'>")
+                .append(escape(c.getMessageShort()))
+                .append("</commit>")
+                .append(System.lineSeparator());
     }
 
     private String escape(String s) {
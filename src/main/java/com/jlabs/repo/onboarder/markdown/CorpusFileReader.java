@@ -0,0 +1,238 @@
+package com.jlabs.repo.onboarder.markdown;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.SourceTree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a corpus file after classifying its first git-core.selection.probeBytes:
+ * <ul>
+ * <li>binary (NUL bytes or mostly control characters) - nothing more is read,</li>
+ * <li>charset from a BOM, else UTF-8 when the probe is valid UTF-8, else
+ * ISO-8859-1,</li>
+ * <li>minified (very long lines) or generated - flagged, nothing more is
+ * read,</li>
+ * <li>text above sampleAboveBytes - only its head and tail are read, cut at
+ * line boundaries, with a marker in between.</li>
+ * </ul>
+ * A file counts as generated only when a comment line near its top starts
+ * with a well-known generator header: {@code @generated}, the .NET
+ * {@code <auto-generated>} tag, or the Go convention
+ * {@code Code generated ... DO NOT EDIT.} as the whole comment. Prose such as
+ * "do not edit this file by hand" does not count.
+ * <p>
+ * Skipping a file costs one probe read, sampling a large one about
+ * sampleHeadBytes + sampleTailBytes.
+ */
+class CorpusFileReader {
+
+    static final String OMITTED_MARKER = "[... %d bytes omitted ...]";
+
+    private static final Pattern GENERATED_HEADER = Pattern.compile(
+            "^[ \\t]*(?://+|#+|--|;+|/?\\*+|<!--)[ \\t]*"
+                    + "(?:@generated\\b|<auto-generated\\b"
+                    + "|Code generated .* DO NOT EDIT\\.[ \\t]*(?:\\*/|-->)?[ \\t]*$)",
+            Pattern.MULTILINE);
+    private static final int GENERATED_HEADER_CHARS = 1024;
+    private static final int MINIFIED_AVERAGE_LINE = 250;
+    private static final int MINIFIED_LONGEST_LINE = 4000;
+
+    private final int probeBytes;
+    private final long sampleAboveBytes;
+    private final int headBytes;
+    private final int tailBytes;
+
+    CorpusFileReader(GitCoreProperties.Selection cfg) {
+        this.probeBytes = Math.max(512, cfg.getProbeBytes());
+        this.sampleAboveBytes = cfg.getSampleAboveBytes();
+        this.headBytes = Math.max(1, cfg.getSampleHeadBytes());
+        this.tailBytes = Math.max(0, cfg.getSampleTailBytes());
+    }
+
+    enum Kind {
+        TEXT, BINARY, MINIFIED, GENERATED
+    }
+
+    /**
+     * @param text         content for {@link Kind#TEXT}, null otherwise
+     * @param omittedBytes bytes left out between head and tail, 0 when whole
+     */
+    record Content(Kind kind, String text, long omittedBytes) {
+    }
+
+    Content read(SourceTree sourceTree, String path) throws IOException {
+        long size = sourceTree.size(path);
+        try (InputStream in = sourceTree.open(path)) {
+            byte[] probe = in.readNBytes(probeBytes);
+            boolean complete = probe.length < probeBytes;
+
+            Encoding encoding = Encoding.detect(probe, complete);
+            if (encoding == null) {
+                return new Content(Kind.BINARY, null, 0);
+            }
+            String probeText = encoding.decode(probe, encoding.bom(), probe.length);
+            Kind kind = classify(probeText);
+            if (kind != Kind.TEXT) {
+                return new Content(kind, null, 0);
+            }
+
+            boolean sample = !complete && sampleAboveBytes > 0 && size > sampleAboveBytes
+                    && size > (long) headBytes + tailBytes;
+            if (!sample) {
+                byte[] bytes = complete ? probe : concat(probe, in.readAllBytes());
+                return new Content(Kind.TEXT, encoding.decode(bytes, encoding.bom(), bytes.length), 0);
+            }
+
+            byte[] head = probe.length >= headBytes
+                    ? probe
+                    : concat(probe, in.readNBytes(headBytes - probe.length));
+            in.skipNBytes(Math.max(0, size - tailBytes - head.length));
+            byte[] tail = in.readAllBytes();
+
+            int headEnd = encoding.headEnd(head, Math.min(head.length, headBytes));
+            int tailStart = encoding.tailStart(tail);
+            long omitted = size - headEnd - (tail.length - tailStart);
+
+            String text = encoding.decode(head, encoding.bom(), headEnd)
+                    + System.lineSeparator()
+                    + String.format(Locale.ROOT, OMITTED_MARKER, omitted)
+                    + System.lineSeparator()
+                    + encoding.decode(tail, tailStart, tail.length);
+            return new Content(Kind.TEXT, text, omitted);
+        }
+    }
+
+    private Kind classify(String probeText) {
+        String header = probeText.substring(0, Math.min(probeText.length(), GENERATED_HEADER_CHARS));
+        if (GENERATED_HEADER.matcher(header).find()) {
+            return Kind.GENERATED;
+        }
+
+        int lines = 1;
+        int longest = 0;
+        int current = 0;
+        for (int i = 0; i < probeText.length(); i++) {
+            if (probeText.charAt(i) == '\n') {
+                lines++;
+                current = 0;
+            } else {
+                longest = Math.max(longest, ++current);
+            }
+        }
+        if (longest > MINIFIED_LONGEST_LINE
+                || (probeText.length() > 1024 && probeText.length() / lines > MINIFIED_AVERAGE_LINE)) {
+            return Kind.MINIFIED;
+        }
+        return Kind.TEXT;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    /**
+     * Charset of a text file and the length of its byte order mark.
+     */
+    private record Encoding(Charset charset, int bom) {
+
+        /**
+         * @param complete the probe holds the whole file
+         * @return null for binary content
+         */
+        static Encoding detect(byte[] probe, boolean complete) {
+            if (startsWith(probe, 0xEF, 0xBB, 0xBF)) {
+                return new Encoding(StandardCharsets.UTF_8, 3);
+            }
+            if (startsWith(probe, 0xFF, 0xFE)) {
+                return new Encoding(StandardCharsets.UTF_16LE, 2);
+            }
+            if (startsWith(probe, 0xFE, 0xFF)) {
+                return new Encoding(StandardCharsets.UTF_16BE, 2);
+            }
+
+            int control = 0;
+            for (byte b : probe) {
+                if (b == 0) {
+                    return null;
+                }
+                if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f' && b != 0x1B) {
+                    control++;
+                }
+            }
+            if (control > probe.length / 10) {
+                return null;
+            }
+
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            // a cut probe may end inside a multi-byte character
+            boolean utf8 = !decoder.decode(ByteBuffer.wrap(probe), CharBuffer.allocate(probe.length), complete)
+                    .isError();
+            return new Encoding(utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1, 0);
+        }
+
+        String decode(byte[] bytes, int from, int to) {
+            return to > from ? new String(bytes, from, to - from, charset) : "";
+        }
+
+        /**
+         * @return end of the last whole line within limit (limit when there is none)
+         */
+        int headEnd(byte[] head, int limit) {
+            if (wide()) {
+                return limit & ~1;
+            }
+            for (int i = limit - 1; i >= bom; i--) {
+                if (head[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return limit;
+        }
+
+        /**
+         * @return start of the first whole line (0 when there is none)
+         */
+        int tailStart(byte[] tail) {
+            if (wide()) {
+                return tail.length & 1;
+            }
+            for (int i = 0; i < tail.length; i++) {
+                if (tail[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        private boolean wide() {
+            return charset == StandardCharsets.UTF_16LE || charset == StandardCharsets.UTF_16BE;
+        }
+
+        private static boolean startsWith(byte[] bytes, int... prefix) {
+            if (bytes.length < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if ((bytes[i] & 0xFF) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
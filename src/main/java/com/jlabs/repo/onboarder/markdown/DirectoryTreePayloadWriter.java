@@ -1,15 +1,19 @@
 package com.jlabs.repo.onboarder.markdown;
 
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.PathIndex;
+import com.jlabs.repo.onboarder.model.SegmentedText;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
-import java.util.TreeMap;
 
+/**
+ * Renders the files at HEAD as an indented tree, walking the run's
+ * {@link PathIndex} (children sorted by name).
+ */
 @Service
 public class DirectoryTreePayloadWriter {
 
@@ -26,51 +30,26 @@ public class DirectoryTreePayloadWriter {
     }
 
     public String generate(GitReport report) {
-        DirNode root = new DirNode("", true);
-
-        for (String path : report.getAllFilesAtHead()) {
-            addPath(root, path);
-        }
-
-        StringBuilder sb = new StringBuilder();
-        render(root, sb, 0);
-        return sb.toString();
+        return appendTo(report, new SegmentedText()).toString();
     }
 
-    private void addPath(DirNode root, String path) {
-        String[] parts = path.split("/");
-        DirNode current = root;
-
-        for (int i = 0; i < parts.length; i++) {
-            boolean directory = i < parts.length - 1;
-            current.children.putIfAbsent(parts[i], new DirNode(parts[i], directory));
-            current = current.children.get(parts[i]);
-        }
+    public SegmentedText appendTo(GitReport report, SegmentedText sb) {
+        render(report.getPaths(), PathIndex.ROOT, sb, 0);
+        return sb;
     }
 
-    private void render(DirNode node, StringBuilder sb, int depth) {
-        if (!node.name.isEmpty()) {
+    private void render(PathIndex paths, int node, SegmentedText sb, int depth) {
+        if (node != PathIndex.ROOT) {
             sb.append(INDENT.repeat(depth))
-                    .append(node.name);
-            if (node.directory) {
+                    .append(paths.name(node));
+            if (!paths.isHeadFile(node)) {
                 sb.append("/");
             }
             sb.append(System.lineSeparator());
         }
 
-        for (DirNode child : node.children.values()) {
-            render(child, sb, depth + 1);
-        }
-    }
-
-    private static class DirNode {
-        String name;
-        boolean directory;
-        Map<String, DirNode> children = new TreeMap<>();
-
-        DirNode(String name, boolean directory) {
-            this.name = name;
-            this.directory = directory;
+        for (int child : paths.headChildren(node)) {
+            render(paths, child, sb, depth + 1);
         }
     }
 }
@@ -1,18 +1,32 @@
 package com.jlabs.repo.onboarder.markdown;
 
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.PathIndex;
+import com.jlabs.repo.onboarder.model.SegmentedText;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
-import java.util.Map;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
 
+/**
+ * Renders the highest scoring files, directories and modules.
+ * <p>
+ * Only the top entries of each list are emitted (git-core.hotspots), picked
+ * with a bounded heap: O(n log k) instead of sorting every file of a large
+ * repository.
+ */
 @Service
+@RequiredArgsConstructor
 public class HotspotsPayloadWriter {
 
+    private final GitCoreProperties properties;
+
     public void write(GitReport report, Path outputFile) {
         String content = generate(report);
         try {
@@ -24,21 +38,166 @@ public class HotspotsPayloadWriter {
     }
 
     public String generate(GitReport report) {
-        StringBuilder sb = new StringBuilder();
-
-        report.getFileStats().entrySet().stream()
-                .sorted(Map.Entry.<String, GitReport.FileStats>comparingByValue(
-                        Comparator.comparingInt(fs -> fs.getLinesAdded() + fs.getLinesDeleted())).reversed())
-                .forEach(entry -> {
-                    int churn = entry.getValue().getLinesAdded() + entry.getValue().getLinesDeleted();
-                    sb.append("<file path=\"")
-                            .append(entry.getKey())
-                            .append("\" churn_score=\"")
-                            .append(churn)
-                            .append("\" />")
-                            .append(System.lineSeparator());
-                });
-
-        return sb.toString();
+        return appendTo(report, new SegmentedText()).toString();
+    }
+
+    public SegmentedText appendTo(GitReport report, SegmentedText sb) {
+        GitCoreProperties.Hotspots hotspots = properties.getHotspots();
+        PathIndex paths = report.getPaths();
+        boolean showScore = hotspots.getScoring() != GitCoreProperties.Hotspots.Scoring.CHURN;
+
+        List<Hotspot> files = new ArrayList<>(report.getFileStats().size());
+        report.getFileStats().forEach((id, stats) -> files.add(Hotspot.of(id, stats)));
+        List<Hotspot> topFiles = top(files, hotspots.getTopFiles(), paths);
+
+        sb.append("<ranking scoring=\"")
+                .append(hotspots.getScoring().name().toLowerCase(Locale.ROOT))
+                .append("\" files=\"")
+                .append(files.size())
+                .append("\" shown=\"")
+                .append(topFiles.size())
+                .append("\" />")
+                .append(System.lineSeparator());
+
+        for (Hotspot file : topFiles) {
+            sb.append("<file path=\"")
+                    .append(paths.path(file.path()))
+                    .append("\" churn_score=\"")
+                    .append(file.churn())
+                    .append("\"");
+            appendScore(sb, file, showScore);
+            sb.append(" commits=\"")
+                    .append(file.commits())
+                    .append("\"");
+            if (file.estimatedCommits() > 0) {
+                // churn partly estimated from blob sizes or unknown (binary)
+                sb.append(" estimated_commits=\"")
+                        .append(file.estimatedCommits())
+                        .append("\"");
+            }
+            sb.append(" />")
+                    .append(System.lineSeparator());
+        }
+
+        if (hotspots.getTopDirectories() > 0) {
+            List<Hotspot> directories = rollUp(files, paths::parent);
+            appendRollUp(sb, "directory", top(directories, hotspots.getTopDirectories(), paths), paths, showScore);
+        }
+        if (hotspots.getTopModules() > 0) {
+            List<Hotspot> modules = rollUp(files, id -> module(paths, id, hotspots.getModuleDepth()));
+            appendRollUp(sb, "module", top(modules, hotspots.getTopModules(), paths), paths, showScore);
+        }
+
+        return sb;
+    }
+
+    private void appendRollUp(SegmentedText sb, String element, List<Hotspot> entries, PathIndex paths,
+            boolean showScore) {
+        for (Hotspot entry : entries) {
+            sb.append("<")
+                    .append(element)
+                    .append(" path=\"")
+                    .append(paths.path(entry.path()))
+                    .append("/\" churn_score=\"")
+                    .append(entry.churn())
+                    .append("\"");
+            appendScore(sb, entry, showScore);
+            sb.append(" files=\"")
+                    .append(entry.files())
+                    .append("\" />")
+                    .append(System.lineSeparator());
+        }
+    }
+
+    private void appendScore(SegmentedText sb, Hotspot entry, boolean showScore) {
+        if (showScore) {
+            sb.append(" score=\"")
+                    .append(String.format(Locale.ROOT, "%.2f", entry.score()))
+                    .append("\"");
+        }
+    }
+
+    /**
+     * Sums file entries per group; files mapped to {@link PathIndex#ROOT}
+     * belong to no group.
+     */
+    private List<Hotspot> rollUp(List<Hotspot> files, IntUnaryOperator group) {
+        Map<Integer, Hotspot> groups = new HashMap<>();
+        for (Hotspot file : files) {
+            int id = group.applyAsInt(file.path());
+            if (id != PathIndex.ROOT) {
+                groups.merge(id, file.withPath(id), Hotspot::plus);
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * @return ancestor of a file at the given depth, {@link PathIndex#ROOT}
+     *         when the file is not below that depth
+     */
+    private int module(PathIndex paths, int file, int depth) {
+        List<Integer> ancestors = new ArrayList<>();
+        for (int n = paths.parent(file); n != PathIndex.ROOT; n = paths.parent(n)) {
+            ancestors.add(n);
+        }
+        return depth > 0 && ancestors.size() >= depth ? ancestors.get(ancestors.size() - depth) : PathIndex.ROOT;
+    }
+
+    /**
+     * @return the k best entries (all when k is 0), best first
+     */
+    private List<Hotspot> top(List<Hotspot> entries, int k, PathIndex paths) {
+        // ties on score and churn are rare, so the path of an entry is built
+        // once, the first time it is needed to break one
+        String[] sortKeys = new String[paths.size()];
+        Comparator<Hotspot> best = Comparator.comparingDouble(Hotspot::score).reversed()
+                .thenComparing(Comparator.comparingLong(Hotspot::churn).reversed())
+                .thenComparing(entry -> sortKey(sortKeys, paths, entry.path()));
+
+        List<Hotspot> result;
+        if (k <= 0 || entries.size() <= k) {
+            result = new ArrayList<>(entries);
+        } else {
+            // min-heap of the best k seen so far, head is the worst of them
+            PriorityQueue<Hotspot> heap = new PriorityQueue<>(k, best.reversed());
+            for (Hotspot entry : entries) {
+                if (heap.size() < k) {
+                    heap.add(entry);
+                } else if (best.compare(entry, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            }
+            result = new ArrayList<>(heap);
+        }
+        result.sort(best);
+        return result;
+    }
+
+    private static String sortKey(String[] sortKeys, PathIndex paths, int path) {
+        String key = sortKeys[path];
+        if (key == null) {
+            key = paths.path(path);
+            sortKeys[path] = key;
+        }
+        return key;
+    }
+
+    private record Hotspot(int path, long churn, double score, int commits, int estimatedCommits, int files) {
+
+        static Hotspot of(int path, GitReport.FileStats stats) {
+            return new Hotspot(path, (long) stats.getLinesAdded() + stats.getLinesDeleted(), stats.getScore(),
+                    stats.getCommits(), stats.getEstimatedCommits(), 1);
+        }
+
+        Hotspot withPath(int path) {
+            return new Hotspot(path, churn, score, commits, estimatedCommits, files);
+        }
+
+        Hotspot plus(Hotspot other) {
+            return new Hotspot(path, churn + other.churn, score + other.score, commits + other.commits,
+                    estimatedCommits + other.estimatedCommits, files + other.files);
+        }
     }
 }
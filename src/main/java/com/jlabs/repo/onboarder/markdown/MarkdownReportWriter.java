@@ -25,7 +25,15 @@ public class MarkdownReportWriter {
             w.write("## Repository\n\n");
             w.write("- URL: **" + safe(report.getRepo().getUrl()) + "**\n");
             w.write("- Branch: **" + safe(report.getRepo().getBranch()) + "**\n");
-            w.write("- Workdir: `" + safe(report.getRepo().getWorkdir()) + "`\n\n");
+            w.write("- Workdir: `" + safe(report.getRepo().getWorkdir()) + "`\n");
+            if (!report.getRepo().getScopePaths().isEmpty()) {
+                w.write("- Scope: `" + String.join("`, `", report.getRepo().getScopePaths()) + "`\n");
+            }
+            if (report.getRepo().getSince() != null || report.getRepo().getUntil() != null) {
+                w.write("- Commits between: **" + format(report.getRepo().getSince()) + "** and **"
+                        + format(report.getRepo().getUntil()) + "**\n");
+            }
+            w.write("\n");
 
             // === HEAD ===
             w.write("## HEAD\n\n");
@@ -64,8 +72,8 @@ public class MarkdownReportWriter {
                         "\n\n");
 
                 if (!c.getChanges().isEmpty()) {
-                    w.write("| Type | Path | + | - |\n");
-                    w.write("|---|---|---:|---:|\n");
+                    w.write("| Type | Path | + | - | Tier |\n");
+                    w.write("|---|---|---:|---:|---|\n");
                     for (var ch : c.getChanges()) {
                         String path = (ch.getNewPath() != null && !ch.getNewPath().isBlank())
                                 ? ch.getNewPath()
@@ -73,7 +81,8 @@ public class MarkdownReportWriter {
 
                         w.write("| " + ch.getType() + " | `" + escape(path) +
                                 "` | " + ch.getLinesAdded() +
-                                " | " + ch.getLinesDeleted() + " |\n");
+                                " | " + ch.getLinesDeleted() +
+                                " | " + safe(ch.getTier()) + " |\n");
                     }
                     w.write("\n");
                 }
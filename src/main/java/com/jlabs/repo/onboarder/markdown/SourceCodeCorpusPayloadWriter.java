@@ -1,19 +1,37 @@
 package com.jlabs.repo.onboarder.markdown;
 
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.SourceTree;
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.PathIndex;
+import com.jlabs.repo.onboarder.model.SegmentedText;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class SourceCodeCorpusPayloadWriter {
 
-    public void write(GitReport report, Path repoRoot, Path outputFile) {
-        String content = generate(report, repoRoot);
+    private final CorpusFileReader reader;
+    private final int readConcurrency;
+
+    public SourceCodeCorpusPayloadWriter(GitCoreProperties properties) {
+        this.reader = new CorpusFileReader(properties.getSelection());
+        this.readConcurrency = properties.getSelection().getReadConcurrency();
+    }
+
+    public void write(GitReport report, SourceTree sourceTree, Path outputFile) {
+        String content = generate(report, sourceTree);
         try {
             Files.createDirectories(outputFile.getParent());
             Files.writeString(outputFile, content);
@@ -22,39 +40,106 @@ public class SourceCodeCorpusPayloadWriter {
         }
     }
 
-    public String generate(GitReport report, Path repoRoot) {
-        StringBuilder sb = new StringBuilder();
+    public String generate(GitReport report, SourceTree sourceTree) {
+        return appendTo(report, sourceTree, new SegmentedText()).toString();
+    }
 
-        for (String relativePath : report.getAllFilesAtHead()) {
-            if (relativePath.contains("test")) {
-                continue;
+    /**
+     * Appends the corpus file by file, the whole corpus never exists as one
+     * String.
+     * <p>
+     * Reads are latency-bound on network volumes, so up to
+     * git-core.selection.readConcurrency files are read ahead on virtual
+     * threads. Contents are appended strictly in corpus order as they become
+     * available: the output is byte-identical to a sequential read (the prompt
+     * and the remote cache key depend on it), and at most readConcurrency
+     * contents are held in memory.
+     */
+    public SegmentedText appendTo(GitReport report, SourceTree sourceTree, SegmentedText sb) {
+        // selected by GitFileCollector (git-core.selection), nothing else is read
+        int[] files = report.getCorpusFiles();
+        PathIndex paths = report.getPaths();
+
+        if (readConcurrency <= 1 || files.length <= 1) {
+            for (int file : files) {
+                String relativePath = paths.path(file);
+                appendFile(sb, relativePath, load(sourceTree, relativePath));
             }
-            Path file = repoRoot.resolve(relativePath);
+            return sb;
+        }
 
-            if (!Files.isRegularFile(file)) {
-                continue;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Deque<Future<CorpusFileReader.Content>> window = new ArrayDeque<>(readConcurrency);
+            int next = 0;
+            for (int file : files) {
+                while (window.size() < readConcurrency && next < files.length) {
+                    String path = paths.path(files[next++]);
+                    window.add(executor.submit(() -> load(sourceTree, path)));
+                }
+                appendFile(sb, paths.path(file), await(window.poll()));
             }
+        }
+        return sb;
+    }
 
-            String content;
-            try {
-                content = Files.readString(file, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                continue;
+    /**
+     * @return null when the file is not in the tree or cannot be read
+     */
+    private CorpusFileReader.Content load(SourceTree sourceTree, String relativePath) {
+        if (!sourceTree.isFile(relativePath)) {
+            return null;
+        }
+        try {
+            return reader.read(sourceTree, relativePath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private CorpusFileReader.Content await(Future<CorpusFileReader.Content> read) {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Corpus reading interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
 
+    private void appendFile(SegmentedText sb, String relativePath, CorpusFileReader.Content content) {
+        if (content == null || content.kind() == CorpusFileReader.Kind.BINARY) {
+            return;
+        }
+        if (content.kind() != CorpusFileReader.Kind.TEXT) {
+            // listed so the model knows the file exists, the content would only cost tokens
             sb.append("<file path=\"")
                     .append(relativePath)
-                    .append("\">")
-                    .append(System.lineSeparator());
-
-            sb.append(content)
-                    .append(System.lineSeparator());
-
-            sb.append("</file>")
+                    .append("\" omitted=\"")
+                    .append(content.kind().name().toLowerCase(Locale.ROOT))
+                    .append("\" />")
                     .append(System.lineSeparator())
                     .append(System.lineSeparator());
+            return;
         }
 
-        return sb.toString();
+        sb.append("<file path=\"")
+                .append(relativePath)
+                .append("\"");
+        if (content.omittedBytes() > 0) {
+            sb.append(" truncated=\"true\"");
+        }
+        sb.append(">")
+                .append(System.lineSeparator());
+
+        sb.append(content.text())
+                .append(System.lineSeparator());
+
+        sb.append("</file>")
+                .append(System.lineSeparator())
+                .append(System.lineSeparator());
     }
 }
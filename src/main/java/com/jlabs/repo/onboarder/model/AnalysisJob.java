@@ -0,0 +1,57 @@
+package com.jlabs.repo.onboarder.model;
+
+import com.jlabs.repo.onboarder.service.ResponseCacheService;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * State of an asynchronous analysis submitted through the jobs API.
+ * <p>
+ * Written by the worker running the job and read by request threads, so the
+ * fields changing while it runs are volatile.
+ */
+@Data
+public class AnalysisJob {
+
+    private String id;
+    private volatile Status status = Status.QUEUED;
+    private volatile String stage;
+
+    private String repoUrl;
+    private String branch;
+    private boolean withTest;
+    private String targetLanguage;
+    private List<String> paths;
+    private LocalDate since;
+    private LocalDate until;
+    private ResponseCacheService.Mode responseCache;
+
+    private Instant createdAt = Instant.now();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    private List<ProgressEvent> events = new CopyOnWriteArrayList<>();
+
+    private volatile DocumentationResult result;
+    private volatile String error;
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    @Data
+    public static class ProgressEvent {
+        private int sequence;
+        private String stage;
+        private String message;
+        private Instant timestamp = Instant.now();
+    }
+}
@@ -0,0 +1,413 @@
+package com.jlabs.repo.onboarder.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Compact, columnar store of {@link GitReport.CommitInfo}s.
+ * <p>
+ * Every attribute is a primitive column indexed by commit: ids and parents as
+ * raw 20-byte SHA-1s (a first parent that is the next commit in the table is
+ * not stored again), authors and committers as ids into a dictionary of
+ * identities, so an author with a thousand commits is stored once. Times,
+ * diff stats and file changes form one varint record per commit: epoch
+ * seconds (the author time as a difference to the committer time), line
+ * counts, {@link PathIndex} ids for paths and dictionary ids for change
+ * kinds, usually under 10 bytes per changed file. Messages and patches are kept as UTF-8 in a single
+ * byte buffer per column.
+ * <p>
+ * {@link #view()} decodes rows back into CommitInfo on access, so code written
+ * against GitReport.commits keeps working; the decoded objects are copies and
+ * changing them does not change the table.
+ * <p>
+ * Not thread-safe; filled by the collecting thread, read afterwards.
+ */
+public class CommitTable {
+
+    private static final int ID_BYTES = 20;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Dictionary<Person> people = new Dictionary<>();
+    private final PathIndex paths;
+    private final Dictionary<ChangeKind> kinds = new Dictionary<>();
+
+    // --- per commit ---
+    private int size;
+    private byte[] ids = new byte[0];
+    private int[] authors = new int[0];
+    private int[] committers = new int[0];
+    private final Text messagesShort = new Text();
+    private final Text messagesRest = new Text(); // messageFull minus the leading messageShort
+    private final BitSet fullStoredWhole = new BitSet(); // messageFull does not start with messageShort
+    private final Text patches = new Text();
+
+    // --- parents, rows of parentStart[i]..parentStart[i + 1] ---
+    private int[] parentStart = new int[1];
+    private byte[] parentIds = new byte[0];
+    private final BitSet parentIsNextRow = new BitSet(); // first parent is the next commit, not stored
+
+    // --- times, diff stats and file changes, varint record in records[recordStart[i]..recordStart[i + 1]) ---
+    private int[] recordStart = new int[1];
+    private byte[] records = new byte[0];
+    private int recordsLength;
+
+    public CommitTable() {
+        this(new PathIndex());
+    }
+
+    /**
+     * @param paths index the changed paths are interned into
+     */
+    public CommitTable(PathIndex paths) {
+        this.paths = paths;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a commit; the CommitInfo is not referenced afterwards.
+     *
+     * @throws IllegalStateException after {@link #trimToSize()}
+     */
+    public void add(GitReport.CommitInfo commit) {
+        ensureCommitCapacity(size + 1);
+        int row = size;
+
+        putId(ids, row * ID_BYTES, commit.getCommitId());
+        if (row > 0) {
+            dropParentIfPrevious(row);
+        }
+        authors[row] = people.id(new Person(commit.getAuthorName(), commit.getAuthorEmail()));
+        committers[row] = people.id(new Person(commit.getCommitterName(), commit.getCommitterEmail()));
+
+        String shortMessage = commit.getMessageShort();
+        String full = commit.getMessageFull();
+        messagesShort.add(shortMessage);
+        if (full != null && shortMessage != null && full.startsWith(shortMessage)) {
+            // the subject line is usually the start of the full message
+            messagesRest.add(full.substring(shortMessage.length()));
+        } else {
+            fullStoredWhole.set(row);
+            messagesRest.add(full);
+        }
+        patches.add(commit.getPatchSnippet());
+
+        List<String> parents = commit.getParents();
+        int parentBase = parentStart[row];
+        parentIds = ensure(parentIds, (parentBase + parents.size()) * ID_BYTES);
+        for (int p = 0; p < parents.size(); p++) {
+            putId(parentIds, (parentBase + p) * ID_BYTES, parents.get(p));
+        }
+        parentStart[row + 1] = parentBase + parents.size();
+
+        // committer time, author time as a difference (usually 0); 0 = no time
+        long committerTime = commit.getCommitterTime() != null ? commit.getCommitterTime().getEpochSecond() : 0;
+        writeTime(commit.getCommitterTime(), 0);
+        writeTime(commit.getAuthorTime(), committerTime);
+
+        GitReport.CommitInfo.DiffStats stats = commit.getDiffStats();
+        writeVarint(stats.getFilesChanged());
+        writeVarint(stats.getLinesAdded());
+        writeVarint(stats.getLinesDeleted());
+        for (GitReport.CommitInfo.FileChange change : commit.getChanges()) {
+            // kind, new path, old path (0 = same as new), added, deleted; ids shifted so null fits
+            int newPath = paths.id(change.getNewPath());
+            int oldPath = paths.id(change.getOldPath());
+            writeVarint(kinds.id(new ChangeKind(change.getType(), change.getTier())));
+            writeVarint(newPath + 1);
+            writeVarint(oldPath == newPath ? 0 : oldPath + 2);
+            writeVarint(change.getLinesAdded());
+            writeVarint(change.getLinesDeleted());
+        }
+        recordStart[row + 1] = recordsLength;
+
+        size++;
+    }
+
+    /**
+     * Releases the spare capacity left by growing the columns and the lookup
+     * maps only needed while adding; call once the table is complete.
+     */
+    public void trimToSize() {
+        ids = Arrays.copyOf(ids, size * ID_BYTES);
+        authors = Arrays.copyOf(authors, size);
+        committers = Arrays.copyOf(committers, size);
+        parentStart = Arrays.copyOf(parentStart, size + 1);
+        parentIds = Arrays.copyOf(parentIds, parentStart[size] * ID_BYTES);
+        recordStart = Arrays.copyOf(recordStart, size + 1);
+        records = Arrays.copyOf(records, recordsLength);
+        messagesShort.trimToSize();
+        messagesRest.trimToSize();
+        patches.trimToSize();
+        people.freeze();
+        kinds.freeze();
+    }
+
+    /**
+     * Decodes one row.
+     */
+    public GitReport.CommitInfo get(int row) {
+        Objects.checkIndex(row, size);
+
+        GitReport.CommitInfo ci = new GitReport.CommitInfo();
+        ci.setCommitId(HEX.formatHex(ids, row * ID_BYTES, (row + 1) * ID_BYTES));
+        ci.setShortId(ci.getCommitId().substring(0, 8));
+
+        Person author = people.get(authors[row]);
+        ci.setAuthorName(author.name());
+        ci.setAuthorEmail(author.email());
+
+        Person committer = people.get(committers[row]);
+        ci.setCommitterName(committer.name());
+        ci.setCommitterEmail(committer.email());
+
+        ci.setMessageShort(messagesShort.get(row));
+        ci.setMessageFull(fullStoredWhole.get(row)
+                ? messagesRest.get(row)
+                : ci.getMessageShort() + messagesRest.get(row));
+        ci.setPatchSnippet(patches.get(row));
+
+        if (parentIsNextRow.get(row)) {
+            ci.getParents().add(HEX.formatHex(ids, (row + 1) * ID_BYTES, (row + 2) * ID_BYTES));
+        }
+        for (int p = parentStart[row]; p < parentStart[row + 1]; p++) {
+            ci.getParents().add(HEX.formatHex(parentIds, p * ID_BYTES, (p + 1) * ID_BYTES));
+        }
+
+        int[] position = { recordStart[row] };
+        ci.setCommitterTime(readTime(position, 0));
+        ci.setAuthorTime(readTime(position, ci.getCommitterTime() != null ? ci.getCommitterTime().getEpochSecond() : 0));
+        ci.getDiffStats().setFilesChanged(readVarint(position));
+        ci.getDiffStats().setLinesAdded(readVarint(position));
+        ci.getDiffStats().setLinesDeleted(readVarint(position));
+        ci.getDiffStats().setLinesTotal(ci.getDiffStats().getLinesAdded() + ci.getDiffStats().getLinesDeleted());
+
+        while (position[0] < recordStart[row + 1]) {
+            ChangeKind kind = kinds.get(readVarint(position));
+            String newPath = paths.path(readVarint(position) - 1);
+            int oldPath = readVarint(position);
+
+            GitReport.CommitInfo.FileChange fc = new GitReport.CommitInfo.FileChange();
+            fc.setType(kind.type());
+            fc.setTier(kind.tier());
+            fc.setNewPath(newPath);
+            fc.setOldPath(oldPath == 0 ? newPath : paths.path(oldPath - 2));
+            fc.setLinesAdded(readVarint(position));
+            fc.setLinesDeleted(readVarint(position));
+            ci.getChanges().add(fc);
+        }
+        return ci;
+    }
+
+    /**
+     * @return read-only list view, rows are decoded on every access
+     */
+    public List<GitReport.CommitInfo> view() {
+        return new View();
+    }
+
+    private final class View extends AbstractList<GitReport.CommitInfo> implements RandomAccess {
+
+        @Override
+        public GitReport.CommitInfo get(int index) {
+            return CommitTable.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * In log order a commit is usually followed by its first parent; then the
+     * previous row does not need to store that parent id.
+     */
+    private void dropParentIfPrevious(int row) {
+        int previous = row - 1;
+        int first = parentStart[previous];
+        if (first == parentStart[row]
+                || !Arrays.equals(parentIds, first * ID_BYTES, (first + 1) * ID_BYTES,
+                        ids, row * ID_BYTES, (row + 1) * ID_BYTES)) {
+            return;
+        }
+        // the previous row's parents are the last ones stored, shift the others down
+        System.arraycopy(parentIds, (first + 1) * ID_BYTES, parentIds, first * ID_BYTES,
+                (parentStart[row] - first - 1) * ID_BYTES);
+        parentStart[row]--;
+        parentIsNextRow.set(previous);
+    }
+
+    /**
+     * Unsigned LEB128, small values (ids, line counts) take one or two bytes.
+     */
+    private void writeVarint(int value) {
+        writeVarlong(Integer.toUnsignedLong(value));
+    }
+
+    private void writeVarlong(long value) {
+        records = ensure(records, recordsLength + 10);
+        while ((value & ~0x7FL) != 0) {
+            records[recordsLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        records[recordsLength++] = (byte) value;
+    }
+
+    private int readVarint(int[] position) {
+        return (int) readVarlong(position);
+    }
+
+    private long readVarlong(int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = records[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private void writeTime(Instant time, long base) {
+        if (time == null) {
+            writeVarlong(0);
+            return;
+        }
+        long delta = time.getEpochSecond() - base;
+        writeVarlong(((delta << 1) ^ (delta >> 63)) + 1); // zigzag, shifted so 0 means null
+    }
+
+    private Instant readTime(int[] position, long base) {
+        long zigzag = readVarlong(position);
+        if (zigzag == 0) {
+            return null;
+        }
+        zigzag--;
+        return Instant.ofEpochSecond(base + ((zigzag >>> 1) ^ -(zigzag & 1)));
+    }
+
+    private static void putId(byte[] target, int offset, String hex) {
+        if (hex == null || hex.length() != ID_BYTES * 2) {
+            throw new IllegalArgumentException("Not a SHA-1 commit id: " + hex);
+        }
+        for (int i = 0; i < ID_BYTES; i++) {
+            target[offset + i] = (byte) HexFormat.fromHexDigits(hex, i * 2, i * 2 + 2);
+        }
+    }
+
+    private void ensureCommitCapacity(int rows) {
+        if (rows <= authors.length) {
+            return;
+        }
+        int capacity = Math.max(rows, Math.max(16, authors.length + (authors.length >> 1)));
+        ids = Arrays.copyOf(ids, capacity * ID_BYTES);
+        authors = Arrays.copyOf(authors, capacity);
+        committers = Arrays.copyOf(committers, capacity);
+        parentStart = Arrays.copyOf(parentStart, capacity + 1);
+        recordStart = Arrays.copyOf(recordStart, capacity + 1);
+    }
+
+    private static byte[] ensure(byte[] array, int length) {
+        return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, array.length + (array.length >> 1)));
+    }
+
+    private record Person(String name, String email) {
+    }
+
+    private record ChangeKind(String type, String tier) {
+    }
+
+    /**
+     * Value to dense id mapping; null is encoded as -1. Once frozen only
+     * decoding is possible, the reverse map is dropped.
+     */
+    private static final class Dictionary<T> {
+
+        private Map<T, Integer> ids = new HashMap<>();
+        private final ArrayList<T> values = new ArrayList<>();
+
+        int id(T value) {
+            if (value == null) {
+                return -1;
+            }
+            if (ids == null) {
+                throw new IllegalStateException("CommitTable is complete, no commits can be added");
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = values.size();
+                values.add(value);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        T get(int id) {
+            return id < 0 ? null : values.get(id);
+        }
+
+        void freeze() {
+            ids = null;
+            values.trimToSize();
+        }
+    }
+
+    /**
+     * Nullable strings stored back to back as UTF-8, one per commit.
+     */
+    private static final class Text {
+
+        private byte[] data = new byte[0];
+        private int length;
+        private int[] offsets; // allocated with the first non-empty value, until then all entries are empty
+        private final BitSet nulls = new BitSet();
+        private int size;
+
+        void add(String value) {
+            if (value == null) {
+                nulls.set(size);
+            } else if (!value.isEmpty()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                data = ensure(data, length + bytes.length);
+                System.arraycopy(bytes, 0, data, length, bytes.length);
+                length += bytes.length;
+            }
+            size++;
+            if (offsets == null && length > 0) {
+                offsets = new int[Math.max(16, size + 1)];
+            }
+            if (offsets != null) {
+                if (size >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, Math.max(size + 1, offsets.length + (offsets.length >> 1)));
+                }
+                offsets[size] = length;
+            }
+        }
+
+        void trimToSize() {
+            data = Arrays.copyOf(data, length);
+            if (offsets != null) {
+                offsets = Arrays.copyOf(offsets, size + 1);
+            }
+        }
+
+        String get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            if (offsets == null) {
+                return "";
+            }
+            return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -20,7 +20,18 @@ public class DocumentationResult {
      */
     private Map<String, String> documents = new LinkedHashMap<>();
 
+    /**
+     * Documents that could not be generated.
+     * Key: document type name
+     * Value: error message
+     */
+    private Map<String, String> failures = new LinkedHashMap<>();
+
     public void addDocument(String type, String content) {
         this.documents.put(type, content);
     }
+
+    public void addFailure(String type, String error) {
+        this.failures.put(type, error);
+    }
 }
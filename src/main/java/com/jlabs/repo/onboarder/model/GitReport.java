@@ -18,10 +18,26 @@ public class GitReport {
     private List<String> branches = new ArrayList<>();
     private List<String> tags = new ArrayList<>();
 
-    private List<String> allFilesAtHead = new ArrayList<>();
-    private List<CommitInfo> commits = new ArrayList<>();
+    private final PathIndex paths = new PathIndex(); // every path of the run, shared by the fields below
+    private final CommitTable commitTable = new CommitTable(paths); // filled only with git-core.limits.retainCommits
+    private String commitHistory; // rendered while commits stream, see CommitHistoryPayloadWriter
+
+    private int[] corpusFiles = new int[0]; // path ids of files at HEAD whose content may be read, sorted by path
+    private Map<Integer, FileStats> fileStats = new HashMap<>(); // keyed by path id
+
+    /**
+     * @return read-only view of the files at HEAD, sorted
+     */
+    public List<String> getAllFilesAtHead() {
+        return paths.headFiles();
+    }
 
-    private Map<String, FileStats> fileStats = new HashMap<>();
+    /**
+     * @return read-only view of {@link #commitTable}
+     */
+    public List<CommitInfo> getCommits() {
+        return commitTable.view();
+    }
 
     @Data
     public static class RepoInfo {
@@ -32,6 +48,11 @@ public class GitReport {
         private String headCommit;
         private String headShortMessage;
         private Instant headCommitTime;
+
+        // analysis scope, empty / null = whole repository and history
+        private List<String> scopePaths = new ArrayList<>();
+        private Instant since;
+        private Instant until;
     }
 
     @Data
@@ -79,6 +100,11 @@ public class GitReport {
             private String newPath;
             private int linesAdded;
             private int linesDeleted;
+            /**
+             * How the line counts were obtained: FULL (line diff), SIZE
+             * (estimated from blob sizes) or TREE (change only, no counts).
+             */
+            private String tier;
         }
     }
 
@@ -87,5 +113,7 @@ public class GitReport {
         private int commits;
         private int linesAdded;
         private int linesDeleted;
+        private int estimatedCommits; // commits whose counts are not from a line diff
+        private double score; // see git-core.hotspots.scoring
     }
 }
@@ -0,0 +1,302 @@
+package com.jlabs.repo.onboarder.model;
+
+import java.util.*;
+
+/**
+ * Repository paths of one run, interned into a trie with integer ids.
+ * <p>
+ * The files at HEAD (and, with git-core.limits.retainCommits, the paths
+ * changed in history) are stored once, as a node holding its parent id and
+ * its last name component; name components are interned as well, so
+ * "src/main/java" is shared by every file below it. The file list, the corpus
+ * ({@link GitReport#getCorpusFiles()}), the blob index of the analysed tree,
+ * {@link GitReport#getFileStats()} and the {@link CommitTable} refer to paths
+ * by id, and the directory tree is a traversal of {@link #headChildren(int)}
+ * instead of re-splitting strings.
+ * <p>
+ * Trie edges live in an open-addressing table of primitive (parent, name) keys,
+ * two array slots per edge.
+ * <p>
+ * Filled by the collecting thread, read-only afterwards.
+ */
+public class PathIndex {
+
+    public static final int ROOT = 0;
+
+    private static final int[] NONE = new int[0];
+    private static final int NO_CHILD = 0; // ROOT is nobody's child
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final ArrayList<String> names = new ArrayList<>();
+    private long[] edgeKeys = new long[128]; // (parent << 32 | name), see edge()
+    private int[] edgeNodes = new int[128]; // child node, NO_CHILD = free slot
+    private int edges;
+
+    private int size = 1;
+    private int[] parents = new int[64];
+    private int[] nameOf = new int[64];
+
+    private int[] headFiles = NONE; // sorted by path
+    private final BitSet headFileSet = new BitSet();
+    private int[][] headChildren = new int[0][];
+
+    public PathIndex() {
+        nameOf[ROOT] = -1;
+    }
+
+    /**
+     * @return number of nodes, path ids are below this
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Interns a '/'-separated path.
+     *
+     * @return id of the path, -1 for null, {@link #ROOT} for ""
+     */
+    public int id(String path) {
+        if (path == null) {
+            return -1;
+        }
+        if (path.isEmpty()) {
+            return ROOT;
+        }
+        int node = ROOT;
+        int start = 0;
+        while (true) {
+            int slash = path.indexOf('/', start);
+            node = child(node, slash < 0 ? path.substring(start) : path.substring(start, slash));
+            if (slash < 0) {
+                return node;
+            }
+            start = slash + 1;
+        }
+    }
+
+    /**
+     * Looks a path up without interning it.
+     *
+     * @return id of the path, -1 when it is not in the index
+     */
+    public int find(String path) {
+        if (path == null) {
+            return -1;
+        }
+        if (path.isEmpty()) {
+            return ROOT;
+        }
+        int node = ROOT;
+        int start = 0;
+        while (true) {
+            int slash = path.indexOf('/', start);
+            Integer nameId = nameIds.get(slash < 0 ? path.substring(start) : path.substring(start, slash));
+            int child = nameId == null ? NO_CHILD : edgeNodes[edge(node, nameId)];
+            if (child == NO_CHILD) {
+                return -1;
+            }
+            if (slash < 0) {
+                return child;
+            }
+            node = child;
+            start = slash + 1;
+        }
+    }
+
+    /**
+     * @return the path of an id returned by {@link #id(String)}
+     */
+    public String path(int id) {
+        if (id < 0) {
+            return null;
+        }
+        if (id == ROOT) {
+            return "";
+        }
+        int length = -1;
+        for (int n = id; n != ROOT; n = parents[n]) {
+            length += names.get(nameOf[n]).length() + 1;
+        }
+        char[] chars = new char[length];
+        int end = length;
+        for (int n = id; n != ROOT; n = parents[n]) {
+            String name = names.get(nameOf[n]);
+            end -= name.length();
+            name.getChars(0, name.length(), chars, end);
+            if (end > 0) {
+                chars[--end] = '/';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return last path component
+     */
+    public String name(int id) {
+        return id == ROOT ? "" : names.get(nameOf[id]);
+    }
+
+    public int parent(int id) {
+        return parents[id];
+    }
+
+    /**
+     * Sets the files present at HEAD; the rest of the index are paths only
+     * seen in history.
+     */
+    public void setHeadFiles(Collection<String> paths) {
+        List<String> sorted = new ArrayList<>(paths);
+        Collections.sort(sorted);
+
+        headFiles = new int[sorted.size()];
+        headFileSet.clear();
+        for (int i = 0; i < headFiles.length; i++) {
+            headFiles[i] = id(sorted.get(i));
+            headFileSet.set(headFiles[i]);
+        }
+        buildHeadChildren();
+    }
+
+    /**
+     * @return read-only view of the files at HEAD, sorted
+     */
+    public List<String> headFiles() {
+        return new HeadFiles();
+    }
+
+    /**
+     * @param ids path ids to keep
+     * @return ids of the files at HEAD that are in the set, sorted by path
+     */
+    public int[] headFilesIn(BitSet ids) {
+        return Arrays.stream(headFiles).filter(ids::get).toArray();
+    }
+
+    public boolean isHeadFile(int id) {
+        return id >= 0 && headFileSet.get(id);
+    }
+
+    /**
+     * @return children of a directory that are at HEAD (files, or directories
+     *         containing files), sorted by name; must not be modified
+     */
+    public int[] headChildren(int id) {
+        return id < headChildren.length && headChildren[id] != null ? headChildren[id] : NONE;
+    }
+
+    private int child(int parent, String name) {
+        Integer nameId = nameIds.get(name);
+        if (nameId == null) {
+            nameId = names.size();
+            names.add(name);
+            nameIds.put(name, nameId);
+        }
+        int slot = edge(parent, nameId);
+        if (edgeNodes[slot] != NO_CHILD) {
+            return edgeNodes[slot];
+        }
+        int node = addNode(parent, nameId);
+        edgeKeys[slot] = key(parent, nameId);
+        edgeNodes[slot] = node;
+        if (++edges * 2 > edgeKeys.length) {
+            growEdges();
+        }
+        return node;
+    }
+
+    /**
+     * @return slot of the edge in the edge table, or the free slot where it
+     *         belongs (linear probing, kept at most half full)
+     */
+    private int edge(int parent, int nameId) {
+        long key = key(parent, nameId);
+        int mask = edgeKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (edgeNodes[slot] != NO_CHILD && edgeKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growEdges() {
+        long[] keys = edgeKeys;
+        int[] nodes = edgeNodes;
+        edgeKeys = new long[keys.length * 2];
+        edgeNodes = new int[nodes.length * 2];
+        int mask = edgeKeys.length - 1;
+        for (int i = 0; i < keys.length; i++) {
+            if (nodes[i] != NO_CHILD) {
+                int slot = hash(keys[i]) & mask;
+                while (edgeNodes[slot] != NO_CHILD) {
+                    slot = (slot + 1) & mask;
+                }
+                edgeKeys[slot] = keys[i];
+                edgeNodes[slot] = nodes[i];
+            }
+        }
+    }
+
+    private static long key(int parent, int nameId) {
+        return ((long) parent << 32) | nameId;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int addNode(int parent, int nameId) {
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            nameOf = Arrays.copyOf(nameOf, size * 2);
+        }
+        parents[size] = parent;
+        nameOf[size] = nameId;
+        return size++;
+    }
+
+    private void buildHeadChildren() {
+        BitSet atHead = new BitSet();
+        int[] counts = new int[size];
+        for (int file : headFiles) {
+            for (int n = file; n != ROOT && !atHead.get(n); n = parents[n]) {
+                atHead.set(n);
+                counts[parents[n]]++;
+            }
+        }
+
+        headChildren = new int[size][];
+        for (int n = atHead.nextSetBit(0); n >= 0; n = atHead.nextSetBit(n + 1)) {
+            int parent = parents[n];
+            if (headChildren[parent] == null) {
+                headChildren[parent] = new int[counts[parent]];
+                counts[parent] = 0;
+            }
+            headChildren[parent][counts[parent]++] = n;
+        }
+        for (int[] list : headChildren) {
+            if (list != null && list.length > 1) {
+                Integer[] boxed = Arrays.stream(list).boxed().toArray(Integer[]::new);
+                Arrays.sort(boxed, Comparator.comparing(this::name));
+                for (int i = 0; i < boxed.length; i++) {
+                    list[i] = boxed[i];
+                }
+            }
+        }
+    }
+
+    private final class HeadFiles extends AbstractList<String> implements RandomAccess {
+
+        @Override
+        public String get(int index) {
+            return path(headFiles[index]);
+        }
+
+        @Override
+        public int size() {
+            return headFiles.length;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.jlabs.repo.onboarder.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only text stored as fixed-size segments.
+ * <p>
+ * Used for the repository context, which can be tens of MB: appending never
+ * copies what is already stored (a growing StringBuilder copies everything on
+ * each resize) and the text can be written out segment by segment, so no
+ * full-size String exists unless {@link #toString()} is called. Segments are
+ * StringBuilders, so ASCII content keeps one byte per character.
+ * <p>
+ * Not thread-safe; read-only once built.
+ */
+public final class SegmentedText implements CharSequence, Appendable {
+
+    private static final int SEGMENT = 64 * 1024;
+
+    private final List<StringBuilder> segments = new ArrayList<>();
+    private int length;
+
+    @Override
+    public SegmentedText append(CharSequence text) {
+        return text == null ? append("null") : append(text, 0, text.length());
+    }
+
+    @Override
+    public SegmentedText append(CharSequence text, int start, int end) {
+        if (text == null) {
+            return append("null");
+        }
+        while (start < end) {
+            StringBuilder segment = current();
+            int n = Math.min(end - start, SEGMENT - segment.length());
+            segment.append(text, start, start + n);
+            start += n;
+            length += n;
+        }
+        return this;
+    }
+
+    @Override
+    public SegmentedText append(char c) {
+        current().append(c);
+        length++;
+        return this;
+    }
+
+    public SegmentedText append(long value) {
+        return append(Long.toString(value));
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return segments.get(index / SEGMENT).charAt(index % SEGMENT);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end;) {
+            StringBuilder segment = segments.get(i / SEGMENT);
+            int offset = i % SEGMENT;
+            int n = Math.min(end - i, segment.length() - offset);
+            sb.append(segment, offset, offset + n);
+            i += n;
+        }
+        return sb;
+    }
+
+    /**
+     * Writes the text segment by segment.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        for (StringBuilder segment : segments) {
+            writer.append(segment);
+        }
+    }
+
+    /**
+     * Writes the characters in [start, end) segment by segment.
+     */
+    public void writeTo(Writer writer, int start, int end) throws IOException {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ") of " + length);
+        }
+        for (int i = start; i < end;) {
+            StringBuilder segment = segments.get(i / SEGMENT);
+            int offset = i % SEGMENT;
+            int n = Math.min(end - i, segment.length() - offset);
+            writer.append(segment, offset, offset + n);
+            i += n;
+        }
+    }
+
+    /**
+     * @return the whole text as one String (a full copy, meant for APIs that
+     *         only take a String)
+     */
+    @Override
+    public String toString() {
+        return String.join("", segments);
+    }
+
+    private StringBuilder current() {
+        StringBuilder last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (last == null || last.length() == SEGMENT) {
+            last = new StringBuilder(SEGMENT);
+            segments.add(last);
+        }
+        return last;
+    }
+}
@@ -2,7 +2,6 @@ package com.jlabs.repo.onboarder.service;
 
 import com.jlabs.repo.onboarder.infrastructure.springai.ChatModelClient;
 import com.jlabs.repo.onboarder.model.DocumentationResult;
-import com.jlabs.repo.onboarder.model.GitReport;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
@@ -12,6 +11,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -20,23 +20,25 @@ public class AiJudgeService {
 
     private final ChatModelClient chatModelClient;
     private final PromptConstructionService promptConstructionService;
+    private final ResponseCacheService responseCacheService;
 
     private static final String JUDGE_PROMPT_TEMPLATE_PATH = "prompts/judge-validation-template.md";
-    private static final String DOCUMENTATION_TYPE = "Validation Report";
+    static final String DOCUMENTATION_TYPE = "Validation Report";
     private static final String OUTPUT_DEBUG_FILENAME = "generated_validation_report_debug.md";
 
     /**
      * Validates usage of generated documents against repository context.
      *
      * @param result         Generated documentation result containing all documents
-     * @param report         Git analysis report
-     * @param repoRoot       Path to repo root
+     * @param context        Repository context of the run
      * @param debugOutputDir Directory for debug files
      * @param cacheName      Name of cached content (optional)
      * @param targetLanguage Target language for the report
+     * @param responseCache  How the response cache is used; the documents are
+     *                       part of the key
      */
-    public void validate(DocumentationResult result, GitReport report, Path repoRoot, Path debugOutputDir,
-            String cacheName, String targetLanguage) {
+    public void validate(DocumentationResult result, RepositoryContext context, Path debugOutputDir,
+            String cacheName, String targetLanguage, ResponseCacheService.Mode responseCache) {
 
         log.info("Starting AI Judge validation...");
 
@@ -52,6 +54,21 @@ public class AiJudgeService {
         String instructionTemplate = loadResource(JUDGE_PROMPT_TEMPLATE_PATH);
         String finalInstructions = instructionTemplate.replace("$GENERATED_DOCUMENTATION_PLACEHOLDER$", aggregatedDocs);
 
+        String responseKey = responseCacheService.isUsed(responseCache)
+                ? responseCacheService.key(context, targetLanguage,
+                        responseCacheService.template(promptTemplatePath), finalInstructions)
+                : null;
+        Optional<String> cached = responseKey != null
+                ? responseCacheService.load(responseKey, responseCache)
+                : Optional.empty();
+        if (cached.isPresent()) {
+            String content = extractMarkdownFromCodeBlock(cached.get());
+            saveDebugFile(debugOutputDir, OUTPUT_DEBUG_FILENAME, content);
+            result.addDocument(DOCUMENTATION_TYPE, content);
+            log.info("AI Judge validation served from the response cache.");
+            return;
+        }
+
         String promptText;
         if (cacheName != null) {
             promptText = promptConstructionService.constructPromptWithCacheAndContent(
@@ -61,7 +78,7 @@ public class AiJudgeService {
                     targetLanguage);
         } else {
             promptText = promptConstructionService.constructPromptWithContent(
-                    promptConstructionService.prepareRepositoryContext(report, repoRoot),
+                    context.xml(),
                     promptTemplatePath,
                     finalInstructions,
                     targetLanguage);
@@ -73,6 +90,9 @@ public class AiJudgeService {
         // 5. Call AI
         GoogleGenAiChatOptions chatOptions = createChatOptions(cacheName);
         String responseText = chatModelClient.call(promptText, chatOptions);
+        if (responseKey != null) {
+            responseCacheService.save(responseKey, responseCache, responseText);
+        }
         String content = extractMarkdownFromCodeBlock(responseText);
 
         // 6. Save debug output
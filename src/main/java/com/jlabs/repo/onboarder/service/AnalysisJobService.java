@@ -0,0 +1,326 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.AnalysisScope;
+import com.jlabs.repo.onboarder.model.AnalysisJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs analyses in the background and exposes their progress.
+ * <p>
+ * Jobs are executed on a bounded pool (git-core.jobs.maxConcurrent workers,
+ * git-core.jobs.queueCapacity waiting jobs), so request threads return as soon
+ * as a job is queued. Progress events are kept on the job and pushed to
+ * server-sent-event subscribers; late subscribers get the events replayed.
+ * Finished jobs are kept in memory for git-core.jobs.retention and purged
+ * every git-core.jobs.purgeInterval.
+ * <p>
+ * Every job has one {@link JobStream} sending to its subscribers: sends are
+ * queued while the job's lock is held, in the order events get their
+ * sequence, and run one at a time on a virtual thread. Subscribers therefore
+ * see events in sequence order, replays do not interleave with live events,
+ * and a slow client holds up only its job's stream, never the publishers.
+ */
+@Service
+@Slf4j
+public class AnalysisJobService {
+
+    public static final String DONE_EVENT = "done";
+
+    private final GitCoreRunner runner;
+    private final GitCoreProperties properties;
+    private final ThreadPoolExecutor executor;
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, JobStream> streams = new ConcurrentHashMap<>(); // jobs not finished yet
+
+    public AnalysisJobService(GitCoreRunner runner, GitCoreProperties properties) {
+        this.runner = runner;
+        this.properties = properties;
+
+        GitCoreProperties.Jobs cfg = properties.getJobs();
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                cfg.getMaxConcurrent(), cfg.getMaxConcurrent(),
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(cfg.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "analysis-job-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queues a new analysis.
+     *
+     * @throws RejectedExecutionException when the queue is full
+     * @throws IllegalArgumentException   when since is after until
+     */
+    public AnalysisJob submit(String repoUrl, String branch, boolean withTest, String targetLanguage,
+            List<String> paths, LocalDate since, LocalDate until, ResponseCacheService.Mode responseCache) {
+        AnalysisScope scope = AnalysisScope.of(paths, since, until);
+
+        AnalysisJob job = new AnalysisJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setRepoUrl(repoUrl);
+        job.setBranch(branch);
+        job.setWithTest(withTest);
+        job.setTargetLanguage(targetLanguage);
+        job.setPaths(scope.paths());
+        job.setSince(since);
+        job.setUntil(until);
+        job.setResponseCache(responseCache);
+
+        jobs.put(job.getId(), job);
+        streams.put(job.getId(), new JobStream());
+        try {
+            executor.execute(() -> execute(job, scope));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            streams.remove(job.getId());
+            throw e;
+        }
+
+        log.info("Job {} queued for {} ({})", job.getId(), repoUrl, branch);
+        return job;
+    }
+
+    public Optional<AnalysisJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Subscribes to progress events of a job. Events published so far are
+     * replayed first; the stream completes after the terminal "done" event.
+     * While documents are generated, "chunk" events carry their text as the
+     * model streams it (not replayed).
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        AnalysisJob job = jobs.get(jobId);
+        if (job == null) {
+            return Optional.empty();
+        }
+
+        SseEmitter emitter = new SseEmitter(properties.getJobs().getSseTimeout().toMillis());
+
+        synchronized (job) {
+            List<AnalysisJob.ProgressEvent> replay = List.copyOf(job.getEvents());
+            JobStream stream = streams.get(jobId);
+            if (stream != null) {
+                // after the sends queued so far, before the ones of later events
+                stream.submit(() -> {
+                    try {
+                        for (AnalysisJob.ProgressEvent event : replay) {
+                            send(emitter, event);
+                        }
+                    } catch (IOException e) {
+                        emitter.completeWithError(e);
+                        return;
+                    }
+                    stream.subscribers.add(emitter);
+                    emitter.onCompletion(() -> stream.subscribers.remove(emitter));
+                    emitter.onTimeout(() -> stream.subscribers.remove(emitter));
+                    emitter.onError(e -> stream.subscribers.remove(emitter));
+                });
+                return Optional.of(emitter);
+            }
+        }
+
+        // finished: nothing is published any more
+        try {
+            for (AnalysisJob.ProgressEvent event : job.getEvents()) {
+                send(emitter, event);
+            }
+            sendDone(emitter, job);
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void execute(AnalysisJob job, AnalysisScope scope) {
+        job.setStatus(AnalysisJob.Status.RUNNING);
+        job.setStartedAt(Instant.now());
+        publish(job, "started", null);
+
+        try {
+            job.setResult(runner.run(job.getRepoUrl(), job.getBranch(), job.isWithTest(), job.getTargetLanguage(),
+                    scope, job.getResponseCache(), new ProgressListener() {
+                        @Override
+                        public void onStage(String stage, String message) {
+                            publish(job, stage, message);
+                        }
+
+                        @Override
+                        public void onChunk(String documentType, int offset, String text) {
+                            publishChunk(job, documentType, offset, text);
+                        }
+                    }));
+            finish(job, AnalysisJob.Status.COMPLETED, null);
+        } catch (Exception e) {
+            log.error("Job {} failed", job.getId(), e);
+            finish(job, AnalysisJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void publish(AnalysisJob job, String stage, String message) {
+        synchronized (job) {
+            AnalysisJob.ProgressEvent event = append(job, stage, message);
+            JobStream stream = streams.get(job.getId());
+            stream.submit(() -> sendAll(job, stream, emitter -> send(emitter, event)));
+        }
+    }
+
+    /**
+     * Forwards a piece of a generated document to the current subscribers.
+     * Chunks are not kept in the job: a late subscriber gets the documents
+     * from the result.
+     */
+    private void publishChunk(AnalysisJob job, String documentType, int offset, String text) {
+        synchronized (job) {
+            JobStream stream = streams.get(job.getId());
+            stream.submit(() -> sendAll(job, stream, emitter -> emitter.send(SseEmitter.event()
+                    .name(ProgressListener.CHUNK)
+                    .data(Map.of("document", documentType, "offset", offset, "text", text)))));
+        }
+    }
+
+    private void finish(AnalysisJob job, AnalysisJob.Status status, String error) {
+        synchronized (job) {
+            job.setError(error);
+            job.setFinishedAt(Instant.now());
+            job.setStatus(status);
+            AnalysisJob.ProgressEvent event = append(job, status.name().toLowerCase(), error);
+            JobStream stream = streams.remove(job.getId());
+            stream.submit(() -> {
+                for (SseEmitter emitter : stream.subscribers) {
+                    try {
+                        send(emitter, event);
+                        sendDone(emitter, job);
+                        emitter.complete();
+                    } catch (Exception e) {
+                        emitter.completeWithError(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the next progress event to the job; the caller holds the job's
+     * lock and queues the event's send before releasing it, so sends run in
+     * sequence order.
+     */
+    private AnalysisJob.ProgressEvent append(AnalysisJob job, String stage, String message) {
+        AnalysisJob.ProgressEvent event = new AnalysisJob.ProgressEvent();
+        event.setSequence(job.getEvents().size() + 1);
+        event.setStage(stage);
+        event.setMessage(message);
+
+        job.setStage(stage);
+        job.getEvents().add(event);
+        return event;
+    }
+
+    private void sendAll(AnalysisJob job, JobStream stream, EmitterSend send) {
+        for (SseEmitter emitter : stream.subscribers) {
+            try {
+                send.to(emitter);
+            } catch (Exception e) {
+                log.debug("Dropping SSE subscriber of job {}: {}", job.getId(), e.getMessage());
+                stream.subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void send(SseEmitter emitter, AnalysisJob.ProgressEvent event) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(event.getSequence()))
+                .name(event.getStage())
+                .data(event));
+    }
+
+    private void sendDone(SseEmitter emitter, AnalysisJob job) throws IOException {
+        emitter.send(SseEmitter.event()
+                .name(DONE_EVENT)
+                .data(Map.of("jobId", job.getId(), "status", job.getStatus().name())));
+    }
+
+    @Scheduled(fixedDelayString = "${git-core.jobs.purge-interval:PT1M}")
+    void purgeExpired() {
+        Instant threshold = Instant.now().minus(properties.getJobs().getRetention());
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(threshold));
+    }
+
+    @FunctionalInterface
+    private interface EmitterSend {
+        void to(SseEmitter emitter) throws IOException;
+    }
+
+    /**
+     * Subscribers of a running job and the queue of sends to them, run one at
+     * a time in submission order.
+     */
+    private final class JobStream {
+
+        private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+        private final Queue<Runnable> sends = new ArrayDeque<>();
+        private boolean sending;
+
+        void submit(Runnable send) {
+            synchronized (this) {
+                sends.add(send);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            senders.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Runnable send;
+                synchronized (this) {
+                    send = sends.poll();
+                    if (send == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    send.run();
+                } catch (RuntimeException e) {
+                    log.warn("SSE send failed", e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        senders.shutdownNow();
+    }
+}
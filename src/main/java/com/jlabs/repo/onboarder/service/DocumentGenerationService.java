@@ -9,6 +9,8 @@ import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Abstract base class for generating specific types of documentation.
@@ -19,32 +21,77 @@ public abstract class DocumentGenerationService {
 
     protected final ChatModelClient chatModelClient;
     protected final PromptConstructionService promptConstructionService;
+    protected final ResponseCacheService responseCacheService;
 
     protected DocumentGenerationService(ChatModelClient chatModelClient,
-            PromptConstructionService promptConstructionService) {
+            PromptConstructionService promptConstructionService, ResponseCacheService responseCacheService) {
         this.chatModelClient = chatModelClient;
         this.promptConstructionService = promptConstructionService;
+        this.responseCacheService = responseCacheService;
     }
 
     /**
      * Template method to generate a document, save debug info, and add to result.
+     * <p>
+     * With a listener other than {@link ProgressListener#NONE} the response is
+     * streamed and the document passed to {@link ProgressListener#onChunk} as
+     * it arrives, code fences already removed.
+     * <p>
+     * A response found in the {@link ResponseCacheService response cache} is
+     * used instead of calling the model (and passed to the listener as one
+     * chunk); a new response is stored, as the mode allows.
      */
-    public void generate(DocumentationResult result, GitReport report, Path repoRoot, Path debugOutputDir,
-            String cacheName, String targetLanguage) {
+    public void generate(DocumentationResult result, RepositoryContext context, Path debugOutputDir,
+            String cacheName, String targetLanguage, ResponseCacheService.Mode responseCache,
+            ProgressListener progress) {
+        String language = getTargetLanguage(targetLanguage);
+
+        // 0. Serve from the response cache
+        String responseKey = responseCacheService.isUsed(responseCache) ? responseCacheKey(context, language) : null;
+        Optional<String> cached = responseKey != null
+                ? responseCacheService.load(responseKey, responseCache)
+                : Optional.empty();
+        if (cached.isPresent()) {
+            log.info("{} served from the response cache", getDocumentType());
+            String content = postProcess(extractMarkdownFromCodeBlock(cached.get()), context.getReport());
+            if (progress != ProgressListener.NONE) {
+                progress.onChunk(getDocumentType(), 0, content);
+            }
+            saveDebugFile(debugOutputDir, getOutputDebugFileName(), content);
+            addToResult(result, content);
+            return;
+        }
+
         // 1. Construct prompt
-        String promptText = constructPrompt(cacheName, getPromptTemplatePath(), getDocTemplatePath(), report, repoRoot,
-                targetLanguage);
+        String promptText = constructPrompt(cacheName, getPromptTemplatePath(), getDocTemplatePath(), context,
+                language);
 
         // 2. Save prompt to debug file
         saveDebugFile(debugOutputDir, createDebugPromptFilename(getPromptTemplatePath()), promptText);
 
-        // 3. Call AI
+        // 3. Call AI (streaming when someone listens)
         GoogleGenAiChatOptions chatOptions = createChatOptions(cacheName);
-        String responseText = chatModelClient.call(promptText, chatOptions);
-        String content = extractMarkdownFromCodeBlock(responseText);
+        String response;
+        String content;
+        DocumentStream stream = null;
+        if (progress == ProgressListener.NONE) {
+            response = chatModelClient.call(promptText, chatOptions);
+            content = extractMarkdownFromCodeBlock(response);
+        } else {
+            stream = new DocumentStream(progress);
+            response = chatModelClient.stream(promptText, chatOptions, stream);
+            content = stream.extractor.finish();
+        }
+        if (responseKey != null) {
+            responseCacheService.save(responseKey, responseCache, response);
+        }
 
         // 4. Post-processing (Hook)
-        content = postProcess(content, report);
+        String extracted = content;
+        content = postProcess(content, context.getReport());
+        if (stream != null) {
+            stream.extractor.update(extracted, content);
+        }
 
         // 5. Save generated content to debug file
         saveDebugFile(debugOutputDir, getOutputDebugFileName(), content);
@@ -66,6 +113,38 @@ public abstract class DocumentGenerationService {
 
     protected abstract String getDocumentType();
 
+    /**
+     * Language the document is written in, for the requested one.
+     */
+    protected String getTargetLanguage(String requested) {
+        return requested;
+    }
+
+    /**
+     * @return true when the response of this generator would be served from
+     *         the response cache
+     */
+    boolean isResponseCached(RepositoryContext context, String targetLanguage,
+            ResponseCacheService.Mode responseCache) {
+        return responseCacheService.isUsed(responseCache) && responseCacheService.contains(
+                responseCacheKey(context, getTargetLanguage(targetLanguage)), responseCache);
+    }
+
+    private String responseCacheKey(RepositoryContext context, String language) {
+        return responseCacheService.key(context, language,
+                responseCacheService.template(getPromptTemplatePath()),
+                responseCacheService.template(getDocTemplatePath()));
+    }
+
+    /**
+     * Document types this generator reads from the result; it runs after them
+     * and gets their documents in the result passed to {@link #generate}.
+     * Generators without dependencies run in parallel.
+     */
+    protected Set<String> getDependencies() {
+        return Set.of();
+    }
+
     // Hook for post-processing (default implementation does nothing)
     protected String postProcess(String content, GitReport report) {
         return content;
@@ -74,14 +153,14 @@ public abstract class DocumentGenerationService {
     // Helper methods
 
     private String constructPrompt(String cacheName, String promptTemplatePath, String docTemplatePath,
-            GitReport report, Path repoRoot, String targetLanguage) {
+            RepositoryContext context, String targetLanguage) {
         if (cacheName != null) {
             log.debug("Generating document using cache: {}", cacheName);
             return promptConstructionService.constructPromptWithCache(cacheName, promptTemplatePath, docTemplatePath,
                     targetLanguage);
         } else {
             log.debug("Generating document without cache (full prompt)");
-            return promptConstructionService.constructPrompt(report, repoRoot, promptTemplatePath, docTemplatePath,
+            return promptConstructionService.constructPrompt(context.xml(), promptTemplatePath, docTemplatePath,
                     targetLanguage);
         }
     }
@@ -121,7 +200,7 @@ public abstract class DocumentGenerationService {
         }
     }
 
-    private String extractMarkdownFromCodeBlock(String responseText) {
+    static String extractMarkdownFromCodeBlock(String responseText) {
         if (responseText == null || responseText.isBlank()) {
             return responseText;
         }
@@ -154,4 +233,29 @@ public abstract class DocumentGenerationService {
 
         return trimmed;
     }
+
+    /**
+     * Feeds the streamed response of the current attempt into a
+     * {@link MarkdownStreamExtractor}; a new attempt starts the document over.
+     */
+    private final class DocumentStream implements ChatModelClient.StreamListener {
+
+        private final ProgressListener progress;
+        private MarkdownStreamExtractor extractor;
+
+        private DocumentStream(ProgressListener progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void onAttempt() {
+            extractor = new MarkdownStreamExtractor(DocumentGenerationService::extractMarkdownFromCodeBlock,
+                    (offset, text) -> progress.onChunk(getDocumentType(), offset, text));
+        }
+
+        @Override
+        public void onText(String text) {
+            extractor.append(text);
+        }
+    }
 }
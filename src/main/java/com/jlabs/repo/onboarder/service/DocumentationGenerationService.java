@@ -1,28 +1,76 @@
 package com.jlabs.repo.onboarder.service;
 
 import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.git.SourceTree;
 import com.jlabs.repo.onboarder.model.DocumentationResult;
 import com.jlabs.repo.onboarder.model.GitReport;
-import lombok.RequiredArgsConstructor;
+import com.jlabs.repo.onboarder.model.SegmentedText;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class DocumentationGenerationService {
 
+    static final String CONTEXT_BUILDS_METRIC = "onboarder.repository.context.builds";
+    private static final int CACHE_LOCK_STRIPES = 64;
+
     private final PromptConstructionService promptConstructionService;
     private final RepositoryCacheService repositoryCacheService;
     private final AiProperties aiProperties;
     private final AiJudgeService aiJudgeService;
     private final List<DocumentGenerationService> documentGenerators;
+    private final MeterRegistry meterRegistry;
+
+    // striped by cache name, so concurrent runs of the same repository context
+    // do not both create a cache; fixed size, unlike a lock per repository URL
+    private final Object[] cacheLocks = new Object[CACHE_LOCK_STRIPES];
+
+    // generators in an order where every generator comes after its dependencies
+    private final List<DocumentGenerationService> executionOrder;
+    private final ThreadPoolExecutor executor;
+
+    public DocumentationGenerationService(PromptConstructionService promptConstructionService,
+            RepositoryCacheService repositoryCacheService, AiProperties aiProperties, AiJudgeService aiJudgeService,
+            List<DocumentGenerationService> documentGenerators, MeterRegistry meterRegistry) {
+        this.promptConstructionService = promptConstructionService;
+        this.repositoryCacheService = repositoryCacheService;
+        this.aiProperties = aiProperties;
+        this.aiJudgeService = aiJudgeService;
+        this.documentGenerators = documentGenerators;
+        this.meterRegistry = meterRegistry;
+        this.executionOrder = executionOrder(documentGenerators);
+        for (int i = 0; i < cacheLocks.length; i++) {
+            cacheLocks[i] = new Object();
+        }
+
+        int maxConcurrent = Math.max(1, aiProperties.getGeneration().getMaxConcurrent());
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrent, maxConcurrent,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "document-generator-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
 
     /**
      * Generates documentation for the repository using the AI model with cache.
@@ -30,27 +78,63 @@ public class DocumentationGenerationService {
      * Flow:
      * 1. Ensures repository context cache availability (checks/creates)
      * 2. Runs generators for individual documents (AI Context, README, Refactoring,
-     * DDD)
-     * 3. Returns the result
+     * DDD) in parallel on a bounded executor (spring.ai.google.genai.generation),
+     * each one after the generators it depends on
+     * 3. Runs the judge once all generators are done
+     * 4. Returns the result, documents in generator order
+     * <p>
+     * A failing generator does not fail the run: its error is recorded in
+     * {@link DocumentationResult#getFailures()} and only generators depending on
+     * it are skipped. The run fails only when no document could be generated.
      * <p>
      * The cache contains the repository context XML (directory tree, hotspots,
      * commits,
-     * source code) and is identified by the repository URL. It automatically
+     * source code) and is identified by the repository URL and the context
+     * fingerprint, so a run scoped by paths or dates, on another branch or with
+     * other file selection gets its own cache. It automatically
      * expires
      * after the configured TTL.
      * Reusing cache for multiple documents saves costs and time.
+     * <p>
+     * The repository context is built once per run ({@link RepositoryContext})
+     * and shared by the cache lookup, the response cache and all prompts; the
+     * number of builds is recorded in the {@value #CONTEXT_BUILDS_METRIC} summary (max 1).
      *
      * @param report         report from Git repository analysis
-     * @param repoRoot       path to the repository root directory
+     * @param sourceTree     contents of the analysed revision
      * @param debugOutputDir directory for saving debug files
      * @return documentation generation result
      */
-    public DocumentationResult generateDocumentation(GitReport report, Path repoRoot, Path debugOutputDir,
+    public DocumentationResult generateDocumentation(GitReport report, SourceTree sourceTree, Path debugOutputDir,
             String targetLanguage) {
+        return generateDocumentation(report, sourceTree, debugOutputDir, targetLanguage,
+                ResponseCacheService.Mode.USE, ProgressListener.NONE);
+    }
+
+    /**
+     * Same as {@link #generateDocumentation(GitReport, SourceTree, Path, String)},
+     * using the response cache as the mode says and reporting a "generate"
+     * stage per generator and the "judge" stage.
+     * <p>
+     * When every generator's response is cached no model cache is created, so
+     * a run over an unchanged revision spends no tokens (unless the judge's
+     * response was evicted).
+     */
+    public DocumentationResult generateDocumentation(GitReport report, SourceTree sourceTree, Path debugOutputDir,
+            String targetLanguage, ResponseCacheService.Mode responseCache, ProgressListener progress) {
         log.info("Starting documentation generation for repo: {}", report.getRepo().getUrl());
 
-        // 1. Ensure cache availability (once for all documents)
-        String repositoryContentCacheName = ensureRepositoryContentCache(report, repoRoot, debugOutputDir);
+        RepositoryContext context = new RepositoryContext(report, sourceTree,
+                () -> promptConstructionService.prepareRepositoryContext(report, sourceTree),
+                xml -> promptConstructionService.fingerprint(xml, report));
+
+        // 1. Ensure cache availability (once for all documents), unless no
+        // generator needs the model
+        boolean allCached = !documentGenerators.isEmpty() && documentGenerators.stream()
+                .allMatch(g -> g.isResponseCached(context, targetLanguage, responseCache));
+        String repositoryContentCacheName = allCached
+                ? null
+                : ensureRepositoryContentCache(context, debugOutputDir);
 
         DocumentationResult result = new DocumentationResult();
 
@@ -59,13 +143,20 @@ public class DocumentationGenerationService {
                 .map(g -> g.getClass().getSimpleName())
                 .toList());
 
-        for (DocumentGenerationService generator : documentGenerators) {
-            generator.generate(result, report, repoRoot, debugOutputDir, repositoryContentCacheName, targetLanguage);
-        }
+        runGenerators(result, context, debugOutputDir, repositoryContentCacheName, targetLanguage, responseCache,
+                progress);
 
-        aiJudgeService.validate(result, report, repoRoot, debugOutputDir, repositoryContentCacheName, targetLanguage);
+        progress.onStage(ProgressListener.JUDGE, null);
+        try {
+            aiJudgeService.validate(result, context, debugOutputDir, repositoryContentCacheName, targetLanguage,
+                    responseCache);
+        } catch (RuntimeException e) {
+            log.error("AI Judge validation failed", e);
+            result.addFailure(AiJudgeService.DOCUMENTATION_TYPE, String.valueOf(e.getMessage()));
+        }
 
-        log.info("Documentation generated successfully");
+        meterRegistry.summary(CONTEXT_BUILDS_METRIC).record(context.getBuilds());
+        log.info("Documentation generated successfully (repository context builds: {})", context.getBuilds());
         result.getDocuments().forEach((type, content) -> {
             log.debug("{} length: {} chars", type, content != null ? content.length() : 0);
         });
@@ -73,22 +164,136 @@ public class DocumentationGenerationService {
         return result;
     }
 
+    /**
+     * Runs the generators as a dependency graph: a generator is submitted as
+     * soon as all its dependencies have completed, so independent generators
+     * run in parallel and the calling thread only waits for the last one.
+     * Every generator writes into its own result, seeded with the documents
+     * of its dependencies; only the documents it added are merged, in generator
+     * order, so the output does not depend on completion order.
+     */
+    private void runGenerators(DocumentationResult result, RepositoryContext context, Path debugOutputDir,
+            String cacheName, String targetLanguage, ResponseCacheService.Mode responseCache,
+            ProgressListener progress) {
+        Map<String, CompletableFuture<DocumentationResult>> nodes = new HashMap<>();
+        Map<String, RuntimeException> failures = new ConcurrentHashMap<>();
+
+        for (DocumentGenerationService generator : executionOrder) {
+            String type = generator.getDocumentType();
+            List<CompletableFuture<DocumentationResult>> dependencies = generator.getDependencies().stream()
+                    .map(nodes::get)
+                    .toList();
+
+            nodes.put(type, CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new))
+                    .thenApplyAsync(ignored -> {
+                        // failed generators complete with null
+                        DocumentationResult own = new DocumentationResult();
+                        for (CompletableFuture<DocumentationResult> dependency : dependencies) {
+                            DocumentationResult input = dependency.join();
+                            if (input == null) {
+                                failures.put(type, new IllegalStateException("Skipped, a dependency failed"));
+                                return null;
+                            }
+                            own.getDocuments().putAll(input.getDocuments());
+                        }
+                        List<String> inputs = List.copyOf(own.getDocuments().keySet());
+                        try {
+                            progress.onStage(ProgressListener.GENERATE, type);
+                            generator.generate(own, context, debugOutputDir, cacheName, targetLanguage, responseCache,
+                                    progress);
+                            inputs.forEach(own.getDocuments()::remove);
+                            return own;
+                        } catch (RuntimeException e) {
+                            log.error("Generation of {} failed", type, e);
+                            failures.put(type, e);
+                            return null;
+                        }
+                    }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(nodes.values().toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            nodes.values().forEach(node -> node.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Documentation generation interrupted", e);
+        } catch (ExecutionException e) {
+            // generator errors are caught inside the nodes
+            throw new IllegalStateException(e.getCause());
+        }
+
+        for (DocumentGenerationService generator : documentGenerators) {
+            String type = generator.getDocumentType();
+            DocumentationResult own = nodes.get(type).join();
+            if (own != null) {
+                own.getDocuments().forEach(result::addDocument);
+            } else {
+                result.addFailure(type, String.valueOf(failures.get(type).getMessage()));
+            }
+        }
+
+        if (!documentGenerators.isEmpty() && failures.size() == documentGenerators.size()) {
+            throw failures.get(executionOrder.get(0).getDocumentType());
+        }
+    }
+
+    /**
+     * Orders the generators so that each comes after its dependencies, keeping
+     * the configured order otherwise.
+     *
+     * @throws IllegalStateException on an unknown document type or a cycle
+     */
+    private static List<DocumentGenerationService> executionOrder(List<DocumentGenerationService> generators) {
+        Map<String, DocumentGenerationService> byType = new LinkedHashMap<>();
+        for (DocumentGenerationService generator : generators) {
+            byType.put(generator.getDocumentType(), generator);
+        }
+        for (DocumentGenerationService generator : generators) {
+            for (String dependency : generator.getDependencies()) {
+                if (!byType.containsKey(dependency)) {
+                    throw new IllegalStateException(generator.getDocumentType()
+                            + " depends on unknown document type " + dependency);
+                }
+            }
+        }
+
+        List<DocumentGenerationService> order = new ArrayList<>();
+        while (order.size() < generators.size()) {
+            DocumentGenerationService ready = generators.stream()
+                    .filter(g -> !order.contains(g))
+                    .filter(g -> g.getDependencies().stream().allMatch(d -> order.contains(byType.get(d))))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(
+                            "Cyclic dependencies between document generators"));
+            order.add(ready);
+        }
+        return order;
+    }
+
     /**
      * Ensures availability of cache with repository context.
      * Checks if cache exists, if not - tries to create it.
      *
-     * @param report         Git report
-     * @param repoRoot       path to repository
+     * @param context        repository context of the run
      * @param debugOutputDir debug directory
      * @return cache name (full name in format cachedContent/xxx) or null if
      *         cache unavailable
      */
-    private String ensureRepositoryContentCache(GitReport report, Path repoRoot, Path debugOutputDir) {
-        String repoUrl = report.getRepo().getUrl();
+    private String ensureRepositoryContentCache(RepositoryContext context, Path debugOutputDir) {
+        String repoUrl = context.getReport().getRepo().getUrl();
         String model = aiProperties.getChat().getOptions().getModel();
+        String fingerprint = context.fingerprint();
 
-        // 1. Check if cache for repository already exists
-        Optional<String> cachedContentName = repositoryCacheService.getCachedContentName(repoUrl);
+        String cacheName = repositoryCacheService.getCacheName(repoUrl, fingerprint);
+        synchronized (cacheLocks[Math.floorMod(cacheName.hashCode(), cacheLocks.length)]) {
+            return ensureRepositoryContentCache(context, debugOutputDir, repoUrl, fingerprint, model);
+        }
+    }
+
+    private String ensureRepositoryContentCache(RepositoryContext context, Path debugOutputDir,
+            String repoUrl, String fingerprint, String model) {
+        // 1. Check if cache for this repository context already exists
+        Optional<String> cachedContentName = repositoryCacheService.getCachedContentName(repoUrl, fingerprint);
 
         if (cachedContentName.isPresent()) {
             // Cache exists - return its name
@@ -99,12 +304,13 @@ public class DocumentationGenerationService {
         // 2. Cache does not exist - try to create new one
         log.info("Cache does not exist for repo: {}, attempting to create new one...", repoUrl);
 
-        // Prepare repository context XML
-        String repoContextXml = promptConstructionService.prepareRepositoryContext(report, repoRoot);
+        // Repository context XML (already built for the fingerprint, reused by
+        // the prompts if no cache can be created)
+        SegmentedText repoContextXml = context.xml();
         saveDebugFile(debugOutputDir, "ai_context_prompt_debug.txt", repoContextXml);
 
         // Try to create cached content
-        String newCacheName = repositoryCacheService.createCachedContent(repoUrl, repoContextXml, model);
+        String newCacheName = repositoryCacheService.createCachedContent(repoUrl, fingerprint, repoContextXml, model);
 
         if (newCacheName != null) {
             log.info("Cache created successfully");
@@ -116,7 +322,8 @@ public class DocumentationGenerationService {
     }
 
     /**
-     * Saves content to file for debugging purposes.
+     * Saves content to file for debugging purposes, streaming it segment by
+     * segment.
      * The method does not interrupt the main flow in case of errors - only logs
      * warnings.
      *
@@ -124,13 +331,18 @@ public class DocumentationGenerationService {
      * @param filename  name of file to save
      * @param content   content to save
      */
-    private void saveDebugFile(Path outputDir, String filename, String content) {
-        try {
-            Path debugFile = outputDir.resolve(filename);
-            Files.writeString(debugFile, content, StandardCharsets.UTF_8);
+    private void saveDebugFile(Path outputDir, String filename, SegmentedText content) {
+        Path debugFile = outputDir.resolve(filename);
+        try (Writer writer = Files.newBufferedWriter(debugFile, StandardCharsets.UTF_8)) {
+            content.writeTo(writer);
             log.debug("Saved debug file: {}", debugFile);
         } catch (Exception e) {
             log.warn("Failed to save debug file {}: {}", filename, e.getMessage());
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 }
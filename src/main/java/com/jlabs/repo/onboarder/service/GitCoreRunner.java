@@ -2,11 +2,14 @@ package com.jlabs.repo.onboarder.service;
 
 import com.jlabs.repo.onboarder.config.GitCoreProperties;
 import com.jlabs.repo.onboarder.git.*;
+import com.jlabs.repo.onboarder.markdown.CommitHistoryPayloadWriter;
 import com.jlabs.repo.onboarder.model.DocumentationResult;
 import com.jlabs.repo.onboarder.model.GitReport;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.transport.CredentialsProvider;
-import org.jspecify.annotations.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -17,6 +20,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.UUID;
 
 @Service
@@ -25,14 +29,15 @@ import java.util.UUID;
 public class GitCoreRunner {
 
     private final GitCoreProperties properties;
-    private final GitAnalysisContext analysisContext;
 
     private final GitRepositoryManager repositoryManager;
+    private final GitMirrorStore mirrorStore;
     private final GitCheckoutService checkoutService;
     private final GitMetaCollector metaCollector;
     private final GitFileCollector fileCollector;
     private final GitCommitCollector commitCollector;
     private final GitHotspotsCollector hotspotsCollector;
+    private final CommitHistoryPayloadWriter commitHistoryPayloadWriter;
     private final DocumentationGenerationService documentationGenerationService;
     private final TestDirectoryCleaner testDirectoryCleaner;
 
@@ -46,6 +51,19 @@ public class GitCoreRunner {
      */
     public DocumentationResult run(String repoUrl, String branch, boolean withTest, String targetLanguage)
             throws Exception {
+        return run(repoUrl, branch, withTest, targetLanguage, AnalysisScope.ALL, ResponseCacheService.Mode.USE,
+                ProgressListener.NONE);
+    }
+
+    /**
+     * Same as {@link #run(String, String, boolean, String)}, limited to the
+     * given scope (path prefixes and commit time window), using the model
+     * response cache as the mode says and reporting stage transitions to the
+     * given listener.
+     */
+    public DocumentationResult run(String repoUrl, String branch, boolean withTest, String targetLanguage,
+            AnalysisScope scope, ResponseCacheService.Mode responseCache, ProgressListener progress)
+            throws Exception {
 
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String temporaryDirName = timestamp + "_" + UUID.randomUUID();
@@ -54,7 +72,9 @@ public class GitCoreRunner {
         log.info("  ├─ repoUrl        : {}", repoUrl);
         log.info("  ├─ branch         : {}", branch);
         log.info("  ├─ include tests  : {}", withTest);
-        log.info("  └─ target language: {}", targetLanguage);
+        log.info("  ├─ target language: {}", targetLanguage);
+        log.info("  ├─ scope          : {}", scope);
+        log.info("  └─ response cache : {}", responseCache);
 
         long startTime = System.currentTimeMillis();
 
@@ -66,43 +86,92 @@ public class GitCoreRunner {
 
         // repoDir = .../workdir/{timestamp_uuid}/repo
         Path repoDir = workDir.resolve("repo");
-        Files.createDirectories(repoDir);
-
-        log.debug("Repository directory prepared at {}", repoDir.toAbsolutePath());
 
         CredentialsProvider credentials = repositoryManager.credentials(properties);
         log.debug("Git credentials provider initialized");
 
-        try (GitAnalysisContext ctx = analysisContext) {
+        boolean useMirror = properties.getMirror().isEnabled();
+        boolean checkout = properties.isCheckout();
 
-            log.info("📥 Cloning repository");
-            Git git = ctx.open(properties, repoDir.toString(), repoUrl);
-            log.info("✔ Repository cloned successfully");
+        progress.onStage(ProgressListener.CLONE, repoUrl);
 
-            log.info("🔀 Fetching and checking out branch '{}'", branch);
-            checkoutService.fetchCheckoutPull(git, properties, credentials, branch);
-            log.info("✔ Branch '{}' checked out", branch);
+        try (GitMirrorStore.Lease mirror = useMirror ? mirrorStore.acquire(repoUrl, branch, scope, credentials) : null;
+                GitAnalysisContext ctx = new GitAnalysisContext(repositoryManager)) {
 
-            if (!withTest) {
-                log.warn("🧹 Test directories will be removed (withTest = false)");
-                testDirectoryCleaner.clean(ctx.repositoryRoot());
-                log.info("✔ Test directories removed");
+            Git git;
+            if (mirror != null && !checkout) {
+                log.info("📥 Deriving bare repository from mirror (no checkout)");
+                git = ctx.openFromMirror(mirror, repoDir.toString(), repoUrl, true);
+                log.info("✔ Repository ready");
+            } else if (mirror != null) {
+                Files.createDirectories(repoDir);
+                log.info("📥 Deriving working repository from mirror");
+                git = ctx.openFromMirror(mirror, repoDir.toString(), repoUrl, false);
+                log.info("✔ Working repository ready");
+
+                log.info("🔀 Checking out branch '{}'", branch);
+                checkoutService.checkout(git, branch);
+                log.info("✔ Branch '{}' checked out", branch);
             } else {
-                log.info("🧪 Test directories preserved");
+                Files.createDirectories(repoDir);
+                log.info("📥 Cloning repository");
+                git = ctx.open(properties, repoDir.toString(), repoUrl, branch, scope);
+                log.info("✔ Repository cloned successfully");
+
+                if (!checkout) {
+                    log.info("🔀 Skipping checkout, branch '{}' is read from the object database", branch);
+                } else if (GitRepositoryManager.shallowDepth(properties, scope) > 0) {
+                    // single-branch shallow clone is already at the requested branch tip
+                    log.info("🔀 Checking out branch '{}'", branch);
+                    checkoutService.checkout(git, branch);
+                    log.info("✔ Branch '{}' checked out", branch);
+                } else {
+                    log.info("🔀 Fetching and checking out branch '{}'", branch);
+                    checkoutService.fetchCheckoutPull(git, properties, credentials, branch);
+                    log.info("✔ Branch '{}' checked out", branch);
+                }
             }
 
-            Path repoRoot = ctx.repositoryRoot();
-            log.debug("Repository root resolved to {}", repoRoot.toAbsolutePath());
+            progress.onStage(ProgressListener.CHECKOUT, branch);
+
+            Repository repository = git.getRepository();
+            ObjectId head;
 
+            if (checkout) {
+                if (!withTest) {
+                    log.warn("🧹 Test directories will be removed (withTest = false)");
+                    testDirectoryCleaner.clean(ctx.repositoryRoot());
+                    log.info("✔ Test directories removed");
+                } else {
+                    log.info("🧪 Test directories preserved");
+                }
+
+                log.debug("Repository root resolved to {}", ctx.repositoryRoot().toAbsolutePath());
+                head = repository.resolve(Constants.HEAD);
+            } else {
+                head = repositoryManager.resolveBranch(repository, branch);
+                log.debug("Branch '{}' resolved to {}", branch, head.getName());
+                log.info(withTest ? "🧪 Test directories preserved" : "🧹 Test directories excluded from sources");
+            }
+
+            progress.onStage(ProgressListener.REPORT, null);
             log.info("📊 Generating git report");
-            GitReport report = createGitReport(repoUrl, branch, withTest, git, workDir.toString());
+            GitReport report = new GitReport();
+            ObjectId[] blobs = createGitReport(repoUrl, branch, withTest, scope, git, head,
+                    workDir.toString(), report);
             log.info("✔ Git report generated");
 
+            // without checkout the sources are read from the blobs the file walk selected
+            SourceTree sourceTree = checkout
+                    ? new WorkingTreeSourceTree(ctx.repositoryRoot())
+                    : new ObjectDatabaseSourceTree(repository, report.getPaths(), blobs);
+
             log.info("📝 Generating documentation");
-            DocumentationResult result = documentationGenerationService.generateDocumentation(report, repoRoot,
-                    workDir, targetLanguage);
+            DocumentationResult result = documentationGenerationService.generateDocumentation(report, sourceTree,
+                    workDir, targetLanguage, responseCache, progress);
             log.info("✔ Documentation generated");
 
+            progress.onStage(ProgressListener.SAVE, null);
             log.info("💾 Saving documentation output");
             saveDocumentationResult(result, workDir);
             log.info("✔ Documentation saved to {}", workDir.toAbsolutePath());
@@ -119,18 +188,28 @@ public class GitCoreRunner {
         }
     }
 
-    private @NonNull GitReport createGitReport(String repoUrl, String branch, boolean withTest, Git git, String workDir)
-            throws Exception {
-        GitReport report = new GitReport();
-
-        metaCollector.collect(git, git.getRepository(), properties, repoUrl, branch, workDir, report);
-
-        fileCollector.collect(git.getRepository(), report, withTest);
-
-        commitCollector.collect(git, git.getRepository(), properties, report);
-
-        hotspotsCollector.collect(report);
-        return report;
+    /**
+     * Fills the report and returns the blob ids of the listed files, by path id.
+     */
+    private ObjectId[] createGitReport(String repoUrl, String branch, boolean withTest,
+            AnalysisScope scope, Git git, ObjectId head, String workDir, GitReport report) throws Exception {
+        metaCollector.collect(git, git.getRepository(), properties, repoUrl, branch, workDir, head, report);
+        report.getRepo().setScopePaths(new ArrayList<>(scope.paths()));
+        report.getRepo().setSince(scope.since());
+        report.getRepo().setUntil(scope.until());
+
+        ObjectId[] blobs = fileCollector.collect(git.getRepository(), head, scope, report, withTest);
+
+        // commits stream through the consumers and are dropped, unless retained
+        CommitConsumer consumer = CommitConsumer.of(
+                hotspotsCollector.aggregator(report),
+                commitHistoryPayloadWriter.collector(report));
+        if (properties.getLimits().isRetainCommits()) {
+            consumer = CommitConsumer.of(consumer, report.getCommitTable()::add);
+        }
+        commitCollector.collect(git.getRepository(), head, scope, properties, consumer);
+        report.getCommitTable().trimToSize();
+        return blobs;
     }
 
     private void saveDocumentationResult(DocumentationResult result, Path outputDir) throws IOException {
@@ -0,0 +1,200 @@
+package com.jlabs.repo.onboarder.service;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Incremental form of the code-fence extraction applied to model responses:
+ * fed with raw response deltas, it emits the part of the final document that
+ * can no longer change.
+ * <p>
+ * A leading {@code <analysis>} block and the opening fence are dropped as
+ * soon as they are complete. The closing fence is the last one of the
+ * response, so text from the last fence seen so far is held back until
+ * another fence or the end of the response shows which one it was; trailing
+ * whitespace is held back the same way.
+ * <p>
+ * {@link #finish()} applies the full extraction to the whole response and
+ * emits what is still missing. When the streamed text turns out not to be a
+ * prefix of the final document (e.g. a fence that is never closed), the whole
+ * document is emitted again from offset 0, so a client that writes each chunk
+ * at its offset (dropping anything after it) always ends with the final
+ * document. {@link #update} does the same for a post-processed document.
+ * <p>
+ * Used by one thread at a time.
+ */
+class MarkdownStreamExtractor {
+
+    /**
+     * Receives a piece of the document starting at the given character offset.
+     */
+    @FunctionalInterface
+    interface Sink {
+        void accept(int offset, String text);
+    }
+
+    private static final String FENCE = "```";
+    private static final String[] FENCE_PREFIXES = { "```markdown", "```json", FENCE };
+    private static final String ANALYSIS_START = "<analysis>";
+    private static final String ANALYSIS_END = "</analysis>";
+
+    private final UnaryOperator<String> extraction;
+    private final Sink sink;
+
+    private final StringBuilder raw = new StringBuilder();
+    // start of the document in raw, -1 while undecided
+    private int start = -1;
+    private boolean fenced;
+    private int lastFence = -1;
+    private int fenceSearchFrom;
+    private int emittedEnd;
+
+    /**
+     * @param extraction the complete (non-incremental) extraction
+     */
+    MarkdownStreamExtractor(UnaryOperator<String> extraction, Sink sink) {
+        this.extraction = extraction;
+        this.sink = sink;
+    }
+
+    void append(String delta) {
+        raw.append(delta);
+        if (start < 0 && !decideStart()) {
+            return;
+        }
+
+        int end = raw.length();
+        if (fenced) {
+            for (int i = raw.indexOf(FENCE, fenceSearchFrom); i >= 0; i = raw.indexOf(FENCE, i + 1)) {
+                lastFence = i;
+            }
+            fenceSearchFrom = Math.max(start, raw.length() - (FENCE.length() - 1));
+            if (lastFence >= start) {
+                end = lastFence;
+            }
+            // a fence may be arriving
+            if (end == raw.length()) {
+                while (end > emittedEnd && raw.charAt(end - 1) == '`') {
+                    end--;
+                }
+            }
+        }
+        while (end > emittedEnd && Character.isWhitespace(raw.charAt(end - 1))) {
+            end--;
+        }
+
+        if (end > emittedEnd) {
+            sink.accept(emittedEnd - start, raw.substring(emittedEnd, end));
+            emittedEnd = end;
+        }
+    }
+
+    /**
+     * @return the final document, as produced by the complete extraction
+     */
+    String finish() {
+        String document = extraction.apply(raw.toString());
+        int emitted = start < 0 ? 0 : emittedEnd - start;
+        deliver(raw, start < 0 ? 0 : start, emitted, document);
+        return document;
+    }
+
+    /**
+     * Brings the client from the finished document to a changed one, e.g.
+     * after post-processing.
+     */
+    void update(String finished, String document) {
+        deliver(finished, 0, finished == null ? 0 : finished.length(), document);
+    }
+
+    /**
+     * Emits what turns the client's text (length characters of sent from
+     * sentFrom) into the document.
+     */
+    private void deliver(CharSequence sent, int sentFrom, int length, String document) {
+        if (document == null) {
+            return;
+        }
+        if (!regionEquals(document, 0, sent, sentFrom, length)) {
+            sink.accept(0, document);
+        } else if (document.length() > length) {
+            sink.accept(length, document.substring(length));
+        }
+    }
+
+    /**
+     * Finds where the document starts once the leading analysis block and
+     * opening fence, if any, have fully arrived.
+     *
+     * @return false while that cannot be told yet
+     */
+    private boolean decideStart() {
+        int i = skipWhitespace(0);
+        if (isPrefixOf(i, ANALYSIS_START)) {
+            return false;
+        }
+        if (startsWith(i, ANALYSIS_START)) {
+            int end = raw.indexOf(ANALYSIS_END, i);
+            if (end < 0) {
+                return false;
+            }
+            i = skipWhitespace(end + ANALYSIS_END.length());
+        }
+        if (i == raw.length() || isPrefixOf(i, FENCE)) {
+            return false;
+        }
+
+        if (startsWith(i, FENCE)) {
+            // the prefix decides how much of the first line is dropped
+            if (raw.indexOf("\n", i) < 0 && raw.length() < i + FENCE_PREFIXES[0].length()) {
+                return false;
+            }
+            for (String prefix : FENCE_PREFIXES) {
+                if (startsWith(i, prefix)) {
+                    i = skipWhitespace(i + prefix.length());
+                    break;
+                }
+            }
+            if (i == raw.length()) {
+                return false;
+            }
+            fenced = true;
+        }
+
+        start = i;
+        emittedEnd = i;
+        fenceSearchFrom = i;
+        return true;
+    }
+
+    private int skipWhitespace(int from) {
+        int i = from;
+        while (i < raw.length() && Character.isWhitespace(raw.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private boolean startsWith(int from, String prefix) {
+        return regionEquals(prefix, 0, raw, from, prefix.length());
+    }
+
+    private static boolean regionEquals(CharSequence a, int aFrom, CharSequence b, int bFrom, int length) {
+        if (a.length() - aFrom < length || b.length() - bFrom < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(aFrom + i) != b.charAt(bFrom + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true when the rest of raw is a proper prefix of the text
+     */
+    private boolean isPrefixOf(int from, String text) {
+        int rest = raw.length() - from;
+        return rest > 0 && rest < text.length() && text.startsWith(raw.substring(from));
+    }
+}
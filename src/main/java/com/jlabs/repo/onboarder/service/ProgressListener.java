@@ -0,0 +1,39 @@
+package com.jlabs.repo.onboarder.service;
+
+/**
+ * Receives stage transitions of the analysis pipeline.
+ * <p>
+ * Stages follow the steps logged by {@link GitCoreRunner}: clone, checkout,
+ * report, generate (once per document generator, message = document type),
+ * judge and save.
+ * <p>
+ * Generators run in parallel: their "generate" stages may interleave and are
+ * reported from generator threads.
+ * <p>
+ * Listeners other than {@link #NONE} also receive the generated documents
+ * while the model streams them, see {@link #onChunk}.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    String CLONE = "clone";
+    String CHECKOUT = "checkout";
+    String REPORT = "report";
+    String GENERATE = "generate";
+    String JUDGE = "judge";
+    String SAVE = "save";
+    String CHUNK = "chunk";
+
+    ProgressListener NONE = (stage, message) -> {
+    };
+
+    void onStage(String stage, String message);
+
+    /**
+     * A piece of a document being generated. The client's copy of the
+     * document is cut at offset and the text appended: offset 0 starts the
+     * document over (e.g. after a retry).
+     */
+    default void onChunk(String documentType, int offset, String text) {
+    }
+}
@@ -1,7 +1,9 @@
 package com.jlabs.repo.onboarder.service;
 
+import com.jlabs.repo.onboarder.git.SourceTree;
 import com.jlabs.repo.onboarder.markdown.*;
 import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.SegmentedText;
 import com.jlabs.repo.onboarder.service.exceptions.PromptConstructionException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.ai.chat.prompt.PromptTemplate;
@@ -9,11 +11,19 @@ import org.springframework.ai.template.st.StTemplateRenderer;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service responsible for constructing the prompt for the AI model.
@@ -40,6 +50,15 @@ public class PromptConstructionService {
          */
         private static final String DOCUMENTATION_TEMPLATE_PLACEHOLDER_KEY = "DOCUMENTATION_TEMPLATE";
 
+        /**
+         * Stands in for the repository context while the prompt template is
+         * rendered; the context is spliced in afterwards, so the template engine
+         * never copies it.
+         */
+        private static final String REPOSITORY_CONTEXT_MARKER = "\u0000REPOSITORY_CONTEXT\u0000";
+
+        private static final int FINGERPRINT_TIMESTAMP_SEARCH_CHARS = 4096;
+
         private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_INSTANT
                         .withZone(ZoneOffset.UTC);
 
@@ -63,8 +82,8 @@ public class PromptConstructionService {
          * for different documents,
          * without duplicating code.
          *
-         * @param report                    report from Git repository analysis
-         * @param repoRoot                  path to the repository root directory
+         * @param repositoryContextXml      repository context of the run, see
+         *                                  {@link #prepareRepositoryContext}
          * @param promptTemplatePath        classpath path to external prompt
          *                                  template (Markdown)
          * @param documentationTemplatePath classpath path to template of
@@ -72,14 +91,11 @@ public class PromptConstructionService {
          * @return final prompt as String ready to be sent to API
          */
         public String constructPrompt(
-                        GitReport report,
-                        Path repoRoot,
+                        CharSequence repositoryContextXml,
                         String promptTemplatePath,
                         String documentationTemplatePath,
                         String targetLanguage) {
                 try {
-
-                        String repositoryContextXml = prepareRepositoryContext(report, repoRoot);
                         String documentationTemplate = loadDocumentationTemplate(documentationTemplatePath);
 
                         return constructPromptWithContent(repositoryContextXml, promptTemplatePath,
@@ -91,7 +107,7 @@ public class PromptConstructionService {
         }
 
         public String constructPromptWithContent(
-                        String repositoryContextXml,
+                        CharSequence repositoryContextXml,
                         String promptTemplatePath,
                         String documentationTemplateContent,
                         String targetLanguage) {
@@ -110,44 +126,123 @@ public class PromptConstructionService {
                                         .resource(new ClassPathResource(promptTemplatePath))
                                         .build();
 
-                        String finalPrompt = finalPromptTemplate.render(Map.of(
-                                        "REPOSITORY_CONTEXT_PAYLOAD_PLACEHOLDER", repositoryContextXml,
+                        String instructions = finalPromptTemplate.render(Map.of(
+                                        "REPOSITORY_CONTEXT_PAYLOAD_PLACEHOLDER", REPOSITORY_CONTEXT_MARKER,
                                         DOCUMENTATION_TEMPLATE_PLACEHOLDER_KEY, documentationTemplateContent,
                                         "LANGUAGE_INSTRUCTION", languageInstruction));
 
-                        return finalPrompt;
+                        // the API takes a String: build it once, at its final size
+                        int at = instructions.indexOf(REPOSITORY_CONTEXT_MARKER);
+                        if (at < 0) {
+                                return instructions;
+                        }
+                        return new StringBuilder(instructions.length() - REPOSITORY_CONTEXT_MARKER.length()
+                                        + repositoryContextXml.length())
+                                        .append(instructions, 0, at)
+                                        .append(repositoryContextXml)
+                                        .append(instructions, at + REPOSITORY_CONTEXT_MARKER.length(),
+                                                        instructions.length())
+                                        .toString();
                 } catch (Exception e) {
                         throw new PromptConstructionException(
                                         "Error during prompt construction: " + e.getMessage(), e);
                 }
         }
 
-        public String prepareRepositoryContext(GitReport report, Path repoRoot) {
-                String directoryTreePayload = directoryTreePayloadWriter.generate(report);
-                String hotspotsPayload = hotspotsPayloadWriter.generate(report);
-                String commitHistoryPayload = commitHistoryPayloadWriter.generate(report);
-                String sourceCodeCorpusPayload = sourceCodeCorpusPayloadWriter.generate(report, repoRoot);
+        /**
+         * Builds the repository context XML. The payload writers append straight
+         * into the result, which is kept in segments: neither the payloads nor the
+         * whole context are ever materialized as a String here.
+         *
+         * @return context, consumed by {@link SegmentedText#writeTo} or as a
+         *         {@link CharSequence}
+         */
+        public SegmentedText prepareRepositoryContext(GitReport report, SourceTree sourceTree) {
                 String projectName = extractProjectName(report.getRepo().getUrl());
+                String branch = report.getRepo().getBranch() != null ? report.getRepo().getBranch() : "main";
 
-                PromptTemplate repositoryContextTemplate = PromptTemplate.builder()
-                                .renderer(StTemplateRenderer.builder()
-                                                .startDelimiterToken(PLACEHOLDER_TOKEN)
-                                                .endDelimiterToken(PLACEHOLDER_TOKEN)
-                                                .build())
-                                .resource(new ClassPathResource(REPOSITORY_CONTEXT_TEMPLATE_PATH))
-                                .build();
-
-                String repositoryContextXml = repositoryContextTemplate.render(Map.of(
-                                "PROJECT_NAME_PAYLOAD_PLACEHOLDER", projectName,
+                Map<String, Consumer<SegmentedText>> payloads = Map.of(
+                                "PROJECT_NAME_PAYLOAD_PLACEHOLDER", out -> out.append(projectName),
                                 "ANALYSIS_TIMESTAMP_PAYLOAD_PLACEHOLDER",
-                                TIMESTAMP_FORMATTER.format(report.getGeneratedAt()),
-                                "BRANCH_PAYLOAD_PLACEHOLDER",
-                                report.getRepo().getBranch() != null ? report.getRepo().getBranch() : "main",
-                                "DIRECTORY_TREE_PAYLOAD_PLACEHOLDER", directoryTreePayload,
-                                "HOTSPOTS_PAYLOAD_PLACEHOLDER", hotspotsPayload,
-                                "COMMIT_HISTORY_PAYLOAD_PLACEHOLDER", commitHistoryPayload,
-                                "SOURCE_CODE_CORPUS_PAYLOAD_PLACEHOLDER", sourceCodeCorpusPayload));
-                return repositoryContextXml;
+                                out -> out.append(TIMESTAMP_FORMATTER.format(report.getGeneratedAt())),
+                                "BRANCH_PAYLOAD_PLACEHOLDER", out -> out.append(branch),
+                                "DIRECTORY_TREE_PAYLOAD_PLACEHOLDER",
+                                out -> directoryTreePayloadWriter.appendTo(report, out),
+                                "HOTSPOTS_PAYLOAD_PLACEHOLDER", out -> hotspotsPayloadWriter.appendTo(report, out),
+                                "COMMIT_HISTORY_PAYLOAD_PLACEHOLDER",
+                                out -> commitHistoryPayloadWriter.appendTo(report, out),
+                                "SOURCE_CODE_CORPUS_PAYLOAD_PLACEHOLDER",
+                                out -> sourceCodeCorpusPayloadWriter.appendTo(report, sourceTree, out));
+
+                return render(loadTemplate(REPOSITORY_CONTEXT_TEMPLATE_PATH), payloads);
+        }
+
+        /**
+         * Content hash (SHA-256) of a repository context built by
+         * {@link #prepareRepositoryContext}, leaving out the analysis timestamp:
+         * the same revision analysed with the same settings has the same
+         * fingerprint on every run. The context is streamed into the digest.
+         */
+        public String fingerprint(SegmentedText repositoryContextXml, GitReport report) {
+                String timestamp = TIMESTAMP_FORMATTER.format(report.getGeneratedAt());
+                // the timestamp is in the metadata at the top
+                int at = indexOf(repositoryContextXml, timestamp, FINGERPRINT_TIMESTAMP_SEARCH_CHARS);
+                try {
+                        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                        try (Writer out = new OutputStreamWriter(
+                                        new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                                        StandardCharsets.UTF_8)) {
+                                if (at < 0) {
+                                        repositoryContextXml.writeTo(out);
+                                } else {
+                                        repositoryContextXml.writeTo(out, 0, at);
+                                        repositoryContextXml.writeTo(out, at + timestamp.length(),
+                                                        repositoryContextXml.length());
+                                }
+                        }
+                        return HexFormat.of().formatHex(digest.digest());
+                } catch (IOException | NoSuchAlgorithmException e) {
+                        throw new IllegalStateException(e);
+                }
+        }
+
+        private static int indexOf(CharSequence text, String needle, int limit) {
+                int last = Math.min(text.length(), limit) - needle.length();
+                for (int i = 0; i <= last; i++) {
+                        int j = 0;
+                        while (j < needle.length() && text.charAt(i + j) == needle.charAt(j)) {
+                                j++;
+                        }
+                        if (j == needle.length()) {
+                                return i;
+                        }
+                }
+                return -1;
+        }
+
+        /**
+         * Substitutes $NAME$ placeholders by appending their payload in place;
+         * unknown names are left as they are.
+         */
+        private SegmentedText render(String template, Map<String, Consumer<SegmentedText>> payloads) {
+                SegmentedText out = new SegmentedText();
+                int position = 0;
+                while (true) {
+                        int start = template.indexOf(PLACEHOLDER_TOKEN, position);
+                        int end = start < 0 ? -1 : template.indexOf(PLACEHOLDER_TOKEN, start + 1);
+                        if (end < 0) {
+                                return out.append(template, position, template.length());
+                        }
+                        Consumer<SegmentedText> payload = payloads.get(template.substring(start + 1, end));
+                        if (payload == null) {
+                                out.append(template, position, end);
+                                position = end;
+                                continue;
+                        }
+                        out.append(template, position, start);
+                        payload.accept(out);
+                        position = end + 1;
+                }
         }
 
         /**
@@ -232,6 +327,14 @@ public class PromptConstructionService {
                 return docTemplateResource.getContentAsString(StandardCharsets.UTF_8);
         }
 
+        private String loadTemplate(String path) {
+                try {
+                        return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                        throw new PromptConstructionException("Cannot load template " + path + ": " + e.getMessage(), e);
+                }
+        }
+
         private String extractProjectName(String repoUrl) {
                 if (repoUrl == null || repoUrl.isBlank()) {
                         return "unknown-project";
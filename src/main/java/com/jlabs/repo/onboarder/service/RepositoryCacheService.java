@@ -1,13 +1,10 @@
 package com.jlabs.repo.onboarder.service;
 
-import com.google.genai.types.Content;
-import com.google.genai.types.Part;
 import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.infrastructure.springai.CachedContentClient;
+import com.jlabs.repo.onboarder.infrastructure.springai.CachedContentClient.CachedContent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.google.genai.cache.CachedContentRequest;
-import org.springframework.ai.google.genai.cache.GoogleGenAiCachedContent;
-import org.springframework.ai.google.genai.cache.GoogleGenAiCachedContentService;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -19,13 +16,15 @@ import javax.annotation.PostConstruct;
 /**
  * Service responsible for managing cached repository context in Google GenAI.
  * 
- * Uses Google GenAI Cached Content API to store large repository contexts
+ * Uses Google GenAI Cached Content API (through {@link CachedContentClient}) to store large repository contexts
  * (XML with directory tree, hotspots, commits, source code), which:
  * - Reduces API costs (cached tokens are 10x cheaper than input tokens)
  * - Speeds up API calls (no need to send large context every time)
  * - Preserves semantics (cache is treated as system instruction/context)
  * 
- * Cache is identified by repository URL and automatically expires after
+ * Cache is identified by repository URL and the fingerprint of the context
+ * it holds, so runs over another revision, scope, branch or file selection
+ * of the same repository never share it. It automatically expires after
  * configured TTL.
  * 
  * NOTE: Requires cached content enabled in configuration:
@@ -36,7 +35,11 @@ import javax.annotation.PostConstruct;
 @RequiredArgsConstructor
 public class RepositoryCacheService {
 
-    private final GoogleGenAiCachedContentService cachedContentService;
+    private static final int FINGERPRINT_CHARS = 16;
+    // display names are limited to 128 characters
+    private static final int MAX_REPOSITORY_NAME_CHARS = 100;
+
+    private final CachedContentClient cachedContentClient;
     private final AiProperties aiProperties;
     // Removing final field cacheEnabled and recalculating it or handling it
     // differently since RequiredArgsConstructor expects final fields to be in
@@ -44,19 +47,19 @@ public class RepositoryCacheService {
     // However, cacheEnabled logic was in constructor. I can move it to
     // @PostConstruct or keep it as non-final but initialized.
     // Actually, looking at the code, cacheEnabled is derived from
-    // cachedContentService != null.
+    // cachedContentClient != null.
     // If I use @RequiredArgsConstructor, I can't have custom logic in constructor.
-    // I will use a @PostConstruct method or just check cachedContentService != null
+    // I will use a @PostConstruct method or just check cachedContentClient != null
     // directly.
 
     private boolean isCacheEnabled() {
-        return cachedContentService != null;
+        return cachedContentClient != null;
     }
 
     @PostConstruct
     public void init() {
         if (!isCacheEnabled()) {
-            log.warn("GoogleGenAiCachedContentService is not available - cache will be disabled. " +
+            log.warn("CachedContentClient is not available - cache will be disabled. " +
                     "To enable cache, set: spring.ai.google.genai.chat.enable-cached-content=true");
         } else {
             log.info("RepositoryCacheService initialized with cache enabled");
@@ -64,13 +67,28 @@ public class RepositoryCacheService {
     }
 
     /**
-     * Generates cache name for repository based on its URL.
+     * Generates cache name for repository context based on the repository URL
+     * and the context fingerprint.
+     * Format: github-user-repo-0123456789abcdef (after URL sanitization, with
+     * the first 16 hex digits of the fingerprint).
+     * 
+     * @param repoUrl     Git repository URL
+     * @param fingerprint {@link RepositoryContext#fingerprint()} of the context
+     * @return sanitized cache name
+     */
+    public String getCacheName(String repoUrl, String fingerprint) {
+        return getCacheNameForRepository(repoUrl) + "-"
+                + fingerprint.substring(0, Math.min(FINGERPRINT_CHARS, fingerprint.length()));
+    }
+
+    /**
+     * Generates cache name prefix for repository based on its URL.
      * Format: github-user-repo (after URL sanitization).
      * 
      * @param repoUrl Git repository URL
      * @return sanitized cache name
      */
-    public String getCacheNameForRepository(String repoUrl) {
+    String getCacheNameForRepository(String repoUrl) {
         if (repoUrl == null || repoUrl.isBlank()) {
             return "unknown-repo";
         }
@@ -90,35 +108,42 @@ public class RepositoryCacheService {
         // Convert to lowercase
         sanitized = sanitized.toLowerCase();
 
+        // Leave room for the fingerprint in the display name
+        if (sanitized.length() > MAX_REPOSITORY_NAME_CHARS) {
+            sanitized = sanitized.substring(sanitized.length() - MAX_REPOSITORY_NAME_CHARS);
+        }
+
         log.debug("Cache name for repo URL '{}': '{}'", repoUrl, sanitized);
         return sanitized;
     }
 
     /**
-     * Checks if cache for repository already exists and is active (not expired).
+     * Checks if cache for repository context already exists and is active (not
+     * expired).
      * 
-     * @param repoUrl Git repository URL
+     * @param repoUrl     Git repository URL
+     * @param fingerprint {@link RepositoryContext#fingerprint()} of the context
      * @return Optional with cached content name if exists and active, Empty if not
      *         exists or expired
      */
-    public Optional<String> getCachedContentName(String repoUrl) {
+    public Optional<String> getCachedContentName(String repoUrl, String fingerprint) {
         if (!isCacheEnabled()) {
             return Optional.empty();
         }
 
-        String cacheName = getCacheNameForRepository(repoUrl);
+        String cacheName = getCacheName(repoUrl, fingerprint);
 
         try {
             // Search all caches looking for ours
-            List<GoogleGenAiCachedContent> allCaches = cachedContentService.listAll();
+            List<CachedContent> allCaches = cachedContentClient.listAll();
 
-            for (GoogleGenAiCachedContent cache : allCaches) {
-                // Check if display name matches our name
-                if (cache.getDisplayName() != null && cache.getDisplayName().contains(cacheName)) {
+            for (CachedContent cache : allCaches) {
+                // Check if display name is our name
+                if (cacheName.equals(cache.displayName())) {
                     // Check if cache didn't expire
-                    if (!cache.isExpired()) {
-                        String fullCacheName = cache.getName();
-                        Duration remainingTtl = cache.getRemainingTtl();
+                    if (!cache.expired()) {
+                        String fullCacheName = cache.name();
+                        Duration remainingTtl = cache.remainingTtl();
 
                         log.info("Found active cache for repo '{}': '{}', remaining TTL: {} minutes",
                                 repoUrl, fullCacheName, remainingTtl.toMinutes());
@@ -127,12 +152,12 @@ public class RepositoryCacheService {
                     } else {
                         log.info("Cache for repo '{}' expired, will be deleted and recreated", repoUrl);
                         // Delete expired cache
-                        cachedContentService.delete(cache.getName());
+                        cachedContentClient.delete(cache.name());
                     }
                 }
             }
 
-            log.info("Active cache not found for repo '{}'", repoUrl);
+            log.info("Active cache '{}' not found for repo '{}'", cacheName, repoUrl);
             return Optional.empty();
 
         } catch (Exception e) {
@@ -147,24 +172,29 @@ public class RepositoryCacheService {
      * Cache will contain:
      * - System instruction: Repository context XML (directory tree, hotspots,
      * commits, source code)
-     * - Display name: Repository name + timestamp
+     * - Display name: Repository name + context fingerprint
      * - TTL: Configured TTL (default 1 hour)
      * - Model: Same model as used for generation
      * 
      * @param repoUrl              Git repository URL
-     * @param repositoryContextXml XML containing full repository context
+     * @param fingerprint          {@link RepositoryContext#fingerprint()} of
+     *                             the context
+     * @param repositoryContextXml XML containing full repository context; turned
+     *                             into a String only when the request is built
+     *                             (the SDK takes text parts as String)
      * @param model                Google GenAI model name (e.g. "gemini-2.5-pro")
      * @return full name of created cached content (format: cachedContent/xxx),
      *         or null if cache is disabled
      * @throws RuntimeException when cannot create cache
      */
-    public String createCachedContent(String repoUrl, String repositoryContextXml, String model) {
+    public String createCachedContent(String repoUrl, String fingerprint, CharSequence repositoryContextXml,
+            String model) {
         if (!isCacheEnabled()) {
             log.warn("Cache is disabled - cannot create cached content");
             return null;
         }
 
-        String cacheName = getCacheNameForRepository(repoUrl);
+        String cacheName = getCacheName(repoUrl, fingerprint);
 
         try {
             log.info("Creating new cache for repo '{}' (display name: '{}')", repoUrl, cacheName);
@@ -181,21 +211,10 @@ public class RepositoryCacheService {
                         estimatedTokens);
             }
 
-            // Create cached content request
-            CachedContentRequest request = CachedContentRequest.builder()
-                    .model(model)
-                    .contents(List.of(
-                            Content.builder()
-                                    .role("user")
-                                    .parts(List.of(Part.fromText(repositoryContextXml)))
-                                    .build()))
-                    .displayName(cacheName)
-                    .ttl(aiProperties.getChat().getOptions().getRepositoryCacheTtl())
-                    .build();
-
             // Create cached content
-            GoogleGenAiCachedContent cachedContent = cachedContentService.create(request);
-            String fullCacheName = cachedContent.getName();
+            CachedContent cachedContent = cachedContentClient.create(model, cacheName, repositoryContextXml,
+                    aiProperties.getChat().getOptions().getRepositoryCacheTtl());
+            String fullCacheName = cachedContent.name();
 
             // Log info about created cache
             logCacheCreated(cachedContent, repoUrl);
@@ -212,8 +231,8 @@ public class RepositoryCacheService {
      * Estimates number of tokens in text.
      * For Gemini models uses approximation: 1 token ≈ 3.5 characters.
      */
-    private long estimateTokenCount(String text) {
-        if (text == null || text.isEmpty()) {
+    private long estimateTokenCount(CharSequence text) {
+        if (text == null || text.length() == 0) {
             return 0;
         }
         return Math.round(text.length() / 3.5);
@@ -222,16 +241,15 @@ public class RepositoryCacheService {
     /**
      * Logs detailed information about created cache.
      */
-    private void logCacheCreated(GoogleGenAiCachedContent cachedContent, String repoUrl) {
-        log.info("Created cache for repo '{}': '{}'", repoUrl, cachedContent.getName());
-        log.info("  Display name: {}", cachedContent.getDisplayName());
-        log.info("  Model: {}", cachedContent.getModel());
-        log.info("  TTL: {} minutes", cachedContent.getRemainingTtl().toMinutes());
+    private void logCacheCreated(CachedContent cachedContent, String repoUrl) {
+        log.info("Created cache for repo '{}': '{}'", repoUrl, cachedContent.name());
+        log.info("  Display name: {}", cachedContent.displayName());
+        log.info("  Model: {}", cachedContent.model());
+        log.info("  TTL: {} minutes", cachedContent.remainingTtl().toMinutes());
 
         // Log usage metadata if available
-        if (cachedContent.getUsageMetadata() != null) {
-            var metadata = cachedContent.getUsageMetadata();
-            metadata.totalTokenCount().ifPresent(tokens -> log.info("  Total tokens in cache: {}", tokens));
+        if (cachedContent.totalTokenCount() != null) {
+            log.info("  Total tokens in cache: {}", cachedContent.totalTokenCount());
         }
     }
 }
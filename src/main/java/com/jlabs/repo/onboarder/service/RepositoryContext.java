@@ -0,0 +1,82 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.jlabs.repo.onboarder.git.SourceTree;
+import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.SegmentedText;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Repository context of one documentation run: the report, the analysed
+ * revision and the context XML rendered from them.
+ * <p>
+ * The XML is built on first use and then shared by the cache creation, every
+ * generator and the judge, so the corpus is read once per run instead of once
+ * per prompt.
+ * <p>
+ * The fingerprint (a content hash of the XML) identifies the context across
+ * runs, for the remote cache and the response cache; computing it builds the
+ * XML.
+ * Thread-safe; the XML is read-only once built.
+ */
+@RequiredArgsConstructor
+public final class RepositoryContext {
+
+    private final GitReport report;
+    private final SourceTree sourceTree;
+    private final Supplier<SegmentedText> builder;
+    private final Function<SegmentedText, String> fingerprinter;
+
+    private final AtomicInteger builds = new AtomicInteger();
+    private volatile SegmentedText xml;
+    private volatile String fingerprint;
+
+    public GitReport getReport() {
+        return report;
+    }
+
+    public SourceTree getSourceTree() {
+        return sourceTree;
+    }
+
+    /**
+     * @return the repository context XML, built by the first caller
+     */
+    public SegmentedText xml() {
+        SegmentedText result = xml;
+        if (result == null) {
+            synchronized (this) {
+                result = xml;
+                if (result == null) {
+                    result = builder.get();
+                    builds.incrementAndGet();
+                    xml = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return content hash of the XML, equal for runs over the same content
+     */
+    public String fingerprint() {
+        String result = fingerprint;
+        if (result == null) {
+            // racing callers compute the same value
+            result = fingerprinter.apply(xml());
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return how many times the XML was built: 0 or 1
+     */
+    public int getBuilds() {
+        return builds.get();
+    }
+}
@@ -0,0 +1,271 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Persistent cache of model responses, content-addressed: the key is a hash
+ * of the repository context fingerprint, the prompt parts (template contents,
+ * judge instructions), the target language and the model options. Runs over
+ * an unchanged revision get the same keys, so their documents are served
+ * without calling the model.
+ * <p>
+ * A response may come from a prompt against the remote context cache instead
+ * of the full context. That cache is named by the same fingerprint
+ * ({@link RepositoryCacheService#getCacheName}), so the response always
+ * belongs to the context its key was computed from.
+ * <p>
+ * The raw response is stored; extraction and post-processing run again on a
+ * hit. Entries are written to a temporary file and moved into place, and a
+ * hit refreshes the entry's modification time, which drives eviction: entries
+ * unused for max-idle go first, then the least recently used ones until the
+ * cache fits the size cap. Read or write errors only cost a model call.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ResponseCacheService {
+
+    static final String METRIC = "onboarder.ai.response.cache";
+
+    private static final String FORMAT_VERSION = "1";
+    private static final String ENTRY_SUFFIX = ".json";
+
+    private final AiProperties aiProperties;
+    private final GitCoreProperties gitCoreProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    // classpath templates never change while running
+    private final Map<String, String> templates = new ConcurrentHashMap<>();
+    private final ReentrantLock eviction = new ReentrantLock();
+
+    /**
+     * How a run uses the cache.
+     */
+    public enum Mode {
+        /** Serve cached responses, store new ones. */
+        USE,
+        /** Always call the model and replace the cached responses. */
+        REFRESH,
+        /** Neither read nor write the cache. */
+        BYPASS;
+
+        boolean reads() {
+            return this == USE;
+        }
+
+        boolean writes() {
+            return this != BYPASS;
+        }
+    }
+
+    public boolean isEnabled() {
+        return aiProperties.getResponseCache().isEnabled();
+    }
+
+    /**
+     * @return true when keys are needed at all, i.e. the cache is enabled and
+     *         not bypassed (computing a key builds the repository context)
+     */
+    public boolean isUsed(Mode mode) {
+        return isEnabled() && mode != Mode.BYPASS;
+    }
+
+    /**
+     * Key of a response.
+     *
+     * @param promptParts everything in the prompt besides the repository
+     *                    context, e.g. the template contents
+     */
+    public String key(RepositoryContext context, String targetLanguage, String... promptParts) {
+        AiProperties.Chat.Options options = aiProperties.getChat().getOptions();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, FORMAT_VERSION);
+            update(digest, context.fingerprint());
+            update(digest, String.valueOf(targetLanguage));
+            update(digest, options.getModel());
+            update(digest, String.valueOf(options.getTemperature()));
+            update(digest, String.valueOf(options.getMaxOutputTokens()));
+            for (String part : promptParts) {
+                update(digest, part);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return contents of a classpath template, for {@link #key}
+     */
+    public String template(String path) {
+        return templates.computeIfAbsent(path, p -> {
+            try {
+                return new ClassPathResource(p).getContentAsString(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot load template " + p, e);
+            }
+        });
+    }
+
+    /**
+     * @return true when {@link #load} would serve the key
+     */
+    public boolean contains(String key, Mode mode) {
+        return isEnabled() && mode.reads() && isFresh(entryPath(key));
+    }
+
+    /**
+     * @return the cached response, empty on a miss or when the mode does not
+     *         read the cache
+     */
+    public Optional<String> load(String key, Mode mode) {
+        if (!isEnabled() || !mode.reads()) {
+            return Optional.empty();
+        }
+        Path file = entryPath(key);
+        if (!isFresh(file)) {
+            meterRegistry.counter(METRIC, "result", "miss").increment();
+            return Optional.empty();
+        }
+        try {
+            Entry entry = objectMapper.readValue(file.toFile(), Entry.class);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            meterRegistry.counter(METRIC, "result", "hit").increment();
+            return Optional.ofNullable(entry.response());
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable response cache entry {}: {}", file, e.getMessage());
+            meterRegistry.counter(METRIC, "result", "miss").increment();
+            return Optional.empty();
+        }
+    }
+
+    public void save(String key, Mode mode, String response) {
+        if (!isEnabled() || !mode.writes() || response == null || response.isBlank()) {
+            return;
+        }
+        Path file = entryPath(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                objectMapper.writeValue(tmp.toFile(), new Entry(key, aiProperties.getChat().getOptions().getModel(),
+                        System.currentTimeMillis(), response));
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write response cache entry {}: {}", file, e.getMessage());
+            return;
+        }
+
+        try {
+            evictIfNeeded();
+        } catch (IOException e) {
+            log.warn("Response cache eviction failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Removes entries unused for max-idle, then least recently used entries
+     * until the cache fits the size cap. Concurrent writers skip it while one
+     * is running.
+     */
+    void evictIfNeeded() throws IOException {
+        Path root = cacheRoot();
+        if (!Files.isDirectory(root) || !eviction.tryLock()) {
+            return;
+        }
+        try {
+            List<CachedFile> entries = new ArrayList<>();
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(ENTRY_SUFFIX)) {
+                        entries.add(new CachedFile(file, attrs.size(), attrs.lastModifiedTime().toMillis()));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+
+            long maxBytes = aiProperties.getResponseCache().getMaxSizeMb() * 1024L * 1024L;
+            long idleBefore = System.currentTimeMillis() - aiProperties.getResponseCache().getMaxIdle().toMillis();
+            long total = entries.stream().mapToLong(CachedFile::size).sum();
+
+            entries.sort(Comparator.comparingLong(CachedFile::lastUsed));
+            for (CachedFile entry : entries) {
+                boolean idle = entry.lastUsed() < idleBefore;
+                if (!idle && (maxBytes <= 0 || total <= maxBytes)) {
+                    break;
+                }
+                log.debug("Evicting response cache entry {} ({} bytes)", entry.path(), entry.size());
+                Files.deleteIfExists(entry.path());
+                total -= entry.size();
+            }
+        } finally {
+            eviction.unlock();
+        }
+    }
+
+    private boolean isFresh(Path file) {
+        try {
+            long idleBefore = System.currentTimeMillis() - aiProperties.getResponseCache().getMaxIdle().toMillis();
+            return Files.isRegularFile(file) && Files.getLastModifiedTime(file).toMillis() >= idleBefore;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path cacheRoot() {
+        return Path.of(gitCoreProperties.getWorkdir()).resolve(aiProperties.getResponseCache().getDir());
+    }
+
+    private Path entryPath(String key) {
+        // fan out like git's loose objects, keeps directories small
+        return cacheRoot().resolve(key.substring(0, 2)).resolve(key.substring(2) + ENTRY_SUFFIX);
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = String.valueOf(part).getBytes(StandardCharsets.UTF_8);
+        // length-prefixed, so parts cannot run into each other
+        digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+    }
+
+    private record CachedFile(Path path, long size, long lastUsed) {
+    }
+
+    /**
+     * Cached response with the model that produced it.
+     *
+     * @param createdAt epoch millis
+     */
+    public record Entry(String key, String model, long createdAt, String response) {
+    }
+}
@@ -8,7 +8,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 
 @Service
 public class TestDirectoryCleaner {
-    private static final String DEFAULT_TEST_DIR = "src/test";
+    public static final String DEFAULT_TEST_DIR = "src/test";
 
     public void clean(Path repoRoot) {
         clean(repoRoot, DEFAULT_TEST_DIR);
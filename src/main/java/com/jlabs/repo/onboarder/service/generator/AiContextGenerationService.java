@@ -1,16 +1,14 @@
 package com.jlabs.repo.onboarder.service.generator;
 
 import com.jlabs.repo.onboarder.infrastructure.springai.ChatModelClient;
-import com.jlabs.repo.onboarder.model.DocumentationResult;
 import com.jlabs.repo.onboarder.model.GitReport;
 import com.jlabs.repo.onboarder.service.DocumentGenerationService;
 import com.jlabs.repo.onboarder.service.DocumentationPostProcessingService;
 import com.jlabs.repo.onboarder.service.PromptConstructionService;
+import com.jlabs.repo.onboarder.service.ResponseCacheService;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
-import java.nio.file.Path;
-
 @Service
 @Order(1)
 public class AiContextGenerationService extends DocumentGenerationService {
@@ -18,9 +16,9 @@ public class AiContextGenerationService extends DocumentGenerationService {
     private final DocumentationPostProcessingService documentationPostProcessingService;
 
     public AiContextGenerationService(ChatModelClient chatModelClient,
-            PromptConstructionService promptConstructionService,
+            PromptConstructionService promptConstructionService, ResponseCacheService responseCacheService,
             DocumentationPostProcessingService documentationPostProcessingService) {
-        super(chatModelClient, promptConstructionService);
+        super(chatModelClient, promptConstructionService, responseCacheService);
         this.documentationPostProcessingService = documentationPostProcessingService;
     }
 
@@ -45,11 +43,9 @@ public class AiContextGenerationService extends DocumentGenerationService {
     }
 
     @Override
-    public void generate(DocumentationResult result, GitReport report,
-                         Path repoRoot, Path debugOutputDir,
-                         String cacheName, String targetLanguage) {
+    protected String getTargetLanguage(String requested) {
         // Enforce English for AI Context based on requirements
-        super.generate(result, report, repoRoot, debugOutputDir, cacheName, "English");
+        return "English";
     }
 
     @Override
@@ -3,6 +3,7 @@ package com.jlabs.repo.onboarder.service.generator;
 import com.jlabs.repo.onboarder.infrastructure.springai.ChatModelClient;
 import com.jlabs.repo.onboarder.service.DocumentGenerationService;
 import com.jlabs.repo.onboarder.service.PromptConstructionService;
+import com.jlabs.repo.onboarder.service.ResponseCacheService;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
 
@@ -11,8 +12,8 @@ import org.springframework.stereotype.Service;
 public class DddRefactoringGenerationService extends DocumentGenerationService {
 
     public DddRefactoringGenerationService(ChatModelClient chatModelClient,
-            PromptConstructionService promptConstructionService) {
-        super(chatModelClient, promptConstructionService);
+            PromptConstructionService promptConstructionService, ResponseCacheService responseCacheService) {
+        super(chatModelClient, promptConstructionService, responseCacheService);
     }
 
     @Override
@@ -0,0 +1,284 @@
+package com.jlabs.repo.onboarder.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.FakeAiConfiguration;
+import com.jlabs.repo.onboarder.infrastructure.fake.FakeCachedContentClient;
+import com.jlabs.repo.onboarder.infrastructure.fake.FakeChatModel;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load test: concurrent POST /run requests against local
+ * repositories, with the model replaced by the "fake-ai" profile. Reports
+ * throughput, latency percentiles, heap and model usage.
+ * <p>
+ * Run with BENCHMARK=true (e.g. BENCHMARK=true ./gradlew test --tests
+ * '*RunLoadTest*'); LOAD_RUNS, LOAD_CONCURRENCY, LOAD_REPOSITORIES and
+ * LOAD_FILES (files per repository) change the load.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles(FakeAiConfiguration.PROFILE)
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+@Slf4j
+class RunLoadTest {
+
+    private static final int RUNS = setting("LOAD_RUNS", 24);
+    private static final int CONCURRENCY = setting("LOAD_CONCURRENCY", 4);
+    private static final int REPOSITORIES = setting("LOAD_REPOSITORIES", 3);
+    private static final int FILES = setting("LOAD_FILES", 300);
+
+    private static final Path WORK = createTempDirectory();
+
+    @Value("${local.server.port}")
+    int port;
+
+    @Autowired
+    FakeChatModel chatModel;
+
+    @Autowired
+    FakeCachedContentClient cachedContentClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("git-core.workdir", () -> WORK.resolve("work").toString());
+        // every run calls the model, limited by the fake's latency only
+        registry.add("spring.ai.google.genai.rate-limit.requests-per-minute", () -> 0);
+        registry.add("spring.ai.google.genai.rate-limit.tokens-per-minute", () -> 0);
+        registry.add("spring.ai.google.genai.rate-limit.cooldown", () -> "PT0.2S");
+        registry.add("fake-ai.latency.median", () -> "PT0.2S");
+        registry.add("fake-ai.tokens-per-second", () -> 5000);
+        registry.add("fake-ai.rate-limit-probability", () -> 0.02);
+    }
+
+    @Test
+    void concurrentRuns() throws Exception {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            Path dir = WORK.resolve("origin-" + i);
+            createRepository(dir, i);
+            urls.add(dir.toUri().toString());
+        }
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        HeapSampler heap = new HeapSampler();
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long calls = chatModel.getCalls();
+
+        ExecutorService executor = Executors.newFixedThreadPool(CONCURRENCY);
+        List<Future<Run>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        heap.start();
+        try {
+            for (int i = 0; i < RUNS; i++) {
+                String url = urls.get(i % urls.size());
+                futures.add(executor.submit(() -> run(http, url)));
+            }
+
+            List<Run> runs = new ArrayList<>();
+            for (Future<Run> future : futures) {
+                runs.add(future.get(10, TimeUnit.MINUTES));
+            }
+            Duration wall = Duration.ofNanos(System.nanoTime() - start);
+            heap.stop();
+
+            report(runs, wall, heap, gcCount(gcCount), gcTime(gcTime), chatModel.getCalls() - calls);
+
+            assertThat(runs).allSatisfy(run -> {
+                assertThat(run.status()).isEqualTo(200);
+                assertThat(run.documents()).isPositive();
+            });
+        } finally {
+            heap.stop();
+            executor.shutdownNow();
+        }
+    }
+
+    private Run run(HttpClient http, String repoUrl) throws Exception {
+        String query = "repoUrl=" + URLEncoder.encode(repoUrl, StandardCharsets.UTF_8)
+                + "&branch=main&withTest=false&responseCache=BYPASS";
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/git-core/run?" + query))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .timeout(Duration.ofMinutes(10))
+                .build();
+
+        long start = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        long nanos = System.nanoTime() - start;
+
+        int documents = 0;
+        int failures = 0;
+        if (response.statusCode() == 200) {
+            JsonNode result = objectMapper.readTree(response.body());
+            documents = result.path("documents").size();
+            failures = result.path("failures").size();
+        }
+        return new Run(response.statusCode(), nanos, documents, failures);
+    }
+
+    private void report(List<Run> runs, Duration wall, HeapSampler heap, long gcs, long gcMillis, long modelCalls) {
+        List<Long> latencies = new ArrayList<>(runs.stream().map(Run::nanos).toList());
+        Collections.sort(latencies);
+        double seconds = wall.toNanos() / 1e9;
+
+        String report = String.join("\n",
+                "",
+                "=== /run load test ===",
+                String.format(Locale.ROOT, "runs        : %d (%d repositories x %d files, concurrency %d)",
+                        runs.size(), REPOSITORIES, FILES, CONCURRENCY),
+                String.format(Locale.ROOT, "throughput  : %.2f runs/s (%.1f runs/min), wall %.1f s",
+                        runs.size() / seconds, runs.size() * 60 / seconds, seconds),
+                String.format(Locale.ROOT, "latency     : p50 %d ms, p90 %d ms, p99 %d ms, max %d ms",
+                        percentile(latencies, 50), percentile(latencies, 90), percentile(latencies, 99),
+                        percentile(latencies, 100)),
+                String.format(Locale.ROOT, "errors      : %d failed runs, %d failed documents",
+                        runs.stream().filter(r -> r.status() != 200).count(),
+                        runs.stream().mapToInt(Run::failures).sum()),
+                String.format(Locale.ROOT, "heap        : max used %d MB (sampled), peak %d MB, %d GCs / %d ms",
+                        heap.maxUsed() >> 20, heapPeak() >> 20, gcs, gcMillis),
+                String.format(Locale.ROOT, "model       : %d calls (%d injected errors in total), %d prompt / %d completion tokens, %d caches",
+                        modelCalls, chatModel.getFailures(), chatModel.getPromptTokens(),
+                        chatModel.getCompletionTokens(), cachedContentClient.getCreated()));
+        log.info(report);
+    }
+
+    private static long percentile(List<Long> sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sortedNanos.get(Math.max(0, index)));
+    }
+
+    private static void createRepository(Path dir, int index) throws Exception {
+        Random random = new Random(index);
+        try (Git git = Git.init().setDirectory(dir.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(dir.resolve("README.md"), "# repo-" + index + "\n");
+            for (int commit = 0; commit < 5; commit++) {
+                for (int file = commit; file < FILES; file += 5) {
+                    Path source = dir.resolve("src/main/java/pkg" + file % 10 + "/Class" + file + ".java");
+                    Files.createDirectories(source.getParent());
+                    Files.writeString(source, javaSource(file, random));
+                }
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("Commit " + commit).setAuthor("dev", "dev@example.com").call();
+            }
+        }
+    }
+
+    private static String javaSource(int file, Random random) {
+        StringBuilder source = new StringBuilder("package pkg" + file % 10 + ";\n\npublic class Class" + file + " {\n");
+        int methods = 5 + random.nextInt(20);
+        for (int m = 0; m < methods; m++) {
+            source.append("    public int method").append(m).append("(int value) {\n")
+                    .append("        return value * ").append(random.nextInt(100)).append(";\n")
+                    .append("    }\n\n");
+        }
+        return source.append("}\n").toString();
+    }
+
+    private static long heapPeak() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static long gcCount(long since) {
+        return gcCount() - since;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcTime(long since) {
+        return gcTime() - since;
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static int setting(String name, int defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("run-load-test");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Run(int status, long nanos, int documents, int failures) {
+    }
+
+    /**
+     * Samples used heap every 50 ms while the load runs; the pool peaks are
+     * reset at start, so both numbers cover the load only.
+     */
+    private static final class HeapSampler {
+
+        private final AtomicLong maxUsed = new AtomicLong();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "heap-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+
+        void start() {
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            scheduler.scheduleAtFixedRate(() -> maxUsed.accumulateAndGet(
+                    ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), Math::max),
+                    0, 50, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+        }
+
+        long maxUsed() {
+            return maxUsed.get();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiffTierPolicyTest {
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', textBlock = """
+            # patterns without '/' match the file name at any depth
+            logo.png                        | TREE
+            web/assets/img/logo.png         | TREE
+            yarn.lock                       | SIZE
+            web/yarn.lock                   | SIZE
+            # patterns with '/' match the whole path, anchored at the root
+            vendor/lib.js                   | TREE
+            web/vendor/lib.js               | FULL
+            vendor/sub/lib.js               | FULL
+            docs/generated/api.md           | SIZE
+            docs/generated/v1/api.md        | SIZE
+            src/docs/generated/api.md       | FULL
+            # a name pattern never matches a directory part of the path
+            png/Readme.md                   | FULL
+            yarn.lock/notes.txt             | FULL
+            # treeOnly wins over sizeOnly
+            web/app.min.png                 | TREE
+            src/Main.java                   | FULL
+            """)
+    void rulesFollowTheSelectionSyntax(String path, DiffTier expected) throws Exception {
+        GitCoreProperties.Diff cfg = new GitCoreProperties.Diff();
+        cfg.setTreeOnly(List.of("*.png", "vendor/*.js"));
+        cfg.setSizeOnly(List.of("yarn.lock", "*.min.*", "docs/generated/**"));
+        cfg.setMaxFullDiffBytes(0);
+
+        DiffEntry modify = Entry.of(DiffEntry.ChangeType.MODIFY, path, ObjectId.zeroId());
+
+        assertThat(new DiffTierPolicy(cfg).tierFor(modify, null)).isEqualTo(expected);
+    }
+
+    @Test
+    void deletedFilesAreMatchedByTheirOldPath() throws Exception {
+        GitCoreProperties.Diff cfg = new GitCoreProperties.Diff();
+        cfg.setMaxFullDiffBytes(0);
+
+        DiffEntry delete = Entry.of(DiffEntry.ChangeType.DELETE, "web/logo.png", ObjectId.zeroId());
+
+        assertThat(new DiffTierPolicy(cfg).tierFor(delete, null)).isEqualTo(DiffTier.TREE);
+    }
+
+    @Test
+    void largeBlobsGetSizeTierAndEstimatedLines() throws Exception {
+        GitCoreProperties.Diff cfg = new GitCoreProperties.Diff();
+        cfg.setMaxFullDiffBytes(100);
+        cfg.setBytesPerLine(10);
+        DiffTierPolicy policy = new DiffTierPolicy(cfg);
+
+        try (InMemoryRepository repo = new InMemoryRepository(new DfsRepositoryDescription("test"));
+                ObjectInserter inserter = repo.newObjectInserter();
+                ObjectReader reader = repo.newObjectReader()) {
+            ObjectId small = inserter.insert(Constants.OBJ_BLOB, new byte[50]);
+            ObjectId large = inserter.insert(Constants.OBJ_BLOB, new byte[205]);
+            inserter.flush();
+
+            DiffEntry addSmall = Entry.of(DiffEntry.ChangeType.ADD, "src/Small.java", small);
+            DiffEntry addLarge = Entry.of(DiffEntry.ChangeType.ADD, "src/Large.java", large);
+
+            assertThat(policy.tierFor(addSmall, reader)).isEqualTo(DiffTier.FULL);
+            assertThat(policy.tierFor(addLarge, reader)).isEqualTo(DiffTier.SIZE);
+            assertThat(policy.estimate(addLarge, reader)).containsExactly(21, 0);
+        }
+    }
+
+    /**
+     * DiffEntry factories are package-private in JGit.
+     */
+    private static final class Entry extends DiffEntry {
+
+        static DiffEntry of(ChangeType type, String path, ObjectId id) {
+            Entry entry = new Entry();
+            entry.changeType = type;
+            entry.oldPath = type == ChangeType.ADD ? DEV_NULL : path;
+            entry.newPath = type == ChangeType.DELETE ? DEV_NULL : path;
+            entry.oldMode = type == ChangeType.ADD ? FileMode.MISSING : FileMode.REGULAR_FILE;
+            entry.newMode = type == ChangeType.DELETE ? FileMode.MISSING : FileMode.REGULAR_FILE;
+            entry.oldId = AbbreviatedObjectId.fromObjectId(type == ChangeType.ADD ? ObjectId.zeroId() : id);
+            entry.newId = AbbreviatedObjectId.fromObjectId(type == ChangeType.DELETE ? ObjectId.zeroId() : id);
+            return entry;
+        }
+    }
+}
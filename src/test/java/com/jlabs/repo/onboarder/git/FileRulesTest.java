@@ -0,0 +1,81 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileRulesTest {
+
+    @ParameterizedTest(name = "[{0}] {1} (dir = {2}) -> {3}")
+    @CsvSource(delimiter = '|', textBlock = """
+            # patterns without '/' match the name at any depth
+            *.log                   | a.log                          | false | true
+            *.log                   | logs/deep/a.log                | false | true
+            *.log                   | a.log.txt                      | false | false
+            Makefile                | tools/Makefile                 | false | true
+            # trailing '/' matches directories only
+            build/                  | build                          | true  | true
+            build/                  | src/build                      | true  | true
+            build/                  | build                          | false | false
+            # leading '/' or a '/' inside anchors at the root
+            /build/                 | build                          | true  | true
+            /build/                 | src/build                      | true  | false
+            docs/*.md               | docs/a.md                      | false | true
+            docs/*.md               | x/docs/a.md                    | false | false
+            docs/*.md               | docs/sub/a.md                  | false | false
+            # '**'
+            **/src/test/            | src/test                       | true  | true
+            **/src/test/            | module/src/test                | true  | true
+            **/src/test/            | src/main/java/com/acme/test    | true  | false
+            a/**/b                  | a/b                            | false | true
+            a/**/b                  | a/x/y/b                        | false | true
+            a/**                    | a/x/y                          | false | true
+            a/**                    | a                              | true  | false
+            # '?', character classes and escapes
+            ?.txt                   | a.txt                          | false | true
+            ?.txt                   | ab.txt                         | false | false
+            [abc].txt               | b.txt                          | false | true
+            [abc].txt               | d.txt                          | false | false
+            [!abc].txt              | d.txt                          | false | true
+            \\#notes                | '#notes'                       | false | true
+            # comments and blank rules match nothing
+            '# comment'             | '# comment'                    | false | false
+            # '!' re-includes, the last matching rule wins
+            *.log;!keep.log         | keep.log                       | false | false
+            *.log;!keep.log         | other.log                      | false | true
+            !keep.log;*.log         | keep.log                       | false | true
+            generated/;!generated/  | generated                      | true  | false
+            """)
+    void matchesLikeGitignore(String patterns, String path, boolean directory, boolean excluded) {
+        GitCoreProperties.Selection selection = new GitCoreProperties.Selection();
+        selection.setLanguages(List.of());
+        selection.setExclude(Arrays.asList(patterns.split(";")));
+
+        assertThat(new FileRules(selection, true).excludes(path, directory)).isEqualTo(excluded);
+    }
+
+    @ParameterizedTest(name = "{0} (dir = {1}) -> {2}")
+    @CsvSource(delimiter = '|', textBlock = """
+            test                                   | true  | true
+            tests                                  | true  | true
+            src/test                               | true  | true
+            service/src/test                       | true  | true
+            web/app/__tests__                      | true  | true
+            src/main/java/com/acme/test            | true  | false
+            src/main/java/com/acme/tests           | true  | false
+            src/main/java/com/acme/test/Fixture.java | false | false
+            src/main/java/com/acme/OrderTest.java  | false | true
+            web/app/order.spec.ts                  | false | true
+            """)
+    void defaultTestRulesOnlyDropTestRoots(String path, boolean directory, boolean excluded) {
+        GitCoreProperties.Selection selection = new GitCoreProperties.Selection();
+
+        assertThat(new FileRules(selection, false).excludes(path, directory)).isEqualTo(excluded);
+        assertThat(new FileRules(selection, true).excludes(path, directory)).isFalse();
+    }
+}
@@ -0,0 +1,107 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.GitReport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitCommitCollectorTest {
+
+    private static final int MAX_COMMITS = 3;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ObjectId> commits = new ArrayList<>();
+
+    @Test
+    void pathScopeFindsCommitsBeyondTheShallowDepth() throws Exception {
+        List<GitReport.CommitInfo> collected = collect(new AnalysisScope(List.of("module"), null, null));
+
+        assertThat(collected).extracting(GitReport.CommitInfo::getCommitId)
+                .containsExactly(commits.get(1).getName(), commits.get(0).getName());
+        assertModifiedAgainstRealParent(collected.get(0));
+    }
+
+    @Test
+    void timeWindowInThePastFindsCommitsBeyondTheShallowDepth() throws Exception {
+        List<GitReport.CommitInfo> collected = collect(AnalysisScope.of(List.of(), null, LocalDate.of(2021, 1, 1)));
+
+        assertThat(collected).extracting(GitReport.CommitInfo::getCommitId)
+                .containsExactly(commits.get(1).getName(), commits.get(0).getName());
+        assertModifiedAgainstRealParent(collected.get(0));
+    }
+
+    @Test
+    void unscopedRunStaysWithinTheShallowDepth() throws Exception {
+        List<GitReport.CommitInfo> collected = collect(AnalysisScope.ALL);
+
+        assertThat(collected).hasSize(MAX_COMMITS);
+        assertThat(collected).allSatisfy(commit -> assertThat(commit.getParents()).hasSize(1));
+    }
+
+    private static void assertModifiedAgainstRealParent(GitReport.CommitInfo commit) {
+        assertThat(commit.getChanges()).singleElement().satisfies(change -> {
+            assertThat(change.getType()).isEqualTo("MODIFY");
+            assertThat(change.getNewPath()).isEqualTo("module/A.java");
+            assertThat(change.getLinesAdded()).isEqualTo(1);
+            assertThat(change.getLinesDeleted()).isEqualTo(1);
+        });
+    }
+
+    /**
+     * Analyses a repository whose only commits touching "module/" (2020) lie
+     * behind ten newer commits elsewhere (2024), through the mirror with the
+     * default SHALLOW strategy.
+     */
+    private List<GitReport.CommitInfo> collect(AnalysisScope scope) throws Exception {
+        Path origin = tempDir.resolve("origin");
+        try (Git git = Git.init().setDirectory(origin.toFile()).setInitialBranch("main").call()) {
+            commit(git, origin, "module/A.java", "class A {}\n", "2020-01-01");
+            commit(git, origin, "module/A.java", "class A { int a; }\n", "2020-06-01");
+            for (int i = 0; i < 10; i++) {
+                commit(git, origin, "other/File" + i + ".txt", "file " + i + "\n", "2024-01-0" + (i % 9 + 1));
+            }
+        }
+
+        GitCoreProperties properties = new GitCoreProperties();
+        properties.setWorkdir(tempDir.resolve("work").toString());
+        properties.getLimits().setMaxCommits(MAX_COMMITS);
+        String url = origin.toUri().toString();
+
+        GitRepositoryManager manager = new GitRepositoryManager();
+        GitCommitCollector collector = new GitCommitCollector(new GitCommitStore(properties, new ObjectMapper()));
+        List<GitReport.CommitInfo> collected = new ArrayList<>();
+        try (GitMirrorStore.Lease lease = new GitMirrorStore(properties).acquire(url, "main", scope, null);
+                Git git = manager.openFromMirror(lease, tempDir.resolve("run").toString(), url, true)) {
+            ObjectId head = manager.resolveBranch(git.getRepository(), "main");
+            collector.collect(git.getRepository(), head, scope, properties, collected::add);
+        }
+        return collected;
+    }
+
+    private void commit(Git git, Path dir, String file, String content, String date) throws Exception {
+        Path path = dir.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+        git.add().addFilepattern(".").call();
+
+        Instant when = LocalDate.parse(date).atStartOfDay(ZoneOffset.UTC).toInstant();
+        PersonIdent ident = new PersonIdent("dev", "dev@example.com", when, ZoneOffset.UTC);
+        commits.add(git.commit().setMessage("Change " + file).setAuthor(ident).setCommitter(ident).call());
+    }
+}
@@ -0,0 +1,129 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.GitReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitCommitStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesAboveTheCap() throws Exception {
+        GitCoreProperties properties = properties();
+        properties.getCommitStore().setMaxSizeMb(1);
+        GitCommitStore store = new GitCommitStore(properties, new ObjectMapper());
+
+        // five ~300 KB entries, written (or last read) one minute apart
+        for (int i = 0; i < 5; i++) {
+            store.save(commitId(i), AnalysisScope.ALL, diff(300 * 1024));
+            age(commitId(i), Duration.ofMinutes(10 - i));
+        }
+        // a hit makes the oldest entry the most recently used one
+        assertThat(store.load(commitId(0), AnalysisScope.ALL)).isPresent();
+
+        store.evictIfNeeded();
+
+        assertThat(store.load(commitId(0), AnalysisScope.ALL)).isPresent();
+        assertThat(store.load(commitId(1), AnalysisScope.ALL)).isEmpty();
+        assertThat(store.load(commitId(2), AnalysisScope.ALL)).isEmpty();
+        assertThat(store.load(commitId(3), AnalysisScope.ALL)).isPresent();
+        assertThat(store.load(commitId(4), AnalysisScope.ALL)).isPresent();
+    }
+
+    @Test
+    void evictsIdleEntriesBelowTheCap() throws Exception {
+        GitCoreProperties properties = properties();
+        properties.getCommitStore().setMaxIdle(Duration.ofDays(7));
+        GitCommitStore store = new GitCommitStore(properties, new ObjectMapper());
+
+        store.save(commitId(0), AnalysisScope.ALL, diff(10));
+        store.save(commitId(1), AnalysisScope.ALL, diff(10));
+        age(commitId(0), Duration.ofDays(8));
+
+        store.evictIfNeeded();
+
+        assertThat(store.load(commitId(0), AnalysisScope.ALL)).isEmpty();
+        assertThat(store.load(commitId(1), AnalysisScope.ALL)).isPresent();
+    }
+
+    @Test
+    void evictionWalksTheStoreOncePerIntervalUnlessAboveTheCap() throws Exception {
+        GitCoreProperties properties = properties();
+        properties.getCommitStore().setMaxSizeMb(1);
+        properties.getCommitStore().setMaxIdle(Duration.ofDays(7));
+        GitCommitStore store = new GitCommitStore(properties, new ObjectMapper());
+
+        store.save(commitId(0), AnalysisScope.ALL, diff(10));
+        store.evictIfNeeded();
+        age(commitId(0), Duration.ofDays(8));
+
+        // within the interval and below the cap, the idle entry stays for now
+        store.evictIfNeeded();
+        assertThat(entries()).isEqualTo(1);
+
+        // writes since the last walk push the store over its cap
+        for (int i = 1; i <= 4; i++) {
+            store.save(commitId(i), AnalysisScope.ALL, diff(300 * 1024));
+        }
+        store.evictIfNeeded();
+
+        assertThat(store.load(commitId(0), AnalysisScope.ALL)).isEmpty();
+        assertThat(entries()).isEqualTo(3);
+    }
+
+    @Test
+    void pathScopesAndSettingsGetSeparateEntries() {
+        GitCoreProperties properties = properties();
+        GitCommitStore store = new GitCommitStore(properties, new ObjectMapper());
+        AnalysisScope module = new AnalysisScope(List.of("module"), null, null);
+
+        store.save(commitId(0), module, diff(10));
+
+        assertThat(store.load(commitId(0), module)).isPresent();
+        assertThat(store.load(commitId(0), AnalysisScope.ALL)).isEmpty();
+        properties.getLimits().setMaxChangedFiles(10);
+        assertThat(store.load(commitId(0), module)).isEmpty();
+    }
+
+    private GitCoreProperties properties() {
+        GitCoreProperties properties = new GitCoreProperties();
+        properties.setWorkdir(tempDir.toString());
+        return properties;
+    }
+
+    private void age(String commitId, Duration age) throws Exception {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            Path entry = files.filter(p -> p.getFileName().toString().equals(commitId.substring(2) + ".json"))
+                    .findFirst()
+                    .orElseThrow();
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - age.toMillis()));
+        }
+    }
+
+    private long entries() throws Exception {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".json")).count();
+        }
+    }
+
+    private static String commitId(int i) {
+        return String.format("%040x", i + 1);
+    }
+
+    private static GitCommitStore.CommitDiff diff(int patchChars) {
+        return new GitCommitStore.CommitDiff(new GitReport.CommitInfo.DiffStats(), List.of(), "x".repeat(patchChars));
+    }
+}
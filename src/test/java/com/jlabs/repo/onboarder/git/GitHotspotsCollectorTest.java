@@ -0,0 +1,104 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.GitReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitHotspotsCollectorTest {
+
+    private final GitReport report = new GitReport();
+
+    @Test
+    void churnBeforeARenameLandsOnTheNewPath() {
+        report.getPaths().setHeadFiles(List.of("src/B.java"));
+
+        // add A, rename A -> B, modify B; streamed newest first
+        aggregate(
+                commit(change("MODIFY", "src/B.java", "src/B.java", 5, 1)),
+                commit(change("RENAME", "src/A.java", "src/B.java", 2, 2)),
+                commit(change("ADD", null, "src/A.java", 10, 0)));
+
+        assertThat(stats()).containsOnlyKeys("src/B.java");
+        GitReport.FileStats b = stats().get("src/B.java");
+        assertThat(b.getCommits()).isEqualTo(3);
+        assertThat(b.getLinesAdded()).isEqualTo(17);
+        assertThat(b.getLinesDeleted()).isEqualTo(3);
+    }
+
+    @Test
+    void swappedRenamesAndRecreatedPathsResolveToTheirHeadFiles() {
+        report.getPaths().setHeadFiles(List.of("A.java", "B.java", "C.java"));
+
+        aggregate(
+                // a new A.java
+                commit(change("ADD", null, "A.java", 3, 0)),
+                // B -> C and A -> B in the same commit
+                commit(change("RENAME", "B.java", "C.java", 0, 0),
+                        change("RENAME", "A.java", "B.java", 0, 0)),
+                commit(change("MODIFY", "A.java", "A.java", 7, 0),
+                        change("MODIFY", "B.java", "B.java", 1, 0)),
+                // history of a file deleted before HEAD
+                commit(change("DELETE", "Gone.java", null, 0, 4)),
+                commit(change("ADD", null, "Gone.java", 4, 0)));
+
+        Map<String, GitReport.FileStats> stats = stats();
+        assertThat(stats).containsOnlyKeys("A.java", "B.java", "C.java");
+        assertThat(stats.get("A.java").getLinesAdded()).isEqualTo(3);
+        assertThat(stats.get("A.java").getCommits()).isEqualTo(1);
+        assertThat(stats.get("B.java").getLinesAdded()).isEqualTo(7);
+        assertThat(stats.get("B.java").getCommits()).isEqualTo(2);
+        assertThat(stats.get("C.java").getLinesAdded()).isEqualTo(1);
+        assertThat(stats.get("C.java").getCommits()).isEqualTo(2);
+    }
+
+    @Test
+    void historicalPathsAreNotInterned() {
+        report.getPaths().setHeadFiles(List.of("src/B.java"));
+        int size = report.getPaths().size();
+
+        aggregate(
+                commit(change("RENAME", "old/deep/A.java", "src/B.java", 0, 0)),
+                commit(change("MODIFY", "old/deep/A.java", "old/deep/A.java", 1, 1),
+                        change("DELETE", "tmp/Scratch.java", null, 0, 9)));
+
+        assertThat(report.getPaths().size()).isEqualTo(size);
+        assertThat(report.getPaths().find("old/deep/A.java")).isEqualTo(-1);
+        assertThat(stats().get("src/B.java").getCommits()).isEqualTo(2);
+    }
+
+    private void aggregate(GitReport.CommitInfo... commits) {
+        CommitConsumer aggregator = new GitHotspotsCollector(new GitCoreProperties()).aggregator(report);
+        for (GitReport.CommitInfo commit : commits) {
+            aggregator.accept(commit);
+        }
+        aggregator.complete();
+    }
+
+    private Map<String, GitReport.FileStats> stats() {
+        return report.getFileStats().entrySet().stream()
+                .collect(Collectors.toMap(e -> report.getPaths().path(e.getKey()), Map.Entry::getValue));
+    }
+
+    private static GitReport.CommitInfo commit(GitReport.CommitInfo.FileChange... changes) {
+        GitReport.CommitInfo commit = new GitReport.CommitInfo();
+        commit.setChanges(List.of(changes));
+        return commit;
+    }
+
+    private static GitReport.CommitInfo.FileChange change(String type, String oldPath, String newPath,
+            int added, int deleted) {
+        GitReport.CommitInfo.FileChange change = new GitReport.CommitInfo.FileChange();
+        change.setType(type);
+        change.setOldPath(oldPath);
+        change.setNewPath(newPath);
+        change.setLinesAdded(added);
+        change.setLinesDeleted(deleted);
+        return change;
+    }
+}
@@ -0,0 +1,168 @@
+package com.jlabs.repo.onboarder.git;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GitMirrorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void concurrentAcquiresShareOneMirrorAndSeeNewCommits() throws Exception {
+        Path origin = tempDir.resolve("origin");
+        createRepository(origin, "origin", 1);
+        String url = origin.toUri().toString();
+        GitMirrorStore store = new GitMirrorStore(properties(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Path>> futures = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try (GitMirrorStore.Lease lease = store.acquire(url, "main", AnalysisScope.ALL, null)) {
+                        return lease.gitDir();
+                    }
+                }));
+            }
+            start.countDown();
+
+            Path mirror = futures.get(0).get(1, TimeUnit.MINUTES);
+            for (Future<Path> future : futures) {
+                assertThat(future.get(1, TimeUnit.MINUTES)).isEqualTo(mirror);
+            }
+            assertThat(store.mirrorsRoot()).isDirectoryContaining(path -> path.equals(mirror));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ObjectId newHead = commit(origin, "origin", "second.bin");
+        try (GitMirrorStore.Lease lease = store.acquire(url, "main", AnalysisScope.ALL, null);
+                Git mirror = Git.open(lease.gitDir().toFile())) {
+            assertThat(mirror.getRepository().resolve(Constants.R_HEADS + "main")).isEqualTo(newHead);
+        }
+    }
+
+    @Test
+    void derivedRepositoryKeepsItsSnapshotWhileTheMirrorIsFetchedAgain() throws Exception {
+        Path origin = tempDir.resolve("origin");
+        createRepository(origin, "origin", 1);
+        ObjectId head = null;
+        for (int i = 0; i < 8; i++) {
+            head = commit(origin, "origin", "file-" + i + ".txt");
+        }
+        String url = origin.toUri().toString();
+        GitCoreProperties properties = properties(0);
+        properties.getLimits().setMaxCommits(3);
+        GitMirrorStore store = new GitMirrorStore(properties);
+        GitRepositoryManager manager = new GitRepositoryManager();
+
+        try (GitMirrorStore.Lease lease = store.acquire(url, "main", AnalysisScope.ALL, null);
+                Git derived = manager.openFromMirror(lease, tempDir.resolve("run").toString(), url, true)) {
+            assertThat(historyLength(derived, head)).isEqualTo(4);
+
+            // another run fetches a new tip with a smaller depth, which moves the
+            // ref and makes the old tip a shallow boundary of the mirror
+            ObjectId newHead = commit(origin, "origin", "late.txt");
+            properties.getLimits().setMaxCommits(1);
+            try (GitMirrorStore.Lease other = store.acquire(url, "main", AnalysisScope.ALL, null);
+                    Git mirror = Git.open(other.gitDir().toFile())) {
+                assertThat(mirror.getRepository().resolve(Constants.R_HEADS + "main")).isEqualTo(newHead);
+                assertThat(historyLength(mirror, head)).isEqualTo(1);
+            }
+
+            assertThat(manager.resolveBranch(derived.getRepository(), "main")).isEqualTo(head);
+            assertThat(historyLength(derived, head)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedMirrorThatIsNotLeased() throws Exception {
+        // each mirror holds ~600 KB of incompressible content, the cap is 1 MB
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path origin = tempDir.resolve("origin-" + i);
+            createRepository(origin, "origin-" + i, 600 * 1024);
+            urls.add(origin.toUri().toString());
+        }
+        GitMirrorStore store = new GitMirrorStore(properties(1));
+
+        GitMirrorStore.Lease leased = store.acquire(urls.get(0), "main", AnalysisScope.ALL, null);
+        try {
+            Path first = leased.gitDir();
+
+            // the leased first mirror must survive, so the second one cannot stay either
+            try (GitMirrorStore.Lease second = store.acquire(urls.get(1), "main", AnalysisScope.ALL, null)) {
+                assertThat(second.gitDir()).exists();
+            }
+            try (GitMirrorStore.Lease third = store.acquire(urls.get(2), "main", AnalysisScope.ALL, null)) {
+                assertThat(third.gitDir()).exists();
+            }
+
+            assertThat(first).exists();
+            assertThat(store.mirrorsRoot().resolve(GitMirrorStore.keyFor(urls.get(1)) + ".git")).doesNotExist();
+            assertThat(store.locks).doesNotContainKey(GitMirrorStore.keyFor(urls.get(1)));
+            // sizes are tracked per mirror instead of walking the store on every run
+            assertThat(store.sizes).containsOnlyKeys(GitMirrorStore.keyFor(urls.get(0)),
+                    GitMirrorStore.keyFor(urls.get(2)));
+            assertThat(store.sizes.get(GitMirrorStore.keyFor(urls.get(0)))).isGreaterThan(600 * 1024L);
+        } finally {
+            leased.close();
+        }
+
+        // the evicted mirror is cloned again on the next request
+        try (GitMirrorStore.Lease again = store.acquire(urls.get(1), "main", AnalysisScope.ALL, null)) {
+            assertThat(again.gitDir().resolve("HEAD")).exists();
+            assertThat(store.locks).containsKey(GitMirrorStore.keyFor(urls.get(1)));
+        }
+    }
+
+    private GitCoreProperties properties(long maxSizeMb) {
+        GitCoreProperties properties = new GitCoreProperties();
+        properties.setWorkdir(tempDir.resolve("work").toString());
+        properties.getMirror().setMaxSizeMb(maxSizeMb);
+        return properties;
+    }
+
+    private static int historyLength(Git git, ObjectId head) throws Exception {
+        int commits = 0;
+        for (RevCommit ignored : git.log().add(head).call()) {
+            commits++;
+        }
+        return commits;
+    }
+
+    private static void createRepository(Path dir, String name, int bytes) throws Exception {
+        try (Git git = Git.init().setDirectory(dir.toFile()).setInitialBranch("main").call()) {
+            byte[] content = new byte[bytes];
+            new Random(name.hashCode()).nextBytes(content);
+            Files.write(dir.resolve("content.bin"), content);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").setAuthor(name, name + "@example.com").call();
+        }
+    }
+
+    private static ObjectId commit(Path dir, String name, String file) throws Exception {
+        try (Git git = Git.open(dir.toFile())) {
+            Files.writeString(dir.resolve(file), file);
+            git.add().addFilepattern(".").call();
+            return git.commit().setMessage("Add " + file).setAuthor(name, name + "@example.com").call();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.jlabs.repo.onboarder.infrastructure.fake;
+
+import com.jlabs.repo.onboarder.config.FakeAiProperties;
+import com.jlabs.repo.onboarder.infrastructure.springai.CachedContentClient.CachedContent;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FakeChatModelTest {
+
+    @Test
+    void samePromptGetsSameDocumentWhetherCalledOrStreamed() {
+        FakeAiProperties properties = instant();
+        FakeChatModel model = new FakeChatModel(properties, "fake-model", new FakeCachedContentClient(properties));
+
+        String called = model.call(new Prompt("describe the repository")).getResult().getOutput().getText();
+        List<ChatResponse> streamed = model.stream(new Prompt("describe the repository")).collectList().block();
+        String other = model.call(new Prompt("describe another repository")).getResult().getOutput().getText();
+
+        assertThat(called)
+                .startsWith("```markdown\n# Document ")
+                .endsWith("```")
+                .hasSizeBetween(properties.getMinResponseChars(), properties.getMaxResponseChars() + 300);
+        assertThat(streamed).hasSizeGreaterThan(1);
+        assertThat(String.join("", streamed.stream().map(r -> r.getResult().getOutput().getText()).toList()))
+                .isEqualTo(called);
+        assertThat(other).isNotEqualTo(called);
+
+        // synthetic usage arrives with the last chunk
+        assertThat(streamed.get(streamed.size() - 1).getMetadata().getUsage().getCompletionTokens())
+                .isEqualTo((int) Math.round(called.length() / 3.5));
+        assertThat(model.getCalls()).isEqualTo(3);
+    }
+
+    @Test
+    void promptsUsingCachedContentAreChargedItsTokens() {
+        FakeAiProperties properties = instant();
+        FakeCachedContentClient caches = new FakeCachedContentClient(properties);
+        FakeChatModel model = new FakeChatModel(properties, "fake-model", caches);
+        CachedContent cache = caches.create("fake-model", "repo", "x".repeat(35_000), Duration.ofHours(1));
+
+        ChatResponse response = model.call(new Prompt("abcdefg", GoogleGenAiChatOptions.builder()
+                .useCachedContent(true)
+                .cachedContentName(cache.name())
+                .build()));
+
+        assertThat(cache.totalTokenCount()).isEqualTo(10_000);
+        assertThat(response.getMetadata().getUsage().getPromptTokens()).isEqualTo(10_002);
+        assertThat(caches.listAll()).extracting(CachedContent::displayName).containsExactly("repo");
+    }
+
+    @Test
+    void injectsErrorsWithTheirStatusInTheMessage() {
+        FakeAiProperties properties = instant();
+        properties.setRateLimitProbability(1.0);
+        FakeChatModel model = new FakeChatModel(properties, "fake-model", new FakeCachedContentClient(properties));
+
+        assertThatThrownBy(() -> model.call(new Prompt("p")))
+                .isInstanceOf(FakeChatModel.FakeApiException.class)
+                .hasMessageStartingWith("429 ");
+
+        properties.setRateLimitProbability(0.0);
+        properties.setServerErrorProbability(1.0);
+        assertThatThrownBy(() -> model.stream(new Prompt("p")).blockLast())
+                .hasMessageStartingWith("503 ");
+        assertThat(model.getFailures()).isEqualTo(2);
+    }
+
+    @Test
+    void waitsForTheSampledLatency() {
+        FakeAiProperties properties = instant();
+        properties.getLatency().setDistribution(FakeAiProperties.Distribution.FIXED);
+        properties.getLatency().setMedian(Duration.ofMillis(100));
+        FakeChatModel model = new FakeChatModel(properties, "fake-model", new FakeCachedContentClient(properties));
+
+        long start = System.nanoTime();
+        model.call(new Prompt("p"));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+    }
+
+    private static FakeAiProperties instant() {
+        FakeAiProperties properties = new FakeAiProperties();
+        properties.getLatency().setMedian(Duration.ZERO);
+        properties.setTokensPerSecond(0);
+        properties.setCacheCreateLatency(Duration.ZERO);
+        return properties;
+    }
+}
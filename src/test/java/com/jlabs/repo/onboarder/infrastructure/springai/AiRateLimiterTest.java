@@ -0,0 +1,217 @@
+package com.jlabs.repo.onboarder.infrastructure.springai;
+
+import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.service.exceptions.AiRateLimitException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AiRateLimiterTest {
+
+    private final AiProperties properties = new AiProperties();
+    private final AiProperties.RateLimit cfg = properties.getRateLimit();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FakeTicker ticker = new FakeTicker();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private final List<String> started = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void stopCallers() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void callersAreAdmittedInArrivalOrder() throws Exception {
+        cfg.setRequestsPerMinute(0);
+        cfg.setTokensPerMinute(100);
+        AiRateLimiter limiter = limiter();
+
+        limiter.execute(100, () -> "first", r -> 0, e -> false);
+        Future<String> large = submit(limiter, "large", 100);
+        awaitUntil(() -> waiting() == 1);
+        Future<String> small = submit(limiter, "small", 1);
+        awaitUntil(() -> waiting() == 2);
+
+        // enough budget for the small call, but the large one is ahead of it
+        ticker.advance(Duration.ofSeconds(30));
+        Thread.sleep(50);
+        assertThat(started).isEmpty();
+
+        ticker.advance(Duration.ofSeconds(30));
+        assertThat(large.get(5, TimeUnit.SECONDS)).isEqualTo("large");
+        Thread.sleep(50);
+        assertThat(started).containsExactly("large");
+
+        ticker.advance(Duration.ofSeconds(1));
+        assertThat(small.get(5, TimeUnit.SECONDS)).isEqualTo("small");
+        assertThat(started).containsExactly("large", "small");
+    }
+
+    @Test
+    void timedOutTicketBehindTheHeadIsSkipped() throws Exception {
+        cfg.setRequestsPerMinute(0);
+        cfg.setTokensPerMinute(0);
+        cfg.setMaxConcurrent(1);
+        cfg.setQueueTimeout(Duration.ofMinutes(1));
+        AiRateLimiter limiter = limiter();
+
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> running = submit(limiter, "running", () -> {
+            release.await();
+            return "running";
+        });
+        awaitUntil(() -> started.contains("running"));
+        Future<String> head = submit(limiter, "head", 1);
+        awaitUntil(() -> waiting() == 1);
+        cfg.setQueueTimeout(Duration.ofSeconds(1));
+        Future<String> impatient = submit(limiter, "impatient", 1);
+        awaitUntil(() -> waiting() == 2);
+        cfg.setQueueTimeout(Duration.ofMinutes(1));
+        Future<String> last = submit(limiter, "last", 1);
+        awaitUntil(() -> waiting() == 3);
+
+        ticker.advance(Duration.ofSeconds(2));
+        assertThatThrownBy(() -> impatient.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(AiRateLimitException.class);
+        assertThat(head).isNotDone();
+        assertThat(waiting()).isEqualTo(2);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("running");
+        assertThat(head.get(5, TimeUnit.SECONDS)).isEqualTo("head");
+        assertThat(last.get(5, TimeUnit.SECONDS)).isEqualTo("last");
+        assertThat(started).containsExactly("running", "head", "last");
+        assertThat(waiting()).isZero();
+    }
+
+    @Test
+    void rateLimitedCallHalvesTheLimitAndIsQueuedAgainAfterTheCooldown() throws Exception {
+        cfg.setRequestsPerMinute(0);
+        cfg.setTokensPerMinute(0);
+        cfg.setMaxConcurrent(4);
+        cfg.setCooldown(Duration.ofSeconds(10));
+        AiRateLimiter limiter = limiter();
+
+        AtomicInteger attempts = new AtomicInteger();
+        Future<String> call = callers.submit(() -> limiter.execute(1, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("429");
+            }
+            return "ok";
+        }, r -> 0, e -> e.getMessage().equals("429")));
+
+        awaitUntil(() -> attempts.get() == 1 && concurrencyLimit() == 2);
+        Thread.sleep(50);
+        assertThat(attempts).hasValue(1);
+
+        ticker.advance(Duration.ofSeconds(10));
+        assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+        assertThat(concurrencyLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void rateLimitedCallFailsAfterTheRetries() {
+        cfg.setMaxRateLimitRetries(0);
+        AiRateLimiter limiter = limiter();
+
+        assertThatThrownBy(() -> limiter.execute(1, () -> {
+            throw new IllegalStateException("429");
+        }, r -> 0, e -> true)).hasMessage("429");
+        assertThat(concurrencyLimit()).isEqualTo(4);
+    }
+
+    @Test
+    void usageAboveTheEstimateIsPaidBackByLaterCalls() throws Exception {
+        cfg.setRequestsPerMinute(0);
+        cfg.setTokensPerMinute(100);
+        AiRateLimiter limiter = limiter();
+
+        // charged 10 up front, used 150: the bucket drops to -50
+        limiter.execute(10, () -> "first", r -> 150, e -> false);
+        Future<String> next = submit(limiter, "next", 10);
+        awaitUntil(() -> waiting() == 1);
+
+        ticker.advance(Duration.ofSeconds(35));
+        Thread.sleep(50);
+        assertThat(started).isEmpty();
+
+        ticker.advance(Duration.ofSeconds(2));
+        assertThat(next.get(5, TimeUnit.SECONDS)).isEqualTo("next");
+    }
+
+    private AiRateLimiter limiter() {
+        return new AiRateLimiter(properties, registry, ticker);
+    }
+
+    private Future<String> submit(AiRateLimiter limiter, String name, long estimatedTokens) {
+        return submit(limiter, name, estimatedTokens, () -> name);
+    }
+
+    private Future<String> submit(AiRateLimiter limiter, String name, Callable<String> call) {
+        return submit(limiter, name, 1, call);
+    }
+
+    private Future<String> submit(AiRateLimiter limiter, String name, long estimatedTokens, Callable<String> call) {
+        return callers.submit(() -> limiter.execute(estimatedTokens, () -> {
+            started.add(name);
+            return call.call();
+        }, r -> 0, e -> false));
+    }
+
+    private double waiting() {
+        return registry.get(AiRateLimiter.WAITING_METRIC).gauge().value();
+    }
+
+    private double concurrencyLimit() {
+        return registry.get(AiRateLimiter.CONCURRENCY_METRIC).gauge().value();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Time moves only on {@link #advance}; waiting callers re-check it every
+     * millisecond.
+     */
+    private static final class FakeTicker implements AiRateLimiter.Ticker {
+
+        private final AtomicLong now = new AtomicLong();
+
+        @Override
+        public long nanoTime() {
+            return now.get();
+        }
+
+        @Override
+        public void awaitNanos(Condition condition, long nanos) throws InterruptedException {
+            condition.await(1, TimeUnit.MILLISECONDS);
+        }
+
+        void advance(Duration duration) {
+            now.addAndGet(duration.toNanos());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jlabs.repo.onboarder.markdown;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.CommitConsumer;
+import com.jlabs.repo.onboarder.model.GitReport;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommitHistoryPayloadWriterTest {
+
+    private final GitCoreProperties properties = new GitCoreProperties();
+    private final GitReport report = new GitReport();
+
+    @Test
+    void historyIsCappedAtTheNewestCommits() {
+        properties.getLimits().setMaxHistoryCommits(2);
+
+        stream(5);
+
+        assertThat(report.getCommitHistory().lines()).containsExactly(
+                "<commit date='1970-01-01T00:00:05Z' committer='dev'>commit 5</commit>",
+                "<commit date='1970-01-01T00:00:04Z' committer='dev'>commit 4</commit>",
+                "<omitted_commits count='3' />");
+    }
+
+    @Test
+    void zeroRendersTheWholeHistory() {
+        properties.getLimits().setMaxHistoryCommits(0);
+
+        stream(5);
+
+        assertThat(report.getCommitHistory().lines()).hasSize(5).last()
+                .isEqualTo("<commit date='1970-01-01T00:00:01Z' committer='dev'>commit 1</commit>");
+    }
+
+    /**
+     * Streams commits newest first, as GitCommitCollector does.
+     */
+    private void stream(int commits) {
+        CommitConsumer collector = new CommitHistoryPayloadWriter(properties).collector(report);
+        for (int i = commits; i > 0; i--) {
+            GitReport.CommitInfo commit = new GitReport.CommitInfo();
+            commit.setCommitterTime(Instant.ofEpochSecond(i));
+            commit.setCommitterName("dev");
+            commit.setMessageShort("commit " + i);
+            collector.accept(commit);
+        }
+        collector.complete();
+    }
+}
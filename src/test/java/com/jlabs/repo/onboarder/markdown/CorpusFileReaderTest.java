@@ -0,0 +1,87 @@
+package com.jlabs.repo.onboarder.markdown;
+
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.SourceTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CorpusFileReaderTest {
+
+    private final CorpusFileReader reader = new CorpusFileReader(new GitCoreProperties.Selection());
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "// Code generated by protoc-gen-go. DO NOT EDIT.\npackage api\n",
+            "// Code generated by mockery v2.20.0. DO NOT EDIT.\r\n\r\npackage mocks\r\n",
+            "package api\n\n/* Code generated by stringer; DO NOT EDIT. */\n",
+            "# Code generated by make-schema. DO NOT EDIT.\nkey: value\n",
+            "/*\n * @generated SignedSource<<abc>>\n */\nclass A {}\n",
+            "// @generated\nexport const a = 1;\n",
+            "# @generated by pip-compile\nrequests==2.31.0\n",
+            "//------------------------------------------------------------------------------\n"
+                    + "// <auto-generated>\n//     This code was generated by a tool.\n// </auto-generated>\n"
+                    + "//------------------------------------------------------------------------------\n",
+            "-- @generated\nCREATE TABLE a (id int);\n",
+            "<!-- Code generated by docgen. DO NOT EDIT. -->\n<html></html>\n"
+    })
+    void generatorHeadersMarkFilesGenerated(String content) throws IOException {
+        assertThat(read(content).kind()).isEqualTo(CorpusFileReader.Kind.GENERATED);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "// Please do not edit this file by hand, run ./gradlew format.\nclass A {}\n",
+            "# DO NOT EDIT unless you know what you are doing\nkey: value\n",
+            "/* The schema is auto-generated from the database on startup. */\nclass Schema {}\n",
+            "// Autogenerated IDs are assigned by the sequence.\nclass Entity {}\n",
+            "// code generated by the wizard, do not edit.\nclass A {}\n",
+            "// Code generated by hand. DO NOT EDIT. Or do, if you must.\nclass A {}\n",
+            "@Generated(\"org.mapstruct\")\nclass MapperImpl {}\n",
+            "class A {\n    String doc = \"@generated\";\n}\n",
+            "String header = \"// Code generated by x. DO NOT EDIT.\";\n",
+            "Code generated by protoc. DO NOT EDIT.\nnot a comment\n"
+    })
+    void ordinaryCommentsAndCodeAreText(String content) throws IOException {
+        CorpusFileReader.Content read = read(content);
+
+        assertThat(read.kind()).isEqualTo(CorpusFileReader.Kind.TEXT);
+        assertThat(read.text()).isEqualTo(content);
+    }
+
+    @Test
+    void headerBelowTheFirstKilobyteDoesNotCount() throws IOException {
+        String content = "// notes\n".repeat(120) + "// @generated\n";
+
+        assertThat(read(content).kind()).isEqualTo(CorpusFileReader.Kind.TEXT);
+    }
+
+    private CorpusFileReader.Content read(String content) throws IOException {
+        return reader.read(new SingleFile(content.getBytes(StandardCharsets.UTF_8)), "file");
+    }
+
+    private record SingleFile(byte[] bytes) implements SourceTree {
+
+        @Override
+        public boolean isFile(String path) {
+            return true;
+        }
+
+        @Override
+        public long size(String path) {
+            return bytes.length;
+        }
+
+        @Override
+        public InputStream open(String path) {
+            return new ByteArrayInputStream(bytes);
+        }
+    }
+}
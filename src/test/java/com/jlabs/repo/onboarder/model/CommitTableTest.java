@@ -0,0 +1,145 @@
+package com.jlabs.repo.onboarder.model;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class CommitTableTest {
+
+    @Test
+    void viewDecodesCommitsAsAdded() {
+        List<GitReport.CommitInfo> commits = commits(500, new Random(42));
+        commits.get(0).setMessageFull(null);
+        commits.get(1).setPatchSnippet("diff --git a/ä b/ä\n+zażółć\n");
+        commits.get(2).setAuthorTime(null);
+        commits.get(3).getChanges().get(0).setTier(null);
+
+        CommitTable table = new CommitTable();
+        commits.forEach(table::add);
+        table.trimToSize();
+
+        assertThat(table.size()).isEqualTo(commits.size());
+        assertThat(table.view()).containsExactlyElementsOf(commits);
+    }
+
+    /**
+     * Heap retained by 100k commits as CommitInfo objects vs. in a
+     * CommitTable. Run with BENCHMARK=true (e.g. BENCHMARK=true ./gradlew
+     * test --tests '*CommitTableTest*'), needs about 1 GB of heap.
+     */
+    @Test
+    @EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+    void tableRetainsAnOrderOfMagnitudeLessHeap() throws Exception {
+        int count = 100_000;
+
+        long base = usedHeap();
+        List<GitReport.CommitInfo> objects = commits(count, new Random(1));
+        long objectBytes = usedHeap() - base;
+        assertThat(objects).hasSize(count);
+        objects = null;
+
+        base = usedHeap();
+        CommitTable table = new CommitTable();
+        Random random = new Random(1);
+        for (int i = 0; i < count; i++) {
+            // added one at a time, as streamed by GitCommitCollector
+            table.add(commit(i, random));
+        }
+        table.trimToSize();
+        long tableBytes = usedHeap() - base;
+        assertThat(table.size()).isEqualTo(count);
+
+        log.info(String.format(Locale.ROOT, "CommitInfo objects: %,d bytes (%,d per commit)", objectBytes,
+                objectBytes / count));
+        log.info(String.format(Locale.ROOT, "CommitTable:        %,d bytes (%,d per commit)", tableBytes,
+                tableBytes / count));
+        log.info(String.format(Locale.ROOT, "ratio:              %.1fx", (double) objectBytes / tableBytes));
+
+        assertThat(objectBytes).isGreaterThanOrEqualTo(10 * tableBytes);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static List<GitReport.CommitInfo> commits(int count, Random random) {
+        List<GitReport.CommitInfo> commits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            commits.add(commit(i, random));
+        }
+        return commits;
+    }
+
+    /**
+     * Commit shaped like the ones GitCommitCollector builds: JGit returns new
+     * String instances for every commit, so names and paths are duplicated
+     * (old and new path of a modification share one instance).
+     */
+    private static GitReport.CommitInfo commit(int index, Random random) {
+        GitReport.CommitInfo ci = new GitReport.CommitInfo();
+        ci.setCommitId(id(index));
+        ci.setShortId(ci.getCommitId().substring(0, 8));
+
+        int author = random.nextInt(500);
+        ci.setAuthorName(new String("Author Name " + author));
+        ci.setAuthorEmail(new String("author." + author + "@example.com"));
+        ci.setAuthorTime(Instant.ofEpochSecond(1_600_000_000L + index * 600L));
+        ci.setCommitterName(new String("Author Name " + author));
+        ci.setCommitterEmail(new String("author." + author + "@example.com"));
+        ci.setCommitterTime(Instant.ofEpochSecond(1_600_000_000L + index * 600L + 60));
+
+        ci.setMessageShort("Fix #" + index + " in module " + random.nextInt(50));
+        ci.setMessageFull(random.nextInt(5) == 0
+                ? ci.getMessageShort() + "\n\nLonger description of change " + index + ".\n"
+                : ci.getMessageShort() + "\n");
+
+        ci.getParents().add(id(index + 1));
+        if (random.nextInt(20) == 0) {
+            ci.getParents().add(id(index + 2));
+        }
+
+        int changes = 1 + random.nextInt(6);
+        int added = 0;
+        int deleted = 0;
+        for (int c = 0; c < changes; c++) {
+            String path = new String("src/main/java/com/example/module" + random.nextInt(50)
+                    + "/Component" + random.nextInt(400) + ".java");
+            GitReport.CommitInfo.FileChange fc = new GitReport.CommitInfo.FileChange();
+            fc.setType("MODIFY");
+            fc.setOldPath(path);
+            fc.setNewPath(path);
+            fc.setLinesAdded(random.nextInt(100));
+            fc.setLinesDeleted(random.nextInt(100));
+            fc.setTier("FULL");
+            ci.getChanges().add(fc);
+            added += fc.getLinesAdded();
+            deleted += fc.getLinesDeleted();
+        }
+        ci.getDiffStats().setFilesChanged(changes);
+        ci.getDiffStats().setLinesAdded(added);
+        ci.getDiffStats().setLinesDeleted(deleted);
+        ci.getDiffStats().setLinesTotal(added + deleted);
+        return ci;
+    }
+
+    private static String id(int index) {
+        byte[] bytes = new byte[20];
+        new Random(index).nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+}
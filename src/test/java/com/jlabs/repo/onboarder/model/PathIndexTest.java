@@ -0,0 +1,63 @@
+package com.jlabs.repo.onboarder.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PathIndexTest {
+
+    private final PathIndex index = new PathIndex();
+
+    @Test
+    void pathsRoundTripThroughTheirIdsAcrossTableGrowth() {
+        List<String> paths = new ArrayList<>();
+        for (int module = 0; module < 20; module++) {
+            for (int file = 0; file < 200; file++) {
+                paths.add("module-" + module + "/src/main/java/File" + file + ".java");
+            }
+        }
+        List<Integer> ids = paths.stream().map(index::id).toList();
+
+        for (int i = 0; i < paths.size(); i++) {
+            assertThat(index.id(paths.get(i))).isEqualTo(ids.get(i));
+            assertThat(index.find(paths.get(i))).isEqualTo(ids.get(i));
+            assertThat(index.path(ids.get(i))).isEqualTo(paths.get(i));
+        }
+        // 4000 files, 20 x 4 directories, the root
+        assertThat(index.size()).isEqualTo(4000 + 80 + 1);
+        assertThat(index.find("module-0/src")).isEqualTo(index.parent(index.find("module-0/src/main")));
+    }
+
+    @Test
+    void findDoesNotInternUnknownPaths() {
+        index.id("src/A.java");
+        int size = index.size();
+
+        assertThat(index.find("src/B.java")).isEqualTo(-1);
+        assertThat(index.find("A.java")).isEqualTo(-1);
+        assertThat(index.find("src/A.java/x")).isEqualTo(-1);
+        assertThat(index.find(null)).isEqualTo(-1);
+        assertThat(index.find("")).isEqualTo(PathIndex.ROOT);
+        assertThat(index.size()).isEqualTo(size);
+    }
+
+    @Test
+    void headFilesAreSortedByPath() {
+        index.setHeadFiles(List.of("src/b.txt", "src/a/Z.java", "README.md", "src/a.b"));
+        BitSet selected = new BitSet();
+        selected.set(index.find("src/b.txt"));
+        selected.set(index.find("README.md"));
+        selected.set(index.find("src/a.b"));
+
+        assertThat(index.headFiles()).containsExactly("README.md", "src/a.b", "src/a/Z.java", "src/b.txt");
+        assertThat(Arrays.stream(index.headFilesIn(selected)).mapToObj(index::path))
+                .containsExactly("README.md", "src/a.b", "src/b.txt");
+        assertThat(Arrays.stream(index.headChildren(index.find("src"))).mapToObj(index::name))
+                .containsExactly("a", "a.b", "b.txt");
+    }
+}
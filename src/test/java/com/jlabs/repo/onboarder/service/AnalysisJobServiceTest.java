@@ -0,0 +1,160 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.jlabs.repo.onboarder.api.GitCoreController;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.AnalysisJob;
+import com.jlabs.repo.onboarder.model.DocumentationResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalysisJobServiceTest {
+
+    private static final int GENERATORS = 4;
+    private static final int EVENTS_PER_GENERATOR = 50;
+
+    private final GitCoreRunner runner = mock(GitCoreRunner.class);
+    private final AnalysisJobService service = new AnalysisJobService(runner, new GitCoreProperties());
+    private final MockMvc mvc = MockMvcBuilders.standaloneSetup(new GitCoreController(runner, service)).build();
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void subscribersReceiveEventsInSequenceOrder() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch halfway = new CountDownLatch(GENERATORS * EVENTS_PER_GENERATOR / 2);
+        CountDownLatch lateSubscriber = new CountDownLatch(1);
+        when(runner.run(anyString(), anyString(), anyBoolean(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    ProgressListener progress = invocation.getArgument(6);
+                    start.await();
+                    // generators publish from their own threads, as DocumentationGenerationService does
+                    List<Thread> generators = new ArrayList<>();
+                    for (int g = 0; g < GENERATORS; g++) {
+                        String document = "doc-" + g;
+                        generators.add(Thread.ofPlatform().start(() -> {
+                            for (int i = 0; i < EVENTS_PER_GENERATOR; i++) {
+                                progress.onStage(ProgressListener.GENERATE, document);
+                                progress.onChunk(document, i, "x");
+                                halfway.countDown();
+                            }
+                        }));
+                    }
+                    lateSubscriber.await();
+                    for (Thread generator : generators) {
+                        generator.join();
+                    }
+                    return new DocumentationResult();
+                });
+
+        AnalysisJob job = service.submit("https://example.com/repo.git", "main", false, "English", null, null, null,
+                ResponseCacheService.Mode.BYPASS);
+        MvcResult early = subscribe(job);
+        start.countDown();
+        halfway.await(5, TimeUnit.SECONDS);
+        MvcResult late = subscribe(job);
+        lateSubscriber.countDown();
+
+        early.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+        late.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+
+        // started, the generate events, completed
+        int events = 1 + GENERATORS * EVENTS_PER_GENERATOR + 1;
+        assertThat(job.getEvents()).hasSize(events);
+        assertThat(ids(early)).isEqualTo(sequence(events));
+        assertThat(ids(late)).isEqualTo(sequence(events));
+        assertThat(early.getResponse().getContentAsString())
+                .contains("event:chunk")
+                .containsSubsequence("id:" + events, "event:done", "\"status\":\"COMPLETED\"");
+    }
+
+    @Test
+    void finishedJobsArePurgedOnceRetentionExpires() throws Exception {
+        GitCoreProperties properties = new GitCoreProperties();
+        properties.getJobs().setRetention(Duration.ZERO);
+        AnalysisJobService purging = new AnalysisJobService(runner, properties);
+        CountDownLatch release = new CountDownLatch(1);
+        when(runner.run(anyString(), anyString(), anyBoolean(), anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return new DocumentationResult();
+                });
+        try {
+            AnalysisJob job = purging.submit("https://example.com/repo.git", "main", false, "English", null, null,
+                    null, ResponseCacheService.Mode.BYPASS);
+
+            purging.purgeExpired();
+            assertThat(purging.find(job.getId())).isPresent();
+
+            release.countDown();
+            while (!job.isFinished()) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(10);
+            purging.purgeExpired();
+            assertThat(purging.find(job.getId())).isEmpty();
+        } finally {
+            purging.shutdown();
+        }
+    }
+
+    @Test
+    void onlyInvalidRequestsAreRejectedWithBadRequest() throws Exception {
+        when(runner.run(anyString(), anyString(), anyBoolean(), anyString(), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("internal failure"));
+
+        mvc.perform(post("/api/git-core/run").param("repoUrl", "https://example.com/repo.git")
+                .param("branch", "main").param("withTest", "false")
+                .param("since", "2024-02-01").param("until", "2024-01-01"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/git-core/jobs").param("repoUrl", "https://example.com/repo.git")
+                .param("branch", "bad..name").param("withTest", "false"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/git-core/run").param("repoUrl", "https://example.com/repo.git")
+                .param("branch", "main").param("withTest", "false"))
+                .andExpect(status().isInternalServerError());
+    }
+
+    private MvcResult subscribe(AnalysisJob job) throws Exception {
+        return mvc.perform(get("/api/git-core/jobs/{jobId}/events", job.getId()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static List<Integer> ids(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString().lines()
+                .filter(line -> line.startsWith("id:"))
+                .map(line -> Integer.parseInt(line.substring(3)))
+                .toList();
+    }
+
+    private static List<Integer> sequence(int events) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 1; i <= events; i++) {
+            ids.add(i);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,161 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.config.FakeAiProperties;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.SourceTree;
+import com.jlabs.repo.onboarder.infrastructure.fake.FakeCachedContentClient;
+import com.jlabs.repo.onboarder.infrastructure.springai.ChatModelClient;
+import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.SegmentedText;
+import com.jlabs.repo.onboarder.service.generator.ReadmeGenerationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.ai.google.genai.GoogleGenAiChatOptions;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DocumentationGenerationServiceTest {
+
+    private static final String URL = "https://github.com/acme/shop.git";
+
+    @TempDir
+    Path tempDir;
+
+    private final AiProperties aiProperties = new AiProperties();
+    private final PromptConstructionService prompts = new ScopedContextPrompts();
+    private final FakeCachedContentClient cachedContentClient = new FakeCachedContentClient(fakeAiProperties());
+    private final AiJudgeService judge = mock(AiJudgeService.class);
+    private DocumentationGenerationService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void scopedAndUnscopedRunsDoNotShareTheRemoteCache() {
+        service = service(List.of());
+
+        generate(report(List.of(), "main"));
+        generate(report(List.of("src/billing"), "main"));
+        generate(report(List.of(), "develop"));
+        // same context again, within the TTL
+        generate(report(List.of(), "main"));
+        generate(report(List.of("src/billing"), "main"));
+
+        assertThat(cachedContentClient.getCreated()).isEqualTo(3);
+        List<String> cacheNames = cacheNames(5);
+        assertThat(cacheNames.subList(0, 3)).doesNotHaveDuplicates();
+        assertThat(cacheNames.get(3)).isEqualTo(cacheNames.get(0));
+        assertThat(cacheNames.get(4)).isEqualTo(cacheNames.get(1));
+    }
+
+    @Test
+    void responsesAreCachedUnderTheContextTheRemoteCacheWasBuiltFrom() {
+        ChatModelClient model = mock(ChatModelClient.class);
+        // the model answers from the remote cache it is given
+        when(model.call(anyString(), any())).thenAnswer(invocation -> "answer from "
+                + invocation.<GoogleGenAiChatOptions>getArgument(1).getCachedContentName());
+        GitCoreProperties gitCoreProperties = new GitCoreProperties();
+        gitCoreProperties.setWorkdir(tempDir.toString());
+        ResponseCacheService responseCache = new ResponseCacheService(aiProperties, gitCoreProperties,
+                new ObjectMapper(), new SimpleMeterRegistry());
+        service = service(List.of(new ReadmeGenerationService(model, prompts, responseCache)));
+
+        String full = readme(report(List.of(), "main"));
+        String scoped = readme(report(List.of("src/billing"), "main"));
+
+        assertThat(full).isEqualTo("answer from cachedContents/fake-1");
+        assertThat(scoped).isEqualTo("answer from cachedContents/fake-2");
+        // served from the response cache, each under its own context
+        assertThat(readme(report(List.of("src/billing"), "main"))).isEqualTo(scoped);
+        assertThat(readme(report(List.of(), "main"))).isEqualTo(full);
+        verify(model, times(2)).call(anyString(), any());
+    }
+
+    @Test
+    void cacheIsNamedByRepositoryAndFingerprint() {
+        RepositoryCacheService repositoryCache = new RepositoryCacheService(cachedContentClient, aiProperties);
+        String fingerprint = "0123456789abcdef0123456789abcdef";
+
+        assertThat(repositoryCache.getCacheName(URL, fingerprint)).isEqualTo("github-com-acme-shop-0123456789abcdef");
+        assertThat(repositoryCache.getCacheName("https://example.com/" + "a".repeat(200), fingerprint))
+                .hasSizeLessThanOrEqualTo(128);
+    }
+
+    private DocumentationGenerationService service(List<DocumentGenerationService> generators) {
+        return new DocumentationGenerationService(prompts,
+                new RepositoryCacheService(cachedContentClient, aiProperties), aiProperties, judge, generators,
+                new SimpleMeterRegistry());
+    }
+
+    private void generate(GitReport report) {
+        service.generateDocumentation(report, null, tempDir, "English", ResponseCacheService.Mode.BYPASS,
+                ProgressListener.NONE);
+    }
+
+    private String readme(GitReport report) {
+        return service.generateDocumentation(report, null, tempDir, "English", ResponseCacheService.Mode.USE,
+                ProgressListener.NONE).getDocuments().get("README.md");
+    }
+
+    private List<String> cacheNames(int runs) {
+        ArgumentCaptor<String> cacheName = ArgumentCaptor.forClass(String.class);
+        verify(judge, times(runs)).validate(any(), any(), any(), cacheName.capture(), anyString(), any());
+        return cacheName.getAllValues();
+    }
+
+    private static GitReport report(List<String> scopePaths, String branch) {
+        GitReport report = new GitReport();
+        report.getRepo().setUrl(URL);
+        report.getRepo().setBranch(branch);
+        report.getRepo().setScopePaths(scopePaths);
+        return report;
+    }
+
+    private static FakeAiProperties fakeAiProperties() {
+        FakeAiProperties properties = new FakeAiProperties();
+        properties.setCacheCreateLatency(Duration.ZERO);
+        return properties;
+    }
+
+    /**
+     * Renders a context that differs with the scope and branch of the run, as
+     * the payload writers do.
+     */
+    private static final class ScopedContextPrompts extends PromptConstructionService {
+
+        private ScopedContextPrompts() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public SegmentedText prepareRepositoryContext(GitReport report, SourceTree sourceTree) {
+            return new SegmentedText()
+                    .append("<repository_context><metadata><branch>")
+                    .append(report.getRepo().getBranch())
+                    .append("</branch></metadata><source_code_corpus>")
+                    .append(report.getRepo().getScopePaths().isEmpty()
+                            ? "src/billing/Invoice.java src/catalog/Product.java"
+                            : "src/billing/Invoice.java")
+                    .append("</source_code_corpus></repository_context>");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.git.*;
+import com.jlabs.repo.onboarder.markdown.CommitHistoryPayloadWriter;
+import com.jlabs.repo.onboarder.model.DocumentationResult;
+import com.jlabs.repo.onboarder.model.GitReport;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs several analyses of local repositories at the same time and checks that
+ * every run reports its own repository. The AI part is replaced by a mock that
+ * echoes what the run handed over to it.
+ */
+class GitCoreRunnerConcurrencyTest {
+
+    private static final int REPOSITORIES = 3;
+    private static final int RUNS_PER_REPOSITORY = 3;
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest(name = "checkout = {0}")
+    @ValueSource(booleans = { false, true })
+    void concurrentRunsDoNotShareState(boolean checkout) throws Exception {
+        List<String> urls = new ArrayList<>();
+        List<String> heads = new ArrayList<>();
+        for (int i = 0; i < REPOSITORIES; i++) {
+            Path repoDir = tempDir.resolve("origin-" + i);
+            heads.add(createRepository(repoDir, "repo-" + i));
+            urls.add(repoDir.toUri().toString());
+        }
+
+        GitCoreRunner runner = runner(checkout);
+
+        ExecutorService executor = Executors.newFixedThreadPool(REPOSITORIES * RUNS_PER_REPOSITORY);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<DocumentationResult>> futures = new ArrayList<>();
+            for (int run = 0; run < RUNS_PER_REPOSITORY; run++) {
+                for (String url : urls) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        return runner.run(url, "main", false, "English");
+                    }));
+                }
+            }
+            start.countDown();
+
+            int index = 0;
+            for (Future<DocumentationResult> future : futures) {
+                int repo = index++ % REPOSITORIES;
+                DocumentationResult result = future.get(2, TimeUnit.MINUTES);
+
+                assertThat(result.getDocuments())
+                        .containsEntry("url", urls.get(repo))
+                        .containsEntry("head", heads.get(repo))
+                        .containsEntry("readme", "# repo-" + repo + "\n")
+                        .containsEntry("files", "README.md,src/main/App.java");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private GitCoreRunner runner(boolean checkout) {
+        GitCoreProperties properties = new GitCoreProperties();
+        properties.setWorkdir(tempDir.resolve("work").toString());
+        properties.setCheckout(checkout);
+
+        DocumentationGenerationService documentation = mock(DocumentationGenerationService.class);
+        when(documentation.generateDocumentation(any(), any(), any(), anyString(), any(), any())).thenAnswer(invocation -> {
+            GitReport report = invocation.getArgument(0);
+            SourceTree sourceTree = invocation.getArgument(1);
+
+            DocumentationResult result = new DocumentationResult();
+            result.addDocument("url", report.getRepo().getUrl());
+            result.addDocument("head", report.getRepo().getHeadCommit());
+            try (InputStream readme = sourceTree.open("README.md")) {
+                result.addDocument("readme", new String(readme.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            result.addDocument("files", String.join(",", report.getAllFilesAtHead()));
+            return result;
+        });
+
+        GitCommitStore commitStore = new GitCommitStore(properties, new ObjectMapper());
+
+        return new GitCoreRunner(
+                properties,
+                new GitRepositoryManager(),
+                new GitMirrorStore(properties),
+                new GitCheckoutService(),
+                new GitMetaCollector(),
+                new GitFileCollector(properties),
+                new GitCommitCollector(commitStore),
+                new GitHotspotsCollector(properties),
+                new CommitHistoryPayloadWriter(properties),
+                documentation,
+                new TestDirectoryCleaner());
+    }
+
+    private static String createRepository(Path dir, String name) throws Exception {
+        try (Git git = Git.init().setDirectory(dir.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(dir.resolve("README.md"), "# " + name + "\n");
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("Initial commit").setAuthor(name, name + "@example.com").call();
+
+            Files.createDirectories(dir.resolve("src/main"));
+            Files.createDirectories(dir.resolve("src/test"));
+            Files.writeString(dir.resolve("src/main/App.java"), "class App {}\n");
+            Files.writeString(dir.resolve("src/test/AppTest.java"), "class AppTest {}\n");
+            git.add().addFilepattern(".").call();
+            ObjectId head = git.commit().setMessage("Add sources").setAuthor(name, name + "@example.com").call();
+            return head.getName();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.jlabs.repo.onboarder.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkdownStreamExtractorTest {
+
+    /**
+     * Writes every chunk at its offset and drops what follows, like the SSE
+     * client does.
+     */
+    private final StringBuilder client = new StringBuilder();
+    private final List<Integer> offsets = new ArrayList<>();
+
+    @Test
+    void analysisPreambleAndOpeningFenceAreNeverStreamed() {
+        MarkdownStreamExtractor extractor = extractor();
+
+        extractor.append("<anal");
+        extractor.append("ysis>plan: intro, then body</analysis>\n");
+        extractor.append("```mark");
+        assertThat(offsets).isEmpty();
+
+        extractor.append("down\n# Title\n\nBody");
+        assertThat(client).hasToString("# Title\n\nBody");
+
+        extractor.append(" text\n```\n");
+        String document = extractor.finish();
+
+        assertThat(document).isEqualTo("# Title\n\nBody text");
+        assertThat(client).hasToString(document);
+        assertThat(offsets).containsExactly(0, 13);
+    }
+
+    @Test
+    void fenceSplitAcrossDeltasIsHeldBackUntilComplete() {
+        MarkdownStreamExtractor extractor = extractor();
+        List<String> deltas = List.of("```markdown\n# Doc\n`", "``java\nint a;\n`", "``\nMore", "\n`", "``");
+
+        List<String> seen = new ArrayList<>();
+        for (String delta : deltas) {
+            extractor.append(delta);
+            seen.add(client.toString());
+        }
+        String document = extractor.finish();
+
+        assertThat(document).isEqualTo("# Doc\n```java\nint a;\n```\nMore");
+        assertThat(seen).allSatisfy(text -> assertThat(document).startsWith(text));
+        // text before the last fence seen is held back: that fence may be the closing one
+        assertThat(seen).containsExactly("# Doc", "# Doc", "# Doc\n```java\nint a;",
+                "# Doc\n```java\nint a;", "# Doc\n```java\nint a;\n```\nMore");
+        assertThat(offsets.subList(1, offsets.size())).allSatisfy(offset -> assertThat(offset).isPositive());
+        assertThat(client).hasToString(document);
+    }
+
+    @Test
+    void unclosedFenceRewindsToTheWholeResponse() {
+        MarkdownStreamExtractor extractor = extractor();
+
+        extractor.append("```markdown\n# Doc\n");
+        extractor.append("Body without a closing fence");
+        assertThat(client).hasToString("# Doc\nBody without a closing fence");
+
+        String document = extractor.finish();
+
+        assertThat(document).isEqualTo("```markdown\n# Doc\nBody without a closing fence");
+        assertThat(offsets).last().isEqualTo(0);
+        assertThat(client).hasToString(document);
+    }
+
+    @Test
+    void retriedAttemptStartsTheDocumentOverAtOffsetZero() {
+        MarkdownStreamExtractor first = extractor();
+        first.append("```markdown\n# Draft that was cut");
+        first.append(" off midway");
+        assertThat(client).hasToString("# Draft that was cut off midway");
+
+        // a new attempt gets a new extractor, as DocumentGenerationService.DocumentStream does
+        MarkdownStreamExtractor second = extractor();
+        offsets.clear();
+        second.append("```markdown\n# Final");
+        second.append("\n```");
+        String document = second.finish();
+
+        assertThat(document).isEqualTo("# Final");
+        assertThat(offsets).containsExactly(0);
+        assertThat(client).hasToString(document);
+    }
+
+    @Test
+    void postProcessingAppendsOrRewinds() {
+        MarkdownStreamExtractor extractor = extractor();
+        extractor.append("# Doc\nBody");
+        String document = extractor.finish();
+
+        extractor.update(document, document + "\n\nFooter");
+        assertThat(offsets).last().isEqualTo(document.length());
+        assertThat(client).hasToString("# Doc\nBody\n\nFooter");
+
+        extractor.update("# Doc\nBody\n\nFooter", "# Document\nBody");
+        assertThat(offsets).last().isEqualTo(0);
+        assertThat(client).hasToString("# Document\nBody");
+    }
+
+    private MarkdownStreamExtractor extractor() {
+        return new MarkdownStreamExtractor(DocumentGenerationService::extractMarkdownFromCodeBlock,
+                (offset, text) -> {
+                    assertThat(offset).isLessThanOrEqualTo(client.length());
+                    offsets.add(offset);
+                    client.setLength(offset);
+                    client.append(text);
+                });
+    }
+}
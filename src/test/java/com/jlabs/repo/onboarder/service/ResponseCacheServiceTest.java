@@ -0,0 +1,135 @@
+package com.jlabs.repo.onboarder.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jlabs.repo.onboarder.config.AiProperties;
+import com.jlabs.repo.onboarder.config.GitCoreProperties;
+import com.jlabs.repo.onboarder.model.GitReport;
+import com.jlabs.repo.onboarder.model.SegmentedText;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AiProperties aiProperties = new AiProperties();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PromptConstructionService prompts = new PromptConstructionService(null, null, null, null);
+    private ResponseCacheService cache;
+
+    @BeforeEach
+    void setUp() {
+        GitCoreProperties gitCoreProperties = new GitCoreProperties();
+        gitCoreProperties.setWorkdir(tempDir.toString());
+        cache = new ResponseCacheService(aiProperties, gitCoreProperties, new ObjectMapper(), registry);
+    }
+
+    @Test
+    void unchangedRevisionGetsTheSameKeyOnEveryRun() {
+        String first = cache.key(context("2024-05-01T10:00:00Z", "class A {}"), "en", "template");
+        String second = cache.key(context("2024-06-02T11:30:00Z", "class A {}"), "en", "template");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(cache.key(context("2024-06-02T11:30:00Z", "class A { int a; }"), "en", "template"))
+                .isNotEqualTo(first);
+        assertThat(cache.key(context("2024-06-02T11:30:00Z", "class A {}"), "pl", "template"))
+                .isNotEqualTo(first);
+        assertThat(cache.key(context("2024-06-02T11:30:00Z", "class A {}"), "en", "other template"))
+                .isNotEqualTo(first);
+    }
+
+    @Test
+    void refreshSkipsTheCachedResponseAndOverwritesIt() {
+        String key = key(1);
+        cache.save(key, ResponseCacheService.Mode.USE, "old response");
+
+        assertThat(cache.contains(key, ResponseCacheService.Mode.REFRESH)).isFalse();
+        assertThat(cache.load(key, ResponseCacheService.Mode.REFRESH)).isEmpty();
+
+        cache.save(key, ResponseCacheService.Mode.REFRESH, "new response");
+        cache.save(key, ResponseCacheService.Mode.BYPASS, "ignored response");
+
+        assertThat(cache.load(key, ResponseCacheService.Mode.USE)).contains("new response");
+        assertThat(registry.counter(ResponseCacheService.METRIC, "result", "hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesAboveTheCap() throws Exception {
+        aiProperties.getResponseCache().setMaxSizeMb(0);
+        // five ~300 KB entries, written (or last read) one minute apart
+        for (int i = 0; i < 5; i++) {
+            cache.save(key(i), ResponseCacheService.Mode.USE, "x".repeat(300 * 1024));
+            age(key(i), Duration.ofMinutes(10 - i));
+        }
+        // a hit makes the oldest entry the most recently used one
+        assertThat(cache.load(key(0), ResponseCacheService.Mode.USE)).isPresent();
+
+        aiProperties.getResponseCache().setMaxSizeMb(1);
+        cache.evictIfNeeded();
+
+        assertThat(cache.contains(key(0), ResponseCacheService.Mode.USE)).isTrue();
+        assertThat(cache.contains(key(1), ResponseCacheService.Mode.USE)).isFalse();
+        assertThat(cache.contains(key(2), ResponseCacheService.Mode.USE)).isFalse();
+        assertThat(cache.contains(key(3), ResponseCacheService.Mode.USE)).isTrue();
+        assertThat(cache.contains(key(4), ResponseCacheService.Mode.USE)).isTrue();
+    }
+
+    @Test
+    void evictsIdleEntriesBelowTheCap() throws Exception {
+        aiProperties.getResponseCache().setMaxIdle(Duration.ofDays(7));
+        cache.save(key(0), ResponseCacheService.Mode.USE, "idle");
+        cache.save(key(1), ResponseCacheService.Mode.USE, "used");
+        age(key(0), Duration.ofDays(8));
+
+        assertThat(cache.load(key(0), ResponseCacheService.Mode.USE)).isEmpty();
+        cache.evictIfNeeded();
+
+        assertThat(entries()).hasSize(1);
+        assertThat(cache.load(key(1), ResponseCacheService.Mode.USE)).contains("used");
+    }
+
+    /**
+     * Context laid out like the repository context template: the analysis
+     * timestamp in the metadata at the top, the payloads after it.
+     */
+    private RepositoryContext context(String generatedAt, String source) {
+        GitReport report = new GitReport();
+        report.setGeneratedAt(Instant.parse(generatedAt));
+        SegmentedText xml = new SegmentedText()
+                .append("<repository_context><metadata><analysis_timestamp>")
+                .append(generatedAt)
+                .append("</analysis_timestamp></metadata><source_code_corpus>")
+                .append(source)
+                .append("</source_code_corpus></repository_context>");
+        return new RepositoryContext(report, null, () -> xml, text -> prompts.fingerprint(text, report));
+    }
+
+    private void age(String key, Duration age) throws Exception {
+        Path entry = entries().filter(p -> p.getFileName().toString().equals(key.substring(2) + ".json"))
+                .findFirst()
+                .orElseThrow();
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - age.toMillis()));
+    }
+
+    private Stream<Path> entries() throws Exception {
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            return files.filter(p -> p.toString().endsWith(".json")).toList().stream();
+        }
+    }
+
+    private static String key(int i) {
+        return String.format("%064x", i + 1);
+    }
+}